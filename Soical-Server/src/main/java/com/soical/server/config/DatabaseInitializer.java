@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -25,18 +27,25 @@ import java.util.Map;
 
 /**
  * 数据库初始化器，用于应用启动时执行数据库修复脚本
+ * 最先执行，其他启动任务依赖迁移后的表结构
  */
 @Slf4j
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class DatabaseInitializer implements CommandLineRunner {
 
     private final JdbcTemplate jdbcTemplate;
     private final DataSource dataSource;
+    private final SchemaMigrator schemaMigrator;
+    private final QueryPlanChecker queryPlanChecker;
 
     @Autowired
-    public DatabaseInitializer(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+    public DatabaseInitializer(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                               SchemaMigrator schemaMigrator, QueryPlanChecker queryPlanChecker) {
         this.jdbcTemplate = jdbcTemplate;
         this.dataSource = dataSource;
+        this.schemaMigrator = schemaMigrator;
+        this.queryPlanChecker = queryPlanChecker;
     }
 
     @Override
@@ -52,6 +61,12 @@ public class DatabaseInitializer implements CommandLineRunner {
         // 检查用户资料表中是否有重复用户ID
         checkForDuplicateProfiles();
         
+        // 执行数据库版本迁移（索引、新增列等），失败时终止启动
+        schemaMigrator.migrate();
+        
+        // 检查热点查询的执行计划
+        queryPlanChecker.check();
+        
         log.info("数据库初始化完成");
     }
     
@@ -0,0 +1,32 @@
+package com.soical.server.config;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MyBatis-Plus配置类
+ */
+@Configuration
+public class MybatisPlusConfig {
+
+    /**
+     * 单页最大条数，防止前端传入过大的pageSize
+     */
+    private static final long MAX_PAGE_SIZE = 500L;
+
+    /**
+     * 分页插件
+     * 传入Page参数的查询会改写为 LIMIT 分页，并自动生成COUNT查询
+     */
+    @Bean
+    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        PaginationInnerInterceptor paginationInterceptor = new PaginationInnerInterceptor(DbType.MYSQL);
+        paginationInterceptor.setMaxLimit(MAX_PAGE_SIZE);
+        interceptor.addInnerInterceptor(paginationInterceptor);
+        return interceptor;
+    }
+}
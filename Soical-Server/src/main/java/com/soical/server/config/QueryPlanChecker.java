@@ -0,0 +1,88 @@
+package com.soical.server.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点查询执行计划自检
+ * 启动时对登记的热点查询执行EXPLAIN，出现全表扫描时输出警告，提示索引缺失或失效
+ */
+@Slf4j
+@Component
+public class QueryPlanChecker {
+
+    /**
+     * 热点查询：名称 -> 使用示例参数的SQL，与对应Mapper中的查询条件和排序保持一致
+     */
+    private static final Map<String, String> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put("PostMapper.selectPostsByCursor",
+                "SELECT post_id FROM t_post WHERE status = 1 ORDER BY create_time DESC, post_id DESC LIMIT 20");
+        HOT_QUERIES.put("PostMapper.selectCityPosts",
+                "SELECT post_id FROM t_post WHERE status = 1 AND city = '' ORDER BY create_time DESC LIMIT 20");
+        HOT_QUERIES.put("PostMapper.selectUserPosts",
+                "SELECT post_id FROM t_post WHERE user_id = 0 AND status = 1 ORDER BY create_time DESC LIMIT 20");
+        HOT_QUERIES.put("PostMapper.selectRecommendedPosts",
+                "SELECT post_id FROM t_post WHERE status = 1 ORDER BY hot_score DESC LIMIT 20");
+        HOT_QUERIES.put("PostMapper.recomputeHotScores",
+                "SELECT post_id FROM t_post WHERE status = 1 AND create_time >= NOW() - INTERVAL 7 DAY");
+        HOT_QUERIES.put("CommentMapper.selectCommentsWithUser",
+                "SELECT comment_id FROM t_comment WHERE post_id = 0 AND status = 1");
+        HOT_QUERIES.put("PostLikeService.getLikedPostIds",
+                "SELECT post_id FROM t_post_like WHERE user_id = 0 AND post_id IN (1, 2, 3)");
+        HOT_QUERIES.put("UserFollowMapper.selectFollowerIdsAfter",
+                "SELECT follower_id FROM t_user_follow WHERE followed_id = 0 AND status = 1 AND follower_id > 0 "
+                        + "ORDER BY follower_id LIMIT 500");
+        HOT_QUERIES.put("UserMatchService.getLikesReceived",
+                "SELECT match_id FROM t_user_match WHERE user_b_id = 0 AND status = 0 ORDER BY create_time DESC");
+        HOT_QUERIES.put("ChatMessageMapper.selectHistory",
+                "SELECT message_id FROM t_chat_message WHERE conversation_id = 0 ORDER BY message_id DESC LIMIT 20");
+        HOT_QUERIES.put("ChatMessageMapper.countUnreadMessages",
+                "SELECT COUNT(*) FROM t_chat_message WHERE conversation_id = 0 AND sender_id != 0 AND is_read = 0");
+    }
+
+    @Value("${database.query-plan-check.enabled:true}")
+    private boolean enabled;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public QueryPlanChecker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 检查所有登记的热点查询
+     */
+    public void check() {
+        if (!enabled) {
+            return;
+        }
+
+        int warnings = 0;
+        for (Map.Entry<String, String> entry : HOT_QUERIES.entrySet()) {
+            try {
+                List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + entry.getValue());
+                for (Map<String, Object> row : plan) {
+                    if ("ALL".equalsIgnoreCase(String.valueOf(row.get("type")))) {
+                        warnings++;
+                        log.warn("热点查询走全表扫描: {}, table={}, rows={}, possible_keys={}, Extra={}",
+                                entry.getKey(), row.get("table"), row.get("rows"),
+                                row.get("possible_keys"), row.get("Extra"));
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("检查热点查询执行计划失败: {}, 错误: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        log.info("热点查询执行计划检查完成，共 {} 条查询，{} 处全表扫描", HOT_QUERIES.size(), warnings);
+    }
+}
@@ -0,0 +1,13 @@
+package com.soical.server.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 调度线程池大小通过 spring.task.scheduling.pool.size 配置
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
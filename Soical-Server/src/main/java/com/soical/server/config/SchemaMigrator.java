@@ -0,0 +1,230 @@
+package com.soical.server.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库版本迁移器
+ * 按版本号顺序执行 db/migration/V{版本号}__{描述}.sql 中尚未执行的脚本，
+ * 执行记录保存在t_schema_version表中，多实例启动时通过MySQL命名锁串行执行。
+ * 实体类依赖迁移后的表结构，迁移失败或等待锁超时时抛出异常终止启动（显式关闭迁移时除外）
+ */
+@Slf4j
+@Component
+public class SchemaMigrator {
+
+    private static final String MIGRATION_LOCATION = "classpath:db/migration/V*__*.sql";
+
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String LOCK_NAME = "soical_schema_migration";
+
+    /**
+     * 索引已存在（Duplicate key name）
+     */
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    /**
+     * 列已存在（Duplicate column name）
+     */
+    private static final int ER_DUP_FIELDNAME = 1060;
+
+    @Value("${database.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${database.migration.lock-timeout-seconds:60}")
+    private int lockTimeoutSeconds;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SchemaMigrator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 执行未执行的迁移脚本
+     *
+     * @throws IllegalStateException 迁移失败或等待迁移锁超时
+     */
+    public void migrate() {
+        if (!enabled) {
+            log.info("数据库版本迁移已关闭，跳过执行");
+            return;
+        }
+
+        List<Migration> migrations;
+        try {
+            migrations = loadMigrations();
+        } catch (IOException e) {
+            throw new IllegalStateException("读取数据库迁移脚本失败", e);
+        }
+        if (migrations.isEmpty()) {
+            log.info("未找到数据库迁移脚本，跳过执行");
+            return;
+        }
+        // 命名锁与连接绑定，整个迁移过程使用同一个连接
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (!acquireLock(connection)) {
+                throw new IllegalStateException("获取数据库迁移锁超时（" + lockTimeoutSeconds + "秒），终止启动");
+            }
+            try {
+                applyMigrations(connection, migrations);
+            } finally {
+                releaseLock(connection);
+            }
+            return null;
+        });
+    }
+
+    private void applyMigrations(Connection connection, List<Migration> migrations) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS `t_schema_version` (" +
+                    "`version` int NOT NULL COMMENT '版本号'," +
+                    "`description` varchar(200) NOT NULL COMMENT '描述'," +
+                    "`installed_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '执行时间'," +
+                    "`execution_ms` bigint DEFAULT NULL COMMENT '执行耗时（毫秒）'," +
+                    "PRIMARY KEY (`version`)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='数据库版本表'");
+        }
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM t_schema_version")) {
+            while (rs.next()) {
+                applied.add(rs.getInt(1));
+            }
+        }
+
+        int executed = 0;
+        for (Migration migration : migrations) {
+            if (applied.contains(migration.version)) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            log.info("执行数据库迁移: V{} {}", migration.version, migration.description);
+            // 某条语句失败时停止，后续版本可能依赖本版本
+            executeScript(connection, migration);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO t_schema_version (version, description, execution_ms) VALUES (?, ?, ?)")) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.setLong(3, System.currentTimeMillis() - start);
+                ps.executeUpdate();
+            }
+            executed++;
+        }
+        log.info("数据库版本迁移完成，共执行 {} 个版本", executed);
+    }
+
+    /**
+     * 执行单个迁移脚本，DDL不支持事务，已存在的索引和列视为已执行
+     */
+    private void executeScript(Connection connection, Migration migration) {
+        for (String sql : migration.statements) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            } catch (SQLException e) {
+                if (e.getErrorCode() == ER_DUP_KEYNAME || e.getErrorCode() == ER_DUP_FIELDNAME) {
+                    log.info("索引或列已存在，跳过: {}", abbreviate(sql));
+                    continue;
+                }
+                throw new IllegalStateException("数据库迁移失败: V" + migration.version + " "
+                        + migration.description + ", 语句: " + abbreviate(sql), e);
+            }
+        }
+    }
+
+    private boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, lockTimeoutSeconds);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            log.warn("释放数据库迁移锁失败", e);
+        }
+    }
+
+    /**
+     * 加载迁移脚本并按版本号排序
+     */
+    private List<Migration> loadMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(MIGRATION_LOCATION);
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource resource : resources) {
+            Matcher matcher = MIGRATION_NAME.matcher(Objects.requireNonNull(resource.getFilename()));
+            if (!matcher.matches()) {
+                continue;
+            }
+            String script;
+            try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                script = FileCopyUtils.copyToString(reader);
+            }
+            Migration migration = new Migration();
+            migration.version = Integer.parseInt(matcher.group(1));
+            migration.description = matcher.group(2).replace('_', ' ');
+            migration.statements = splitStatements(script);
+            migrations.add(migration);
+        }
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+        return migrations;
+    }
+
+    /**
+     * 去掉注释行后按分号分割SQL语句
+     */
+    private List<String> splitStatements(String script) {
+        StringBuilder cleaned = new StringBuilder();
+        for (String line : script.split("\\r?\\n")) {
+            if (!line.trim().startsWith("--")) {
+                cleaned.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : cleaned.toString().split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    private String abbreviate(String sql) {
+        return sql.substring(0, Math.min(100, sql.length()));
+    }
+
+    private static class Migration {
+        private int version;
+        private String description;
+        private List<String> statements;
+    }
+}
@@ -0,0 +1,122 @@
+package com.soical.server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置类
+ * 各业务使用独立的有界线程池，互不影响
+ */
+@Configuration
+public class ThreadPoolConfig {
+
+    /**
+     * 推荐策略线程池
+     * 队列满时直接拒绝，由调用方降级为该策略无结果，避免请求堆积
+     */
+    @Bean("recommendExecutor")
+    public ThreadPoolTaskExecutor recommendExecutor(
+            @Value("${recommend.executor.core-size:8}") int coreSize,
+            @Value("${recommend.executor.max-size:16}") int maxSize,
+            @Value("${recommend.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("recommend-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 关注动态推送线程池
+     * 队列满时由提交线程（事务提交回调）执行，推送不丢失
+     */
+    @Bean("timelineExecutor")
+    public ThreadPoolTaskExecutor timelineExecutor(
+            @Value("${timeline.executor.core-size:2}") int coreSize,
+            @Value("${timeline.executor.max-size:4}") int maxSize,
+            @Value("${timeline.executor.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("timeline-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 图片上传线程池
+     * 上传以网络I/O为主，队列满时由请求线程自己上传
+     */
+    @Bean("uploadExecutor")
+    public ThreadPoolTaskExecutor uploadExecutor(
+            @Value("${upload.executor.core-size:8}") int coreSize,
+            @Value("${upload.executor.max-size:32}") int maxSize,
+            @Value("${upload.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 图片衍生图生成线程池
+     * 解码和缩放占用CPU和内存，线程数较少；队列满时拒绝，未生成的图片直接使用原图
+     */
+    @Bean("imageExecutor")
+    public ThreadPoolTaskExecutor imageExecutor(
+            @Value("${image.derivative.executor.core-size:2}") int coreSize,
+            @Value("${image.derivative.executor.max-size:2}") int maxSize,
+            @Value("${image.derivative.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * WebSocket消息发送线程池
+     * 各会话的出站队列在此池中写出，每个会话同一时刻至多占用一个线程；
+     * 队列满时拒绝任务，不在投递线程（如Redis消息监听线程）上写出，由出站队列关闭对应会话
+     */
+    @Bean("websocketExecutor")
+    public ThreadPoolTaskExecutor websocketExecutor(
+            @Value("${chat.websocket.executor.core-size:8}") int coreSize,
+            @Value("${chat.websocket.executor.max-size:32}") int maxSize,
+            @Value("${chat.websocket.executor.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ws-send-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,6 +1,7 @@
 package com.soical.server.config.oss;
 
 import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSException;
 import com.aliyun.oss.model.ObjectMetadata;
 import com.aliyun.oss.model.PutObjectRequest;
 import com.soical.server.common.BusinessException;
@@ -32,6 +33,16 @@ public class OssService {
     @Autowired(required = false)
     private OSS ossClient;
     
+    /**
+     * 禁止覆盖同名对象的请求头
+     */
+    private static final String HEADER_FORBID_OVERWRITE = "x-oss-forbid-overwrite";
+    
+    /**
+     * 禁止覆盖时对象已存在的错误码
+     */
+    private static final String ERROR_FILE_ALREADY_EXISTS = "FileAlreadyExists";
+    
     // 允许的图片类型
     private static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList(
             "image/jpeg", "image/png", "image/gif", "image/webp"
@@ -98,6 +109,97 @@ public class OssService {
         }
     }
     
+    /**
+     * 按指定对象名上传文件，对象已存在时不重复上传
+     *
+     * @param inputStream 文件输入流
+     * @param objectName  对象名
+     * @param contentType 文件类型
+     * @param fileSize    文件大小
+     * @return 是否新上传
+     */
+    public boolean uploadObjectIfAbsent(InputStream inputStream, String objectName, String contentType, long fileSize) {
+        validateOssClient();
+        
+        if (ossClient.doesObjectExist(ossConfig.getBucketName(), objectName)) {
+            return false;
+        }
+        
+        // 禁止覆盖同名对象，并发上传相同内容时只有一个请求成功创建
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setContentLength(fileSize);
+        metadata.setHeader(HEADER_FORBID_OVERWRITE, "true");
+        try {
+            ossClient.putObject(new PutObjectRequest(ossConfig.getBucketName(), objectName, inputStream, metadata));
+            return true;
+        } catch (OSSException e) {
+            if (ERROR_FILE_ALREADY_EXISTS.equals(e.getErrorCode())) {
+                return false;
+            }
+            log.error("上传文件失败: {}", objectName, e);
+            throw new BusinessException(ResultCode.FAILED.getCode(), "文件上传失败");
+        }
+    }
+    
+    /**
+     * 读取OSS中的文件
+     *
+     * @param fileUrl 上传时返回的文件URL
+     * @return 文件输入流，由调用方关闭
+     */
+    public InputStream openFile(String fileUrl) {
+        validateOssClient();
+        
+        String objectName = getObjectName(fileUrl);
+        if (objectName == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "文件不属于当前OSS存储");
+        }
+        return ossClient.getObject(ossConfig.getBucketName(), objectName).getObjectContent();
+    }
+    
+    /**
+     * 删除OSS中的文件
+     *
+     * @param fileUrl 上传时返回的文件URL
+     */
+    public void deleteFile(String fileUrl) {
+        validateOssClient();
+        
+        String objectName = getObjectName(fileUrl);
+        if (objectName == null) {
+            log.warn("文件不属于当前OSS存储，跳过删除: {}", fileUrl);
+            return;
+        }
+        ossClient.deleteObject(ossConfig.getBucketName(), objectName);
+    }
+    
+    /**
+     * 获取对象的访问URL
+     *
+     * @param objectName 对象名
+     * @return 文件URL
+     */
+    public String getUrl(String objectName) {
+        return getBaseUrl() + objectName;
+    }
+    
+    /**
+     * 从文件URL解析对象名
+     *
+     * @param fileUrl 文件URL
+     * @return 对象名，不属于当前OSS存储时返回null
+     */
+    public String getObjectName(String fileUrl) {
+        String baseUrl = getBaseUrl();
+        return fileUrl != null && fileUrl.startsWith(baseUrl) ? fileUrl.substring(baseUrl.length()) : null;
+    }
+    
+    private String getBaseUrl() {
+        String url = ossConfig.getOssUrl();
+        return url.endsWith("/") ? url : url + "/";
+    }
+    
     /**
      * 获取文件扩展名
      *
@@ -10,7 +10,7 @@ import com.soical.server.mapper.PostCommentMapper;
 import com.soical.server.mapper.UserMapper;
 import com.soical.server.mapper.UserMatchMapper;
 import com.soical.server.service.AdminService;
-import com.soical.server.util.FileUtil;
+import com.soical.server.service.ImageUploadService;
 import com.soical.server.util.SecurityUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -40,6 +40,7 @@ import java.util.Random;
 public class AdminController {
 
     private final AdminService adminService;
+    private final ImageUploadService imageUploadService;
     private final UserMapper userMapper;
     private final PostMapper postMapper;
     private final PostCommentMapper commentMapper;
@@ -528,7 +529,7 @@ public class AdminController {
         Long adminId = SecurityUtil.getCurrentAdminId();
         
         // 上传头像
-        String avatarUrl = FileUtil.uploadImage(file);
+        String avatarUrl = imageUploadService.uploadImage(file);
         
         // 更新管理员头像
         Admin admin = adminService.getById(adminId);
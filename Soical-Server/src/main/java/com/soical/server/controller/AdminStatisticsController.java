@@ -1,8 +1,10 @@
 package com.soical.server.controller;
 
 import com.soical.server.common.Result;
+import com.soical.server.service.RecommendMetricsService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -14,6 +16,9 @@ import java.util.*;
 @Api(tags = "管理后台统计数据", description = "管理后台统计数据相关API")
 public class AdminStatisticsController {
 
+    @Autowired
+    private RecommendMetricsService recommendMetricsService;
+
     @GetMapping("/users")
     @ApiOperation("获取用户统计数据")
     public Result<Map<String, Object>> getUserStats() {
@@ -188,4 +193,10 @@ public class AdminStatisticsController {
         data.put("commentValues", commentValues);
         return Result.success(data);
     }
-}
\ No newline at end of file
+    
+    @GetMapping("/recommend-strategies")
+    @ApiOperation("获取推荐策略指标")
+    public Result<Map<String, Map<String, Object>>> getRecommendStrategyMetrics() {
+        return Result.success(recommendMetricsService.getStrategyMetrics());
+    }
+}
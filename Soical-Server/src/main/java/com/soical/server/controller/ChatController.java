@@ -2,11 +2,14 @@ package com.soical.server.controller;
 
 import com.soical.server.common.Result;
 import com.soical.server.dto.CreateConversationDTO;
+import com.soical.server.dto.CursorPage;
 import com.soical.server.entity.ChatMessage;
 import com.soical.server.entity.Conversation;
 import com.soical.server.service.ChatMessageQueueService;
 import com.soical.server.service.ChatMessageService;
+import com.soical.server.service.ChatMessageWriteService;
 import com.soical.server.service.ConversationService;
+import com.soical.server.util.SnowflakeIdGenerator;
 import com.soical.server.util.UserUtils;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -59,6 +62,12 @@ public class ChatController {
     @Autowired
     private ChatMessageQueueService chatMessageQueueService;
     
+    @Autowired
+    private ChatMessageWriteService chatMessageWriteService;
+    
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    
     @ApiOperation("获取用户的会话列表")
     @GetMapping("/conversations")
     public Result<List<Conversation>> getConversations() {
@@ -124,7 +133,7 @@ public class ChatController {
         return Result.ok(result);
     }
     
-    @ApiOperation("获取会话的消息列表")
+    @ApiOperation("获取会话最近的消息列表")
     @GetMapping("/messages/{conversationId}")
     public Result<List<ChatMessage>> getMessages(
             @ApiParam(value = "会话ID", required = true) @PathVariable Long conversationId) {
@@ -132,14 +141,30 @@ public class ChatController {
         return Result.ok(messages);
     }
     
+    @ApiOperation("按游标获取会话的历史消息")
+    @GetMapping("/messages/{conversationId}/history")
+    public Result<CursorPage<ChatMessage>> getMessageHistory(
+            @ApiParam(value = "会话ID", required = true) @PathVariable Long conversationId,
+            @ApiParam(value = "游标：上一页最早一条消息的ID（首页不传）") @RequestParam(required = false) Long beforeMessageId,
+            @ApiParam(value = "每页条数", defaultValue = "20") @RequestParam(defaultValue = "20") int size) {
+        CursorPage<ChatMessage> messages = chatMessageService.getMessageHistory(conversationId, beforeMessageId, size);
+        return Result.ok(messages);
+    }
+    
     @ApiOperation("获取两个用户之间的消息")
     @GetMapping("/messages/between")
     public Result<List<ChatMessage>> getMessagesBetweenUsers(
             @ApiParam(value = "用户A ID", required = true) @RequestParam Long userId1,
             @ApiParam(value = "用户B ID", required = true) @RequestParam Long userId2,
-            @ApiParam(value = "页码", required = true) @RequestParam(defaultValue = "1") int page,
+            @ApiParam(value = "游标：上一页最早一条消息的ID（首页不传）") @RequestParam(required = false) Long beforeMessageId,
+            @ApiParam(value = "页码（已废弃，只支持第1页，翻页请使用beforeMessageId或/messages/{conversationId}/history）")
+            @RequestParam(defaultValue = "1") int page,
             @ApiParam(value = "每页条数", required = true) @RequestParam(defaultValue = "20") int size) {
-        List<ChatMessage> messages = chatMessageService.getMessagesBetweenUsers(userId1, userId2, page, size);
+        // 按页码翻页需要逐页定位游标，页码越大查询越多，不再支持
+        if (page > 1 && beforeMessageId == null) {
+            return Result.fail("page参数已废弃，请使用beforeMessageId游标翻页");
+        }
+        List<ChatMessage> messages = chatMessageService.getMessagesBetweenUsers(userId1, userId2, beforeMessageId, size);
         return Result.ok(messages);
     }
     
@@ -161,134 +186,29 @@ public class ChatController {
         
         // 保存消息
         try {
-            // 设置必要的字段
-            if (message.getCreateTime() == null) {
-                message.setCreateTime(new Date());
-            }
-            if (message.getIsRead() == null) {
-                message.setIsRead(false);
-            }
-            if (message.getMessageType() == null) {
-                message.setMessageType(1); // 默认为文本消息
-            }
-            
             // 确保会话存在
-            final Conversation conversation = conversationService.findByUsers(currentUserId, message.getReceiverId());
-            final Conversation finalConversation;
-            
+            Conversation conversation = conversationService.findByUsers(currentUserId, message.getReceiverId());
             if (conversation == null) {
                 log.info("未找到会话，正在创建新会话...");
-                final Conversation newConversation = conversationService.createConversation(currentUserId, message.getReceiverId());
-                if (newConversation == null) {
+                conversation = conversationService.createConversation(currentUserId, message.getReceiverId());
+                if (conversation == null) {
                     log.error("创建会话失败");
                     return Result.fail("创建会话失败");
                 }
-                log.info("新会话创建成功，ID: {}", newConversation.getConversationId());
-                finalConversation = newConversation;
-            } else {
-                log.info("找到已存在会话，ID: {}", conversation.getConversationId());
-                finalConversation = conversation;
+                log.info("新会话创建成功，ID: {}", conversation.getConversationId());
             }
             
             // 设置会话ID
-            final Long conversationId = finalConversation.getConversationId();
-            message.setConversationId(conversationId);
+            message.setConversationId(conversation.getConversationId());
             
-            log.info("准备保存消息到数据库: conversation_id={}, sender_id={}, receiver_id={}, content={}", 
-                message.getConversationId(), message.getSenderId(), message.getReceiverId(), message.getContent());
+            // 分配消息ID并加入批量写入队列，会话的最后消息和未读数随批量写入一并更新
+            ChatMessage savedMessage = chatMessageWriteService.submit(message);
             
-            // 尝试直接使用SQL插入
-            Long messageId = null;
-            
-            // 提取需要在lambda中使用的所有变量，确保它们是final
-            final Long finalReceiverID = message.getReceiverId();
-            final String finalContent = message.getContent();
-            final Integer finalMessageType = message.getMessageType();
-            final Boolean finalIsRead = message.getIsRead();
-            final Date finalCreateTime = message.getCreateTime();
-            
-            try {
-                // 使用直接SQL插入方法
-                final String sql = "INSERT INTO t_chat_message (conversation_id, sender_id, receiver_id, content, message_type, is_read, create_time) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
-                
-                final KeyHolder keyHolder = new GeneratedKeyHolder();
-                final JdbcTemplate localJdbcTemplate = new JdbcTemplate(dataSource);
-                
-                final int result = localJdbcTemplate.update(
-                    connection -> {
-                        PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                        ps.setLong(1, conversationId);
-                        ps.setLong(2, currentUserId);
-                        ps.setLong(3, finalReceiverID);
-                        ps.setString(4, finalContent);
-                        ps.setInt(5, finalMessageType);
-                        ps.setInt(6, finalIsRead ? 1 : 0);
-                        ps.setTimestamp(7, new java.sql.Timestamp(finalCreateTime.getTime()));
-                        return ps;
-                    },
-                    keyHolder
-                );
-                
-                if (result > 0 && keyHolder.getKey() != null) {
-                    messageId = keyHolder.getKey().longValue();
-                    message.setMessageId(messageId);
-                    log.info("消息直接SQL插入成功，ID: {}", messageId);
-                    
-                    // 更新会话的最后消息
-                    finalConversation.setLastMessage(finalContent);
-                    finalConversation.setLastMessageTime(finalCreateTime);
-                    
-                    // 更新未读消息计数
-                    if (finalConversation.getUserAId().equals(finalReceiverID) || 
-                        finalConversation.getUserBId().equals(finalReceiverID)) {
-                        final Integer currentCount = finalConversation.getUnreadCount() != null ? 
-                                               finalConversation.getUnreadCount() : 0;
-                        finalConversation.setUnreadCount(currentCount + 1);
-                    }
-                    
-                    conversationService.updateConversation(finalConversation);
-                    log.info("会话更新成功");
-                    
-                    // 通过Redis发布消息
-                    if (chatMessageQueueService.publishMessage(message)) {
-                        log.info("消息已发布到Redis: {}", message.getMessageId());
-                    } else {
-                        log.warn("消息发布到Redis失败: {}", message.getMessageId());
-                    }
-                } else {
-                    log.error("消息直接SQL插入失败，尝试使用服务方法");
-                }
-            } catch (Exception e) {
-                log.error("消息直接SQL插入出错: {}", e.getMessage(), e);
-                log.info("尝试使用服务方法保存");
-            }
-            
-            // 如果直接SQL插入失败，使用服务方法
-            if (messageId == null) {
-                log.info("使用服务方法保存消息");
-                messageId = chatMessageService.saveMessage(message);
-                if (messageId != null) {
-                    message.setMessageId(messageId);
-                    
-                    // 通过Redis发布消息
-                    if (chatMessageQueueService.publishMessage(message)) {
-                        log.info("消息已发布到Redis: {}", message.getMessageId());
-                    } else {
-                        log.warn("消息发布到Redis失败: {}", message.getMessageId());
-                    }
-                }
-            }
-            
-            if (messageId == null) {
-                log.error("消息保存失败，无法获取消息ID");
-                return Result.fail("消息保存失败");
-            }
-            
-            // 查询完整消息
-            ChatMessage savedMessage = chatMessageService.getById(messageId);
-            if (savedMessage == null) {
-                savedMessage = message;
+            // 通过Redis发布消息
+            if (chatMessageQueueService.publishMessage(savedMessage)) {
+                log.info("消息已发布到Redis: {}", savedMessage.getMessageId());
+            } else {
+                log.warn("消息发布到Redis失败: {}", savedMessage.getMessageId());
             }
             
             return Result.ok(savedMessage);
@@ -362,11 +282,12 @@ public class ChatController {
             final Long conversationId = finalConversation.getConversationId();
             message.setConversationId(conversationId);
             
-            // 定义SQL语句
-            final String sql = "INSERT INTO t_chat_message (conversation_id, sender_id, receiver_id, content, message_type, is_read, create_time) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            // 定义SQL语句（消息ID与正常发送一致，由雪花ID生成器分配）
+            final String sql = "INSERT INTO t_chat_message (message_id, conversation_id, sender_id, receiver_id, content, message_type, is_read, create_time) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
             
             // 创建参数和JdbcTemplate实例
+            final Long messageId = snowflakeIdGenerator.nextId();
             final String content = message.getContent();
             final Integer messageType = message.getMessageType();
             final Boolean isRead = message.getIsRead();
@@ -374,29 +295,26 @@ public class ChatController {
             final Long receiverId = message.getReceiverId();
             
             final JdbcTemplate localJdbcTemplate = new JdbcTemplate(dataSource);
-            final KeyHolder keyHolder = new GeneratedKeyHolder();
             
             // 执行插入操作
             final int rowsAffected = localJdbcTemplate.update(
                 connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setLong(1, conversationId);
-                    ps.setLong(2, currentUserId);
-                    ps.setLong(3, receiverId);
-                    ps.setString(4, content);
-                    ps.setInt(5, messageType);
-                    ps.setInt(6, isRead ? 1 : 0);
-                    ps.setTimestamp(7, new java.sql.Timestamp(createTime.getTime()));
+                    PreparedStatement ps = connection.prepareStatement(sql);
+                    ps.setLong(1, messageId);
+                    ps.setLong(2, conversationId);
+                    ps.setLong(3, currentUserId);
+                    ps.setLong(4, receiverId);
+                    ps.setString(5, content);
+                    ps.setInt(6, messageType);
+                    ps.setInt(7, isRead ? 1 : 0);
+                    ps.setTimestamp(8, new java.sql.Timestamp(createTime.getTime()));
                     return ps;
-                },
-                keyHolder
+                }
             );
             
             result.put("rowsAffected", rowsAffected);
             
-            final Number key = keyHolder.getKey();
-            if (key != null) {
-                final Long messageId = key.longValue();
+            if (rowsAffected > 0) {
                 result.put("messageId", messageId);
                 
                 // 查询插入后的记录
@@ -422,7 +340,7 @@ public class ChatController {
                 conversationService.updateConversation(finalConversation);
                 result.put("conversationUpdated", true);
             } else {
-                result.put("error", "无法获取生成的ID");
+                result.put("error", "消息未插入");
             }
             
             return Result.ok(result);
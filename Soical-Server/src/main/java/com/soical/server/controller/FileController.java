@@ -1,9 +1,11 @@
 package com.soical.server.controller;
 
 import com.soical.server.common.Result;
+import com.soical.server.service.ImageUploadService;
 import com.soical.server.util.FileUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -15,13 +17,16 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/file")
 public class FileController {
 
+    @Autowired
+    private ImageUploadService imageUploadService;
+
     /**
      * 上传图片
      */
     @ApiOperation("上传图片")
     @PostMapping("/upload/image")
     public Result<String> uploadImage(@RequestParam("file") MultipartFile file) {
-        String imageUrl = FileUtil.uploadImage(file);
+        String imageUrl = imageUploadService.uploadImage(file);
         return Result.success(imageUrl);
     }
 
@@ -2,6 +2,7 @@ package com.soical.server.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.soical.server.common.Result;
+import com.soical.server.dto.CursorPage;
 import com.soical.server.dto.PostDTO;
 import com.soical.server.service.PostService;
 import com.soical.server.util.SecurityUtil;
@@ -123,6 +124,46 @@ public class PostController {
         return Result.success(postList);
     }
 
+    @GetMapping("/list/cursor")
+    @ApiOperation("按游标获取动态列表")
+    public Result<CursorPage<PostDTO>> getPostListByCursor(
+            @ApiParam(value = "游标（首页不传）") @RequestParam(required = false) String cursor,
+            @ApiParam(value = "每页条数", defaultValue = "10") @RequestParam(defaultValue = "10") Integer pageSize) {
+        CursorPage<PostDTO> postList = postService.getPostListByCursor(cursor, pageSize);
+        return Result.success(postList);
+    }
+
+    @GetMapping("/list/community/cursor")
+    @ApiOperation("按游标获取社区动态列表")
+    public Result<CursorPage<PostDTO>> getCommunityPostsByCursor(
+            @ApiParam(value = "游标（首页不传）") @RequestParam(required = false) String cursor,
+            @ApiParam(value = "每页条数", defaultValue = "10") @RequestParam(defaultValue = "10") Integer pageSize) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        CursorPage<PostDTO> postList = postService.getCommunityPostsByCursor(userId, cursor, pageSize);
+        return Result.success(postList);
+    }
+
+    @GetMapping("/list/followed/cursor")
+    @ApiOperation("按游标获取关注用户的动态列表")
+    public Result<CursorPage<PostDTO>> getFollowedPostsByCursor(
+            @ApiParam(value = "游标（首页不传）") @RequestParam(required = false) String cursor,
+            @ApiParam(value = "每页条数", defaultValue = "10") @RequestParam(defaultValue = "10") Integer pageSize) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        CursorPage<PostDTO> postList = postService.getFollowedPostsByCursor(userId, cursor, pageSize);
+        return Result.success(postList);
+    }
+
+    @GetMapping("/list/nearby/cursor")
+    @ApiOperation("按游标获取附近的动态列表")
+    public Result<CursorPage<PostDTO>> getNearbyPostsByCursor(
+            @ApiParam(value = "游标（首页不传）") @RequestParam(required = false) String cursor,
+            @ApiParam(value = "每页条数", defaultValue = "10") @RequestParam(defaultValue = "10") Integer pageSize,
+            @ApiParam(value = "城市") @RequestParam(required = false) String city) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        CursorPage<PostDTO> postList = postService.getNearbyPostsByCursor(userId, city, cursor, pageSize);
+        return Result.success(postList);
+    }
+
     @GetMapping("/list/liked")
     @ApiOperation("获取用户点赞的动态列表")
     public Result<Page<PostDTO>> getLikedPosts(
@@ -1,9 +1,10 @@
 package com.soical.server.controller;
 
 import com.soical.server.common.Result;
-import com.soical.server.util.FileUtil;
+import com.soical.server.service.ImageUploadService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -18,13 +19,16 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/upload")
 public class UploadController {
 
+    @Autowired
+    private ImageUploadService imageUploadService;
+
     /**
      * 上传图片
      */
     @ApiOperation("上传图片")
     @PostMapping("/image")
     public Result<String> uploadImage(@RequestParam("file") MultipartFile file) {
-        String imageUrl = FileUtil.uploadImage(file);
+        String imageUrl = imageUploadService.uploadImage(file);
         return Result.success(imageUrl);
     }
 } 
\ No newline at end of file
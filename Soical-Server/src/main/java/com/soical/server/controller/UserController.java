@@ -5,7 +5,6 @@ import com.soical.server.common.Result;
 import com.soical.server.dto.UserMatchDTO;
 import com.soical.server.dto.UserProfileDTO;
 import com.soical.server.entity.User;
-import com.soical.server.entity.UserMatch;
 import com.soical.server.entity.UserPreference;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.service.UserFollowService;
@@ -28,7 +27,6 @@ import org.springframework.web.multipart.MultipartFile;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -295,82 +293,10 @@ public class UserController {
         try {
             log.info("获取用户同频匹配列表: userId={}, page={}, pageSize={}", userId, page, pageSize);
             
-            // 获取用户的匹配列表
-            List<UserMatch> matches = userMatchService.getUserMatches(userId, null);
-            log.info("查询到匹配记录数: {}", matches.size());
+            // 在SQL中分页，批量加载本页用户并计算相似度
+            Page<UserMatchDTO> resultPage = userMatchService.getFrequencyMatches(userId, page, pageSize);
             
-            // 转换为DTO并分页
-            List<UserMatchDTO> matchDTOs = new ArrayList<>();
-            
-            for (UserMatch match : matches) {
-                // 获取匹配的另一方用户
-                Long matchedUserId = match.getUserAId().equals(userId) 
-                    ? match.getUserBId() : match.getUserAId();
-                
-                User matchedUser = userService.getById(matchedUserId);
-                if (matchedUser == null) {
-                    log.warn("匹配用户不存在: {}", matchedUserId);
-                    continue;
-                }
-                
-                // 获取用户资料
-                UserProfile profile = userProfileService.getProfileByUserId(matchedUserId);
-                
-                // 转换为DTO
-                UserMatchDTO dto = new UserMatchDTO();
-                dto.setMatchId(match.getMatchId());
-                dto.setUserId(matchedUserId);
-                dto.setUsername(matchedUser.getUsername());
-                // 从用户资料中获取昵称，如果没有则使用用户名
-                dto.setNickname(profile != null && profile.getNickname() != null ? 
-                    profile.getNickname() : matchedUser.getUsername());
-                dto.setAvatar(matchedUser.getAvatar());
-                dto.setGender(matchedUser.getGender());
-                
-                // 计算年龄
-                if (matchedUser.getBirthday() != null) {
-                    Calendar birthDay = Calendar.getInstance();
-                    birthDay.setTime(matchedUser.getBirthday());
-                    Calendar now = Calendar.getInstance();
-                    int age = now.get(Calendar.YEAR) - birthDay.get(Calendar.YEAR);
-                    dto.setAge(age);
-                }
-                
-                // 设置资料信息
-                if (profile != null) {
-                    dto.setOccupation(profile.getOccupation());
-                    dto.setLocation(profile.getLocation());
-                    dto.setSelfIntro(profile.getSelfIntro());
-                }
-                
-                // 设置匹配状态
-                dto.setStatus(match.getStatus());
-                dto.setCreateTime(match.getCreateTime());
-                
-                // 计算相似度
-                int similarity = userMatchService.calculateSimilarity(userId, matchedUserId);
-                dto.setSimilarity(similarity);
-                
-                // 判断是否有未读消息 (假设目前没有)
-                dto.setHasUnreadMessage(false);
-                
-                matchDTOs.add(dto);
-            }
-            
-            // 分页处理
-            List<UserMatchDTO> pageResult = matchDTOs.stream()
-                .skip((long) (page - 1) * pageSize)
-                .limit(pageSize)
-                .collect(Collectors.toList());
-                
-            // 创建分页对象
-            Page<UserMatchDTO> resultPage = new Page<>();
-            resultPage.setCurrent(page);
-            resultPage.setSize(pageSize);
-            resultPage.setTotal(matchDTOs.size());
-            resultPage.setRecords(pageResult);
-            
-            log.info("返回匹配结果: 总数={}, 当前页数据={}", matchDTOs.size(), pageResult.size());
+            log.info("返回匹配结果: 总数={}, 当前页数据={}", resultPage.getTotal(), resultPage.getRecords().size());
             return Result.success(resultPage);
         } catch (Exception e) {
             log.error("获取用户同频匹配列表异常", e);
@@ -37,15 +37,16 @@ public class UserMatchController {
             @ApiParam(value = "最大年龄") @RequestParam(required = false) Integer ageMax,
             @ApiParam(value = "位置筛选") @RequestParam(required = false) String location,
             @ApiParam(value = "兴趣标签，多个以逗号分隔") @RequestParam(required = false) String interests,
+            @ApiParam(value = "分页游标，取上一页最后一条的cursor") @RequestParam(required = false) Long cursor,
             @ApiParam(value = "推荐数量，默认10") @RequestParam(required = false, defaultValue = "10") Integer limit) {
         
         Long currentUserId = SecurityUtil.getCurrentUserId();
         
-        log.info("用户 {} 请求推荐列表，条件: gender={}, ageMin={}, ageMax={}, location={}, interests={}, limit={}",
-                currentUserId, gender, ageMin, ageMax, location, interests, limit);
+        log.info("用户 {} 请求推荐列表，条件: gender={}, ageMin={}, ageMax={}, location={}, interests={}, cursor={}, limit={}",
+                currentUserId, gender, ageMin, ageMax, location, interests, cursor, limit);
         
         List<UserRecommendDTO> recommendedUsers = userMatchService.getRecommendedUsers(
-                currentUserId, gender, ageMin, ageMax, location, interests, limit);
+                currentUserId, gender, ageMin, ageMax, location, interests, cursor, limit);
         
         return Result.ok(recommendedUsers);
     }
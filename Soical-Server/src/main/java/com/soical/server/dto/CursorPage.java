@@ -0,0 +1,26 @@
+package com.soical.server.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 按上一页最后一条记录定位下一页，翻页深度不影响查询代价
+ */
+@Data
+@ApiModel("游标分页结果")
+public class CursorPage<T> {
+
+    @ApiModelProperty("当前页数据")
+    private List<T> records = new ArrayList<>();
+
+    @ApiModelProperty("下一页游标，没有更多数据时为空")
+    private String nextCursor;
+
+    @ApiModelProperty("是否还有更多数据")
+    private Boolean hasMore = false;
+}
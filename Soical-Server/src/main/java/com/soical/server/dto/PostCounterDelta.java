@@ -0,0 +1,31 @@
+package com.soical.server.dto;
+
+import lombok.Data;
+
+/**
+ * 动态计数增量
+ * 由计数服务合并后批量写回t_post
+ */
+@Data
+public class PostCounterDelta {
+
+    /**
+     * 动态ID
+     */
+    private Long postId;
+
+    /**
+     * 点赞数增量
+     */
+    private long likeDelta;
+
+    /**
+     * 评论数增量
+     */
+    private long commentDelta;
+
+    /**
+     * 分享数增量
+     */
+    private long shareDelta;
+}
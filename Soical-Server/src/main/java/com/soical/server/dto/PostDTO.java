@@ -39,6 +39,12 @@ public class PostDTO {
     @ApiModelProperty("图片列表")
     private List<String> images;
     
+    @ApiModelProperty("缩略图列表（与图片列表一一对应，未生成时为原图）")
+    private List<String> thumbnails;
+    
+    @ApiModelProperty("中图列表（与图片列表一一对应，未生成时为原图）")
+    private List<String> mediumImages;
+    
     @ApiModelProperty("点赞数")
     private Integer likeCount;
     
@@ -43,6 +43,9 @@ public class UserRecommendDTO {
     @ApiModelProperty("个人相册")
     private List<String> photos;
     
+    @ApiModelProperty("相册缩略图（与个人相册一一对应，未生成时为原图）")
+    private List<String> photoThumbnails;
+    
     @ApiModelProperty("兴趣爱好")
     private String hobbies;
     
@@ -60,4 +63,7 @@ public class UserRecommendDTO {
 
     @ApiModelProperty("推荐类型：collaborative-协同过滤，content-基于内容，popular-热门推荐，basic-基础推荐")
     private String recommendType;
+
+    @ApiModelProperty("分页游标，请求下一页时传入本页最后一条的游标")
+    private Long cursor;
 } 
\ No newline at end of file
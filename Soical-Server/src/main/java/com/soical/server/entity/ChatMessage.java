@@ -16,9 +16,9 @@ import java.util.Date;
 public class ChatMessage {
     
     /**
-     * 消息ID
+     * 消息ID（由雪花ID生成器分配，见SnowflakeIdGenerator）
      */
-    @TableId(value = "message_id", type = IdType.AUTO)
+    @TableId(value = "message_id", type = IdType.INPUT)
     private Long messageId;
     
     /**
@@ -32,6 +32,12 @@ public class Post {
      */
     private String images;
 
+    /**
+     * 图片衍生图（JSON格式：原图URL -> 规格 -> 衍生图URL），由后台生成，不随实体更新
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private String imageVariants;
+
     /**
      * 点赞数
      */
@@ -98,4 +104,22 @@ public class Post {
      */
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private LocalDateTime updateTime;
+
+    /**
+     * 作者用户名（关联查询时填充）
+     */
+    @TableField(exist = false)
+    private String username;
+
+    /**
+     * 作者头像（关联查询时填充）
+     */
+    @TableField(exist = false)
+    private String avatar;
+
+    /**
+     * 作者昵称（关联查询时填充）
+     */
+    @TableField(exist = false)
+    private String nickname;
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.soical.server.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
@@ -111,6 +112,12 @@ public class UserProfile {
     @TableField("photos")
     private String photos;
 
+    /**
+     * 相册衍生图（JSON格式：原图URL -> 规格 -> 衍生图URL），由后台生成，不随实体更新
+     */
+    @TableField(value = "photo_variants", updateStrategy = FieldStrategy.NEVER)
+    private String photoVariants;
+
     /**
      * 创建时间
      */
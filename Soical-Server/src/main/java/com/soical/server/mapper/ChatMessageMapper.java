@@ -44,17 +44,19 @@ public interface ChatMessageMapper extends BaseMapper<ChatMessage> {
     int markMessagesAsRead(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
     
     /**
-     * 获取会话中的消息列表（分页）
+     * 按消息ID倒序查询会话的历史消息
+     * 使用conversation_id索引定位（InnoDB二级索引隐含主键message_id，按其有序），不扫描更早的消息
      * @param conversationId 会话ID
+     * @param beforeMessageId 只查询ID小于该值的消息，为空时从最新消息开始
      * @param limit 限制条数
-     * @param offset 偏移量
      * @return 消息列表
      */
-    @Select("SELECT * FROM t_chat_message WHERE conversation_id = #{conversationId} " +
-            "ORDER BY create_time DESC LIMIT #{limit} OFFSET #{offset}")
-    List<ChatMessage> getMessagesByConversationId(@Param("conversationId") Long conversationId,
-                                               @Param("limit") int limit,
-                                               @Param("offset") int offset);
+    @Select("<script>SELECT * FROM t_chat_message WHERE conversation_id = #{conversationId} " +
+            "<if test='beforeMessageId != null'>AND message_id &lt; #{beforeMessageId} </if>" +
+            "ORDER BY message_id DESC LIMIT #{limit}</script>")
+    List<ChatMessage> selectHistory(@Param("conversationId") Long conversationId,
+                                    @Param("beforeMessageId") Long beforeMessageId,
+                                    @Param("limit") int limit);
     
     /**
      * 获取两个用户之间的消息
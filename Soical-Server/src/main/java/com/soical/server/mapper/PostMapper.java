@@ -2,6 +2,7 @@ package com.soical.server.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.soical.server.dto.PostCounterDelta;
 import com.soical.server.entity.Post;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -9,6 +10,8 @@ import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -64,12 +67,39 @@ public interface PostMapper extends BaseMapper<Post> {
     @Update("UPDATE t_post SET share_count = share_count + 1 WHERE post_id = #{postId}")
     int incrementShareCount(@Param("postId") Long postId);
     
+    /**
+     * 批量写回计数增量，计数不小于0
+     *
+     * @param deltas 计数增量列表
+     * @return 更新行数
+     */
+    int applyCounterDeltas(@Param("deltas") Collection<PostCounterDelta> deltas);
+    
     /**
      * 更新热度评分
      */
     @Update("UPDATE t_post SET hot_score = #{hotScore} WHERE post_id = #{postId}")
     int updateHotScore(@Param("postId") Long postId, @Param("hotScore") Double hotScore);
     
+    /**
+     * 按当前计数批量重算热度评分
+     * 热度评分 = (点赞数 * likeWeight + 评论数 * commentWeight + 分享数 * shareWeight) / (发布小时数 + 2)^gravity
+     *
+     * @param postIds       动态ID列表（可选）
+     * @param since         只重算该时间之后发布的动态（可选）
+     * @param likeWeight    点赞权重
+     * @param commentWeight 评论权重
+     * @param shareWeight   分享权重
+     * @param gravity       时间衰减指数
+     * @return 更新行数
+     */
+    int recomputeHotScores(@Param("postIds") Collection<Long> postIds,
+                           @Param("since") LocalDateTime since,
+                           @Param("likeWeight") int likeWeight,
+                           @Param("commentWeight") int commentWeight,
+                           @Param("shareWeight") int shareWeight,
+                           @Param("gravity") double gravity);
+    
     /**
      * 查询关注用户的动态列表
      *
@@ -96,6 +126,34 @@ public interface PostMapper extends BaseMapper<Post> {
      */
     Page<Post> selectCityPosts(Page<Post> page, @Param("city") String city);
     
+    /**
+     * 按游标查询动态列表（按创建时间、动态ID倒序）
+     *
+     * @param userIds    发布者ID列表（可选）
+     * @param city       城市名称（可选）
+     * @param cursorTime 上一页最后一条动态的创建时间（为空时查询第一页）
+     * @param cursorId   上一页最后一条动态的ID
+     * @param limit      查询条数
+     * @return 动态列表
+     */
+    List<Post> selectPostsByCursor(@Param("userIds") List<Long> userIds,
+                                   @Param("city") String city,
+                                   @Param("cursorTime") LocalDateTime cursorTime,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("limit") int limit);
+    
+    /**
+     * 按动态ID倒序查询指定用户发布的动态ID
+     *
+     * @param userIds      发布者ID列表
+     * @param beforePostId 只查询ID小于该值的动态（可选）
+     * @param limit        查询条数
+     * @return 动态ID列表
+     */
+    List<Long> selectPostIdsByUsers(@Param("userIds") Collection<Long> userIds,
+                                    @Param("beforePostId") Long beforePostId,
+                                    @Param("limit") int limit);
+    
     /**
      * 获取今天新增帖子数
      */
@@ -7,6 +7,7 @@ import com.soical.server.entity.UserFollow;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -56,4 +57,26 @@ public interface UserFollowMapper extends BaseMapper<UserFollow> {
      * @return 关注数量
      */
     Integer countFollowing(@Param("followerId") Long followerId);
+    
+    /**
+     * 按粉丝ID分批查询用户的粉丝ID
+     *
+     * @param followedId     被关注者ID
+     * @param lastFollowerId 上一批最后一个粉丝ID
+     * @param limit          每批数量
+     * @return 粉丝ID列表（升序）
+     */
+    List<Long> selectFollowerIdsAfter(@Param("followedId") Long followedId,
+                                      @Param("lastFollowerId") Long lastFollowerId,
+                                      @Param("limit") int limit);
+    
+    /**
+     * 在给定的用户中筛选出已关注的用户
+     *
+     * @param followerId   关注者ID
+     * @param candidateIds 候选用户ID集合
+     * @return 已关注的用户ID列表
+     */
+    List<Long> selectFollowingIdsAmong(@Param("followerId") Long followerId,
+                                       @Param("candidateIds") Collection<Long> candidateIds);
 } 
\ No newline at end of file
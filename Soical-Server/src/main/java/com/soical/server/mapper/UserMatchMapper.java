@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,18 @@ public interface UserMatchMapper extends BaseMapper<UserMatch> {
      */
     List<UserMatch> selectUserMatches(@Param("userId") Long userId, @Param("status") Integer status);
     
+    /**
+     * 分页查询用户的匹配列表
+     * 
+     * @param userId 用户ID
+     * @param status 状态筛选条件（可选）
+     * @param offset 偏移量
+     * @param limit 数量
+     * @return 匹配列表
+     */
+    List<UserMatch> selectUserMatchesPage(@Param("userId") Long userId, @Param("status") Integer status,
+                                          @Param("offset") long offset, @Param("limit") int limit);
+    
     /**
      * 查询两个用户之间的匹配关系
      *
@@ -56,6 +69,8 @@ public interface UserMatchMapper extends BaseMapper<UserMatch> {
     
     /**
      * 获取用户的推荐列表，根据条件筛选可能匹配的用户
+     * 从startUserId开始按主键顺序读取（随机偏移定位），调用方在主键范围内随机选取起点，
+     * 不足limit条时可从头再取一次补足
      *
      * @param userId 当前用户ID
      * @param gender 性别筛选
@@ -63,6 +78,7 @@ public interface UserMatchMapper extends BaseMapper<UserMatch> {
      * @param ageMax 最大年龄
      * @param location 位置筛选
      * @param interestsList 兴趣标签列表
+     * @param startUserId 随机起点用户ID（可选）
      * @param limit 返回数量限制
      * @return 推荐用户ID列表
      */
@@ -73,6 +89,23 @@ public interface UserMatchMapper extends BaseMapper<UserMatch> {
             @Param("ageMax") Integer ageMax,
             @Param("location") String location,
             @Param("interestsList") List<String> interestsList,
+            @Param("startUserId") Long startUserId,
+            @Param("limit") Integer limit);
+
+    /**
+     * 协同过滤：查询与当前用户的匹配对象有共同匹配的用户，按共现次数降序
+     * 即“匹配过X的用户也匹配了Y”，一次SQL完成统计
+     *
+     * @param userId 当前用户ID
+     * @param gender 性别筛选（可选）
+     * @param excludeUserIds 需要排除的用户ID集合
+     * @param limit 返回数量限制
+     * @return 推荐用户列表，包含用户ID(user_id)和共现次数(co_count)
+     */
+    List<Map<String, Object>> selectCoMatchedUsers(
+            @Param("userId") Long userId,
+            @Param("gender") Integer gender,
+            @Param("excludeUserIds") Collection<Long> excludeUserIds,
             @Param("limit") Integer limit);
 
     /**
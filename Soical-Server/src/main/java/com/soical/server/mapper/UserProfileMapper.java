@@ -3,10 +3,24 @@ package com.soical.server.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.soical.server.entity.UserProfile;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
 /**
  * 用户资料Mapper接口
  */
 @Mapper
 public interface UserProfileMapper extends BaseMapper<UserProfile> {
-} 
\ No newline at end of file
+
+    /**
+     * 写入单张相册照片的衍生图，不影响其他照片的衍生图
+     *
+     * @param userId   用户ID
+     * @param path     JSON路径，如 $."原图URL"
+     * @param variants 衍生图JSON（规格 -> 衍生图URL）
+     * @return 影响行数
+     */
+    @Update("UPDATE t_user_profile SET photo_variants = JSON_SET(COALESCE(photo_variants, JSON_OBJECT()), #{path}, CAST(#{variants} AS JSON)) " +
+            "WHERE user_id = #{userId}")
+    int updatePhotoVariant(@Param("userId") Long userId, @Param("path") String path, @Param("variants") String variants);
+}
@@ -0,0 +1,59 @@
+package com.soical.server.service;
+
+import com.soical.server.entity.ChatMessage;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 会话最近消息缓存服务接口
+ * 每个活跃会话在Redis有序集合中保存最近的若干条消息（按消息ID排序），打开聊天界面时直接读取，不访问数据库
+ */
+public interface ChatMessageCacheService {
+
+    /**
+     * 每个会话缓存的消息数
+     *
+     * @return 消息数
+     */
+    int getCacheSize();
+
+    /**
+     * 获取会话最近的消息，缓存未命中时调用loader加载
+     *
+     * @param conversationId 会话ID
+     * @param loader 加载函数，按消息ID倒序返回最近的{@link #getCacheSize()}条消息
+     * @return 最近的消息，按消息ID倒序
+     */
+    List<ChatMessage> getRecentMessages(Long conversationId, Supplier<List<ChatMessage>> loader);
+
+    /**
+     * 将新发送的消息加入缓存
+     *
+     * @param message 消息
+     */
+    void cacheMessage(ChatMessage message);
+
+    /**
+     * 将缓存中的单条消息标记为已读（在当前事务提交后执行）
+     *
+     * @param conversationId 会话ID
+     * @param messageId 消息ID
+     */
+    void markMessageRead(Long conversationId, Long messageId);
+
+    /**
+     * 将缓存中发送给指定用户的消息标记为已读（在当前事务提交后执行）
+     *
+     * @param conversationId 会话ID
+     * @param receiverId 接收者ID
+     */
+    void markConversationRead(Long conversationId, Long receiverId);
+
+    /**
+     * 使会话的消息缓存失效（在当前事务提交后执行）
+     *
+     * @param conversationId 会话ID
+     */
+    void evict(Long conversationId);
+}
@@ -4,7 +4,7 @@ import com.soical.server.entity.ChatMessage;
 
 /**
  * 聊天消息队列服务接口
- * 用于通过Redis消息队列进行消息发布和订阅
+ * 用于通过Redis消息队列进行消息发布和订阅，每个节点只订阅本节点已连接用户的通道
  */
 public interface ChatMessageQueueService {
     
@@ -21,6 +21,18 @@ public interface ChatMessageQueueService {
      */
     void startMessageSubscription();
     
+    /**
+     * 订阅指定用户的消息通道（用户在本节点建立连接时调用）
+     * @param userId 用户ID
+     */
+    void subscribeUser(Long userId);
+    
+    /**
+     * 取消订阅指定用户的消息通道（用户在本节点的连接关闭时调用）
+     * @param userId 用户ID
+     */
+    void unsubscribeUser(Long userId);
+    
     /**
      * 停止消息订阅
      */
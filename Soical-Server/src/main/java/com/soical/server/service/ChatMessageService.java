@@ -1,5 +1,6 @@
 package com.soical.server.service;
 
+import com.soical.server.dto.CursorPage;
 import com.soical.server.entity.ChatMessage;
 
 import java.util.List;
@@ -9,13 +10,6 @@ import java.util.List;
  */
 public interface ChatMessageService {
     
-    /**
-     * 保存消息
-     * @param message 消息对象
-     * @return 消息ID
-     */
-    Long saveMessage(ChatMessage message);
-    
     /**
      * 根据ID获取消息
      * @param messageId 消息ID
@@ -24,21 +18,30 @@ public interface ChatMessageService {
     ChatMessage getById(Long messageId);
     
     /**
-     * 获取会话的消息列表
+     * 获取会话最近的消息列表（打开聊天界面时使用，优先读取缓存）
      * @param conversationId 会话ID
-     * @return 消息列表
+     * @return 最近的消息列表，按时间倒序
      */
     List<ChatMessage> getMessagesByConversationId(Long conversationId);
     
     /**
-     * 获取两个用户之间的消息
+     * 按游标获取会话的历史消息
+     * @param conversationId 会话ID
+     * @param beforeMessageId 只返回ID小于该值的消息，为空时从最新消息开始
+     * @param size 每页大小
+     * @return 消息分页结果，按时间倒序，下一页游标为本页最早一条消息的ID
+     */
+    CursorPage<ChatMessage> getMessageHistory(Long conversationId, Long beforeMessageId, int size);
+    
+    /**
+     * 按游标获取两个用户之间的消息
      * @param senderId 发送者ID
      * @param receiverId 接收者ID
-     * @param page 页码
+     * @param beforeMessageId 只返回ID小于该值的消息，为空时从最新消息开始
      * @param size 每页大小
-     * @return 消息列表
+     * @return 消息列表，按时间倒序
      */
-    List<ChatMessage> getMessagesBetweenUsers(Long senderId, Long receiverId, int page, int size);
+    List<ChatMessage> getMessagesBetweenUsers(Long senderId, Long receiverId, Long beforeMessageId, int size);
     
     /**
      * 标记消息为已读
@@ -0,0 +1,37 @@
+package com.soical.server.service;
+
+import com.soical.server.entity.ChatMessage;
+
+/**
+ * 聊天消息写入服务接口
+ * 消息先分配ID并写入预写日志，再由后台按批写入数据库，发送方无需等待数据库写入
+ */
+public interface ChatMessageWriteService {
+
+    /**
+     * 提交消息
+     * 分配消息ID、补全默认字段，写入预写日志后加入批量写入队列
+     *
+     * @param message 消息（需已设置会话ID、发送者ID和接收者ID）
+     * @return 补全后的消息
+     */
+    ChatMessage submit(ChatMessage message);
+
+    /**
+     * 记录会话已读标记
+     * 标记前提交、尚未写入数据库的发送给该用户的消息，写入后同样标记为已读，不再累加未读数。
+     * 应在更新数据库中的已读状态之前调用
+     *
+     * @param conversationId 会话ID
+     * @param receiverId 接收者ID
+     */
+    void markConversationRead(Long conversationId, Long receiverId);
+
+    /**
+     * 记录尚未写入数据库的单条消息的已读标记，写入后标记为已读
+     *
+     * @param messageId 消息ID
+     * @return 消息可能仍在等待写入时返回true；ID不属于最近生成的消息时返回false
+     */
+    boolean markMessageRead(Long messageId);
+}
@@ -0,0 +1,54 @@
+package com.soical.server.service;
+
+import java.util.List;
+
+/**
+ * 图片衍生图服务接口
+ * 原图上传后在后台线程生成缩略图和中图，结果写入动态/相册的衍生图JSON，
+ * 读取时按原图URL查找对应规格，未生成时回退为原图
+ */
+public interface ImageDerivativeService {
+
+    /**
+     * 缩略图规格
+     */
+    String THUMBNAIL = "thumb";
+
+    /**
+     * 中图规格
+     */
+    String MEDIUM = "medium";
+
+    /**
+     * 为动态图片生成衍生图（事务提交后异步执行）
+     *
+     * @param postId    动态ID
+     * @param imageUrls 原图URL列表
+     */
+    void generateForPost(Long postId, List<String> imageUrls);
+
+    /**
+     * 为相册照片生成衍生图（事务提交后异步执行）
+     *
+     * @param userId   用户ID
+     * @param photoUrl 原图URL
+     */
+    void generateForProfilePhoto(Long userId, String photoUrl);
+
+    /**
+     * 按规格解析衍生图URL
+     *
+     * @param originals    原图URL列表
+     * @param variantsJson 衍生图JSON（原图URL -> 规格 -> 衍生图URL），可为空
+     * @param variant      规格
+     * @return 与原图一一对应的URL列表，未生成的使用原图
+     */
+    List<String> resolve(List<String> originals, String variantsJson, String variant);
+
+    /**
+     * 删除原图的全部衍生图（原图被清理时调用）
+     *
+     * @param originalUrl 原图URL
+     */
+    void deleteDerivatives(String originalUrl);
+}
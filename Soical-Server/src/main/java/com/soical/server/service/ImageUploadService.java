@@ -0,0 +1,39 @@
+package com.soical.server.service;
+
+import com.soical.server.util.FileUtil.StoredFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * 图片上传服务接口
+ * 多张图片并发上传，应在数据库事务开始前调用，避免事务和连接在上传期间一直占用
+ */
+public interface ImageUploadService {
+
+    /**
+     * 上传单张图片（头像、相册照片、聊天图片等）
+     * 按内容存储的图片都应通过本服务上传，清理无引用图片时依赖上传记录判断是否被再次引用
+     *
+     * @param image 图片文件
+     * @return 图片URL
+     */
+    String uploadImage(MultipartFile image);
+
+    /**
+     * 并发上传图片，任一张失败时抛出异常
+     *
+     * @param images 图片文件列表
+     * @return 存储结果列表，顺序与参数一致
+     */
+    List<StoredFile> uploadImages(List<MultipartFile> images);
+
+    /**
+     * 登记保存失败后可能无人引用的图片
+     * 图片按内容去重存储，同一内容可能被并发的其他上传引用，因此不立即删除，
+     * 由定时任务在宽限期后确认没有被再次上传时再删除（连同衍生图）
+     *
+     * @param storedFiles 存储结果列表
+     */
+    void releaseImages(List<StoredFile> storedFiles);
+}
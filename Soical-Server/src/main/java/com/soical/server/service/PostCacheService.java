@@ -0,0 +1,76 @@
+package com.soical.server.service;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.soical.server.dto.PostDTO;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * 动态缓存服务接口
+ * 本地缓存 + Redis两级缓存，保存与查看者无关的动态详情和动态列表页，
+ * 点赞状态等与用户相关的字段由调用方在读取缓存后填充
+ */
+public interface PostCacheService {
+
+    /**
+     * 推荐动态列表
+     */
+    String FEED_RECOMMENDED = "recommended";
+
+    /**
+     * 同城动态列表
+     */
+    String FEED_CITY = "city";
+
+    /**
+     * 获取动态详情，缓存未命中时调用loader加载
+     *
+     * @param postId 动态ID
+     * @param loader 加载函数
+     * @return 动态详情（副本，可直接修改）
+     */
+    PostDTO getPostDetail(Long postId, Supplier<PostDTO> loader);
+
+    /**
+     * 获取动态列表页，缓存未命中时调用loader加载
+     *
+     * @param feedType 列表类型
+     * @param city 城市（可选）
+     * @param page 页码
+     * @param pageSize 每页条数
+     * @param loader 加载函数
+     * @return 动态列表页（记录为副本，可直接修改）
+     */
+    Page<PostDTO> getFeedPage(String feedType, String city, Integer page, Integer pageSize,
+                              Supplier<Page<PostDTO>> loader);
+
+    /**
+     * 使动态详情缓存失效（在当前事务提交后执行）
+     *
+     * @param postIds 动态ID列表
+     */
+    void evictPosts(Collection<Long> postIds);
+
+    /**
+     * 使已删除或下架的动态详情缓存失效（在当前事务提交后执行）
+     * 失效后短时间内不回填，失效前开始的加载不会把已删除的动态写回缓存
+     *
+     * @param postIds 动态ID列表
+     */
+    void evictRemovedPosts(Collection<Long> postIds);
+
+    /**
+     * 使全部动态列表页缓存失效（在当前事务提交后执行）
+     * 用于删除、下架等需要从所有列表中移除动态的场景
+     */
+    void evictFeeds();
+
+    /**
+     * 使指定城市的同城动态列表页缓存失效（在当前事务提交后执行）
+     * 发布、分享动态时只影响作者所在城市的列表，推荐列表依赖较短的缓存时间更新
+     *
+     * @param city 城市
+     */
+    void evictCityFeed(String city);
+}
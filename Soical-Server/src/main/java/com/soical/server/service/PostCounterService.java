@@ -0,0 +1,40 @@
+package com.soical.server.service;
+
+import com.soical.server.entity.Post;
+
+import java.util.Collection;
+
+/**
+ * 动态计数服务接口
+ * 点赞、评论、分享计数先在内存中累加，定时批量写回t_post，避免热门动态的行锁争用
+ */
+public interface PostCounterService {
+
+    /**
+     * 计数类型
+     */
+    enum CounterType {
+        LIKE, COMMENT, SHARE
+    }
+
+    /**
+     * 累加计数（在当前事务提交后生效）
+     *
+     * @param postId 动态ID
+     * @param type 计数类型
+     * @param delta 增量，可为负数
+     */
+    void increment(Long postId, CounterType type, long delta);
+
+    /**
+     * 将尚未写回的增量合并到动态的计数上
+     *
+     * @param posts 从数据库读取的动态
+     */
+    void applyPending(Collection<Post> posts);
+
+    /**
+     * 将累加的增量批量写回数据库
+     */
+    void flush();
+}
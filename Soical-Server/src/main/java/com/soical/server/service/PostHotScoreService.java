@@ -0,0 +1,50 @@
+package com.soical.server.service;
+
+import java.util.List;
+
+/**
+ * 动态热度服务接口
+ * 互动事件在内存中按动态合并，定时批量重算热度评分，并在Redis中维护热门动态排行
+ */
+public interface PostHotScoreService {
+
+    /**
+     * 标记动态的互动数据已变化，下次刷新时重算热度
+     *
+     * @param postId 动态ID
+     */
+    void markDirty(Long postId);
+
+    /**
+     * 从热门排行中移除动态（动态删除后调用）
+     *
+     * @param postId 动态ID
+     */
+    void remove(Long postId);
+
+    /**
+     * 重算已标记动态的热度并更新排行
+     */
+    void flushDirty();
+
+    /**
+     * 重算最近发布的全部动态的热度（时间衰减）并重建排行
+     */
+    void refreshAll();
+
+    /**
+     * 按热度倒序获取排行中的动态ID
+     *
+     * @param offset 起始位置
+     * @param count 数量
+     * @return 动态ID列表
+     */
+    List<Long> getHotPostIds(long offset, int count);
+
+    /**
+     * 获取排行中的动态数量
+     *
+     * @return 动态数量，排行未构建时返回0
+     */
+    long getRankingSize();
+}
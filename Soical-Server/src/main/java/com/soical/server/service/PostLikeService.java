@@ -3,7 +3,9 @@ package com.soical.server.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.soical.server.entity.PostLike;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 动态点赞服务接口
@@ -44,4 +46,23 @@ public interface PostLikeService extends IService<PostLike> {
      * @return 用户ID列表
      */
     List<Long> getLikeUserIds(Long postId);
+    
+    /**
+     * 批量查询用户已点赞的动态
+     * 优先从Redis中用户的点赞集合判断，未缓存时走一次IN查询
+     *
+     * @param userId  用户ID
+     * @param postIds 动态ID集合
+     * @return 已点赞的动态ID集合
+     */
+    Set<Long> getLikedPostIds(Long userId, Collection<Long> postIds);
+    
+    /**
+     * 点赞状态变化后同步Redis中的点赞集合（在事务提交后执行）
+     *
+     * @param userId 用户ID
+     * @param postId 动态ID
+     * @param liked  是否已点赞
+     */
+    void updateLikedCache(Long userId, Long postId, boolean liked);
 } 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.soical.server.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.soical.server.dto.CursorPage;
 import com.soical.server.dto.PostDTO;
 import com.soical.server.entity.Post;
 import org.springframework.web.multipart.MultipartFile;
@@ -155,6 +156,46 @@ public interface PostService extends IService<Post> {
      */
     Page<PostDTO> getFollowedPosts(Long userId, Integer page, Integer pageSize);
     
+    /**
+     * 按游标获取动态列表
+     *
+     * @param cursor   上一页返回的游标（为空时获取第一页）
+     * @param pageSize 每页条数
+     * @return 动态列表
+     */
+    CursorPage<PostDTO> getPostListByCursor(String cursor, Integer pageSize);
+    
+    /**
+     * 按游标获取社区动态列表
+     *
+     * @param userId   当前用户ID
+     * @param cursor   上一页返回的游标（为空时获取第一页）
+     * @param pageSize 每页条数
+     * @return 社区动态列表
+     */
+    CursorPage<PostDTO> getCommunityPostsByCursor(Long userId, String cursor, Integer pageSize);
+    
+    /**
+     * 按游标获取附近动态
+     *
+     * @param userId   当前用户ID
+     * @param city     城市名称 (若为null，则使用用户资料中的城市)
+     * @param cursor   上一页返回的游标（为空时获取第一页）
+     * @param pageSize 每页条数
+     * @return 附近动态列表
+     */
+    CursorPage<PostDTO> getNearbyPostsByCursor(Long userId, String city, String cursor, Integer pageSize);
+    
+    /**
+     * 按游标获取关注用户的动态
+     *
+     * @param userId   当前用户ID
+     * @param cursor   上一页返回的游标（为空时获取第一页）
+     * @param pageSize 每页条数
+     * @return 关注用户的动态列表
+     */
+    CursorPage<PostDTO> getFollowedPostsByCursor(Long userId, String cursor, Integer pageSize);
+    
     /**
      * 点赞动态
      *
@@ -0,0 +1,44 @@
+package com.soical.server.service;
+
+import java.util.List;
+
+/**
+ * 关注动态时间线服务接口
+ * 发布动态时推送到粉丝的时间线（写扩散），粉丝数超过阈值的作者改为读取时拉取
+ */
+public interface PostTimelineService {
+
+    /**
+     * 动态发布后推送到粉丝的时间线（在事务提交后异步执行）
+     *
+     * @param authorId 作者ID
+     * @param postId 动态ID
+     */
+    void publish(Long authorId, Long postId);
+
+    /**
+     * 使用户的时间线失效，下次读取时重建
+     * 在事务中调用时于提交后删除；不在事务中时立即删除，因此须在关注关系写入之后调用
+     *
+     * @param userId 用户ID
+     */
+    void invalidate(Long userId);
+
+    /**
+     * 获取关注动态ID，按动态ID倒序
+     *
+     * @param userId 用户ID
+     * @param beforePostId 只返回ID小于该值的动态（为空时从最新开始）
+     * @param count 数量
+     * @return 动态ID列表
+     */
+    List<Long> getTimelinePostIds(Long userId, Long beforePostId, int count);
+
+    /**
+     * 统计时间线中的动态数量（不含拉取的大V动态）
+     *
+     * @param userId 用户ID
+     * @return 动态数量
+     */
+    long countTimeline(Long userId);
+}
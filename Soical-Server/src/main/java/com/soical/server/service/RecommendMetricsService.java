@@ -0,0 +1,48 @@
+package com.soical.server.service;
+
+import java.util.Map;
+
+/**
+ * 推荐策略指标服务接口
+ * 统计各推荐策略的调用次数、耗时、命中数和超时/失败次数，用于调整策略权重
+ */
+public interface RecommendMetricsService {
+
+    /**
+     * 记录一次策略执行完成
+     *
+     * @param strategy 策略名称
+     * @param costMillis 耗时（毫秒）
+     * @param hitCount 返回的推荐数量
+     */
+    void recordSuccess(String strategy, long costMillis, int hitCount);
+
+    /**
+     * 记录一次策略执行失败（异常或线程池拒绝）
+     *
+     * @param strategy 策略名称
+     */
+    void recordFailure(String strategy);
+
+    /**
+     * 记录一次策略等待超时
+     *
+     * @param strategy 策略名称
+     */
+    void recordTimeout(String strategy);
+
+    /**
+     * 记录一次策略结果进入最终推荐列表的数量
+     *
+     * @param strategy 策略名称
+     * @param count 进入最终列表的数量
+     */
+    void recordSelected(String strategy, int count);
+
+    /**
+     * 获取各策略的指标快照
+     *
+     * @return 策略名称到指标的映射
+     */
+    Map<String, Map<String, Object>> getStrategyMetrics();
+}
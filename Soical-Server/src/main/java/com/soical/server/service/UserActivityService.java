@@ -0,0 +1,78 @@
+package com.soical.server.service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 用户活跃度服务接口
+ * 发帖、评论、点赞、登录、发消息等行为发生时增量累计计数，按最近N天的计数计算活跃度
+ */
+public interface UserActivityService {
+
+    /**
+     * 记录一次用户行为
+     *
+     * @param userId 用户ID
+     * @param type 行为类型
+     */
+    void record(Long userId, ActivityType type);
+
+    /**
+     * 获取用户活跃度分数 (0-10)
+     *
+     * @param userId 用户ID
+     * @return 活跃度分数
+     */
+    int getActivityScore(Long userId);
+
+    /**
+     * 批量获取用户活跃度分数 (0-10)
+     *
+     * @param userIds 用户ID集合
+     * @return 用户ID到活跃度分数的映射
+     */
+    Map<Long, Integer> getActivityScores(Collection<Long> userIds);
+
+    /**
+     * 获取用户最后活跃时间
+     *
+     * @param userId 用户ID
+     * @return 最后活跃时间，未知时返回null
+     */
+    Date getLastActiveTime(Long userId);
+
+    /**
+     * 用户行为类型
+     */
+    enum ActivityType {
+        POST("post", 3),
+        COMMENT("comment", 2),
+        LIKE("like", 1),
+        LOGIN("login", 1),
+        MESSAGE("message", 1);
+
+        /**
+         * 计数字段名
+         */
+        private final String field;
+
+        /**
+         * 计算活跃度时的权重
+         */
+        private final int weight;
+
+        ActivityType(String field, int weight) {
+            this.field = field;
+            this.weight = weight;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+}
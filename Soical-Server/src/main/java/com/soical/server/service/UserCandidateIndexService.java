@@ -0,0 +1,122 @@
+package com.soical.server.service;
+
+import com.soical.server.entity.User;
+import com.soical.server.entity.UserProfile;
+import com.soical.server.util.ProfileFeatureVector;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 推荐候选用户索引服务接口
+ * 常驻内存，按性别、省份、年龄段、学历分区，供基于内容的推荐直接在内存中筛选打分；
+ * 每个实例各有一份，变更通过Redis广播同步
+ */
+public interface UserCandidateIndexService {
+
+    /**
+     * 全量重建索引
+     */
+    void rebuild();
+
+    /**
+     * 刷新单个用户的索引项（用户或资料变更后调用）
+     * 在当前事务提交后执行，并通知其他实例按数据库状态刷新
+     *
+     * @param userId 用户ID
+     */
+    void refresh(Long userId);
+
+    /**
+     * 移除单个用户的索引项
+     * 在当前事务提交后执行，并通知其他实例按数据库状态刷新
+     *
+     * @param userId 用户ID
+     */
+    void remove(Long userId);
+
+    /**
+     * 获取单个用户的索引项
+     *
+     * @param userId 用户ID
+     * @return 索引项，不存在时返回null
+     */
+    Candidate getCandidate(Long userId);
+
+    /**
+     * 按条件筛选候选用户
+     *
+     * @param gender 性别（为空或0时不限）
+     * @param ageMin 最小年龄（可选）
+     * @param ageMax 最大年龄（可选）
+     * @param excludeUserIds 需要排除的用户ID集合
+     * @return 候选用户列表
+     */
+    List<Candidate> findCandidates(Integer gender, Integer ageMin, Integer ageMax, Set<Long> excludeUserIds);
+
+    /**
+     * 随机抽取候选用户ID
+     *
+     * @param gender 性别（为空或0时不限）
+     * @param excludeUserIds 需要排除的用户ID集合
+     * @param count 抽取数量
+     * @return 用户ID列表，数量不超过count
+     */
+    List<Long> sampleCandidateIds(Integer gender, Set<Long> excludeUserIds, int count);
+
+    /**
+     * 获取索引中的用户数量
+     *
+     * @return 用户数量
+     */
+    int size();
+
+    /**
+     * 候选用户索引项
+     * 保存推荐打分与DTO组装所需的数据，特征向量与省份在写入时预先计算
+     */
+    @Data
+    class Candidate {
+
+        /**
+         * 用户ID
+         */
+        private Long userId;
+
+        /**
+         * 用户基本信息（不含密码）
+         */
+        private User user;
+
+        /**
+         * 用户资料
+         */
+        private UserProfile profile;
+
+        /**
+         * 性别
+         */
+        private Integer gender;
+
+        /**
+         * 出生年份，未知为null
+         */
+        private Integer birthYear;
+
+        /**
+         * 省份（从所在地解析）
+         */
+        private String province;
+
+        /**
+         * 学历
+         */
+        private Integer education;
+
+        /**
+         * 资料特征向量，用于相似度计算
+         */
+        private ProfileFeatureVector features;
+    }
+}
@@ -1,6 +1,8 @@
 package com.soical.server.service;
 
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.soical.server.dto.UserMatchDTO;
 import com.soical.server.dto.UserRecommendDTO;
 import com.soical.server.entity.UserMatch;
 
@@ -13,17 +15,19 @@ public interface UserMatchService extends IService<UserMatch> {
 
     /**
      * 获取推荐的用户
+     * 每天为用户生成一份排好序的推荐卡组，后续分页直接从卡组读取
      * @param userId 当前用户ID
      * @param gender 性别偏好
      * @param ageMin 最小年龄
      * @param ageMax 最大年龄
      * @param location 位置
      * @param interests 兴趣标签，多个以逗号分隔
+     * @param cursor 分页游标，为空时从卡组开头读取
      * @param limit 限制返回数量
      * @return 推荐用户列表
      */
     List<UserRecommendDTO> getRecommendedUsers(Long userId, Integer gender, Integer ageMin, Integer ageMax, 
-                                              String location, String interests, Integer limit);
+                                              String location, String interests, Long cursor, Integer limit);
 
     /**
      * 喜欢用户
@@ -87,6 +91,16 @@ public interface UserMatchService extends IService<UserMatch> {
      */
     int calculateSimilarity(Long userAId, Long userBId);
 
+    /**
+     * 分页获取用户的同频匹配列表（含相似度）
+     * 
+     * @param userId 用户ID
+     * @param page 页码
+     * @param pageSize 每页数量
+     * @return 匹配用户分页列表
+     */
+    Page<UserMatchDTO> getFrequencyMatches(Long userId, Integer page, Integer pageSize);
+
     /**
      * 获取当前用户喜欢的用户列表
      */
@@ -1,6 +1,9 @@
 package com.soical.server.service;
 
 import com.soical.server.dto.UserRecommendDTO;
+import com.soical.server.entity.User;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -49,4 +52,22 @@ public interface UserRecommendationService {
      */
     List<UserRecommendDTO> getPopularUserRecommendations(
             Long userId, Integer gender, Set<Long> excludeUserIds, Integer limit);
-} 
\ No newline at end of file
+
+    /**
+     * 批量组装推荐DTO
+     * 用户与资料各一次IN查询，返回顺序与传入ID顺序一致，不存在的用户会被跳过
+     *
+     * @param userIds 用户ID集合
+     * @return 推荐用户列表
+     */
+    List<UserRecommendDTO> assembleRecommendDTOsByIds(Collection<Long> userIds);
+
+    /**
+     * 批量组装推荐DTO
+     * 用户信息已加载，只需一次IN查询获取资料
+     *
+     * @param users 用户列表
+     * @return 推荐用户列表，顺序与传入顺序一致
+     */
+    List<UserRecommendDTO> assembleRecommendDTOs(List<User> users);
+}
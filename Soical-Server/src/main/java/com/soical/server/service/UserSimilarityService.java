@@ -0,0 +1,30 @@
+package com.soical.server.service;
+
+import java.util.Map;
+
+/**
+ * 用户协同过滤相似度服务接口
+ * 离线物化每个用户的协同过滤候选列表（Top-K），在线推荐直接读取
+ */
+public interface UserSimilarityService {
+
+    /**
+     * 全量重建所有用户的候选列表（定时任务）
+     */
+    void rebuildAll();
+
+    /**
+     * 增量刷新指定用户的候选列表（在当前事务提交后执行）
+     *
+     * @param userIds 用户ID
+     */
+    void refreshUsers(Long... userIds);
+
+    /**
+     * 获取用户的协同过滤候选列表
+     *
+     * @param userId 用户ID
+     * @return 候选用户ID到共现次数的映射，按共现次数降序；没有候选时返回空映射，尚未物化时返回null
+     */
+    Map<Long, Integer> getTopCandidates(Long userId);
+}
@@ -13,6 +13,8 @@ import com.soical.server.mapper.PostCommentMapper;
 import com.soical.server.mapper.PostMapper;
 import com.soical.server.mapper.ReportMapper;
 import com.soical.server.service.AdminContentService;
+import com.soical.server.service.PostCacheService;
+import com.soical.server.service.PostHotScoreService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -20,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.Date;
 
 /**
@@ -35,6 +38,8 @@ public class AdminContentServiceImpl implements AdminContentService {
     private final PostCommentMapper postCommentMapper;
     private final ReportMapper reportMapper;
     private final JdbcTemplate jdbcTemplate;
+    private final PostCacheService postCacheService;
+    private final PostHotScoreService postHotScoreService;
 
     @Override
     public Page<Post> getPostList(Integer page, Integer pageSize, String keyword, Integer status, String sortBy, String sortOrder) {
@@ -106,6 +111,7 @@ public class AdminContentServiceImpl implements AdminContentService {
             post.setReviewReason(reason);
             post.setReviewTime(LocalDateTime.now());
             postMapper.updateById(post);
+            onPostChanged(postId, status);
         }
     }
 
@@ -131,6 +137,24 @@ public class AdminContentServiceImpl implements AdminContentService {
         
         // 最后删除帖子
         postMapper.deleteById(postId);
+        onPostChanged(postId, null);
+    }
+    
+    /**
+     * 动态状态变化后，清理缓存和热门排行
+     *
+     * @param postId 动态ID
+     * @param status 新状态，删除时为空
+     */
+    private void onPostChanged(Long postId, Integer status) {
+        if (status == null || status != 1) {
+            postHotScoreService.remove(postId);
+            postCacheService.evictRemovedPosts(Collections.singletonList(postId));
+        } else {
+            postHotScoreService.markDirty(postId);
+            postCacheService.evictPosts(Collections.singletonList(postId));
+        }
+        postCacheService.evictFeeds();
     }
 
     @Override
@@ -250,6 +274,7 @@ public class AdminContentServiceImpl implements AdminContentService {
                     if (post != null) {
                         post.setStatus(2); // 假设状态2表示违规被下架
                         postMapper.updateById(post);
+                        onPostChanged(post.getPostId(), 2);
                     }
                 } else if (report.getReportType() == 2) { // 评论
                     Comment comment = commentMapper.selectById(report.getTargetId());
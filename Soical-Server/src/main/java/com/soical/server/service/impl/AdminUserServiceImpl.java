@@ -15,6 +15,7 @@ import com.soical.server.mapper.UserMapper;
 import com.soical.server.mapper.UserMatchMapper;
 import com.soical.server.mapper.UserProfileMapper;
 import com.soical.server.service.AdminUserService;
+import com.soical.server.service.UserCandidateIndexService;
 import com.soical.server.util.SecurityUtil;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -44,6 +45,7 @@ public class AdminUserServiceImpl implements AdminUserService {
     private final UserFollowMapper userFollowMapper;
     private final UserMatchMapper userMatchMapper;
     private final PasswordEncoder passwordEncoder;
+    private final UserCandidateIndexService candidateIndexService;
     
     @Override
     public Page<UserDetailDTO> getUserList(Integer page, Integer pageSize, String keyword, Integer status, String sortBy, String sortOrder) {
@@ -228,7 +230,11 @@ public class AdminUserServiceImpl implements AdminUserService {
         updateWrapper.eq(User::getUserId, userId)
                 .set(User::getStatus, status);
         
-        return userMapper.update(null, updateWrapper) > 0;
+        boolean updated = userMapper.update(null, updateWrapper) > 0;
+        
+        // 同步推荐候选索引，禁用的用户不再被推荐
+        candidateIndexService.refresh(userId);
+        return updated;
     }
     
     @Override
@@ -0,0 +1,308 @@
+package com.soical.server.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soical.server.entity.ChatMessage;
+import com.soical.server.service.ChatMessageCacheService;
+import com.soical.server.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 会话最近消息缓存服务实现类
+ * 键为 chat:recent:messages:{conversationId}，有序集合以消息ID为分数，发送时写入并裁剪到固定长度，
+ * 消息乱序到达时读取顺序仍按消息ID。
+ * 集合达到缓存长度，或带有完整标记（会话全部消息都已加载）时才视为命中；
+ * 否则从数据库加载并与集合中已有的消息（可能尚未写入数据库）合并后回填。
+ * 已读状态在原位更新，同时递增版本号 chat:recent:version:{conversationId}，
+ * 使更新前开始的回填放弃写入，避免用数据库中的旧状态覆盖
+ */
+@Slf4j
+@Service
+public class ChatMessageCacheServiceImpl implements ChatMessageCacheService {
+
+    private static final String KEY_PREFIX = "chat:recent:messages:";
+
+    private static final String VERSION_KEY_PREFIX = "chat:recent:version:";
+
+    /**
+     * 完整标记，分数为0（排在所有消息之后），表示会话的消息已全部在集合中
+     */
+    private static final String COMPLETE_MARKER = "-";
+
+    /**
+     * 原位更新已读状态时与并发写入冲突的最大重试次数，仍失败时删除缓存
+     */
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    @Value("${chat.message.cache.size:50}")
+    private int cacheSize;
+
+    @Value("${chat.message.cache.ttl-hours:24}")
+    private long ttlHours;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    @Override
+    public List<ChatMessage> getRecentMessages(Long conversationId, Supplier<List<ChatMessage>> loader) {
+        String key = KEY_PREFIX + conversationId;
+        try {
+            Set<String> cached = stringRedisTemplate.opsForZSet().reverseRange(key, 0, -1);
+            if (cached != null && isComplete(cached)) {
+                return parse(cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取会话消息缓存失败: conversationId={}", conversationId, e);
+            return loader.get();
+        }
+
+        AtomicReference<List<ChatMessage>> loaded = new AtomicReference<>();
+        try {
+            return fill(conversationId, loader, loaded);
+        } catch (Exception e) {
+            log.warn("回填会话消息缓存失败: conversationId={}", conversationId, e);
+            return loaded.get() != null ? loaded.get() : loader.get();
+        }
+    }
+
+    @Override
+    public void cacheMessage(ChatMessage message) {
+        if (message == null || message.getConversationId() == null || message.getMessageId() == null) {
+            return;
+        }
+        try {
+            byte[] rawKey = toBytes(KEY_PREFIX + message.getConversationId());
+            byte[] value = toBytes(objectMapper.writeValueAsString(message));
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zSetCommands().zAdd(rawKey, message.getMessageId().doubleValue(), value);
+                // 只保留消息ID最大的若干条（完整标记分数最低，消息足够多时一并移除）
+                connection.zSetCommands().zRemRange(rawKey, 0, -(cacheSize + 1));
+                connection.keyCommands().expire(rawKey, TimeUnit.HOURS.toSeconds(ttlHours));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入会话消息缓存失败: messageId={}", message.getMessageId(), e);
+        }
+    }
+
+    @Override
+    public void markMessageRead(Long conversationId, Long messageId) {
+        if (conversationId == null || messageId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> markRead(conversationId, message -> messageId.equals(message.getMessageId())));
+    }
+
+    @Override
+    public void markConversationRead(Long conversationId, Long receiverId) {
+        if (conversationId == null || receiverId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> markRead(conversationId, message -> receiverId.equals(message.getReceiverId())));
+    }
+
+    @Override
+    public void evict(Long conversationId) {
+        if (conversationId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                bumpVersion(conversationId);
+                stringRedisTemplate.delete(KEY_PREFIX + conversationId);
+            } catch (Exception e) {
+                log.warn("会话消息缓存失效失败: conversationId={}", conversationId, e);
+            }
+        });
+    }
+
+    /**
+     * 将缓存中符合条件的未读消息原位改为已读
+     * 与并发写入冲突时重试，多次冲突或出错时删除缓存，下次读取重新加载
+     */
+    private void markRead(Long conversationId, Predicate<ChatMessage> filter) {
+        String key = KEY_PREFIX + conversationId;
+        try {
+            bumpVersion(conversationId);
+            for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+                if (Boolean.TRUE.equals(stringRedisTemplate.execute(new SessionCallback<Boolean>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Boolean execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        ops.watch(key);
+
+                        Map<Double, String> updates = new LinkedHashMap<>();
+                        Set<ZSetOperations.TypedTuple<String>> entries = ops.opsForZSet().rangeWithScores(key, 0, -1);
+                        if (entries != null) {
+                            for (ZSetOperations.TypedTuple<String> entry : entries) {
+                                ChatMessage message = parseEntry(entry.getValue());
+                                if (message != null && !Boolean.TRUE.equals(message.getIsRead()) && filter.test(message)) {
+                                    message.setIsRead(true);
+                                    updates.put(entry.getScore(), serialize(message));
+                                }
+                            }
+                        }
+                        if (updates.isEmpty()) {
+                            ops.unwatch();
+                            return true;
+                        }
+
+                        ops.multi();
+                        updates.forEach((score, value) -> {
+                            ops.opsForZSet().removeRangeByScore(key, score, score);
+                            ops.opsForZSet().add(key, value, score);
+                        });
+                        List<Object> results = ops.exec();
+                        return results != null && !results.isEmpty();
+                    }
+                }))) {
+                    return;
+                }
+            }
+            stringRedisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("更新会话消息缓存已读状态失败: conversationId={}", conversationId, e);
+            stringRedisTemplate.delete(key);
+        }
+    }
+
+    /**
+     * 合并数据库加载的消息与集合中已有的消息后回填
+     * 先WATCH集合和版本号再加载，加载后集合被写入或已读状态被更新时放弃回填，下次读取重新加载
+     */
+    private List<ChatMessage> fill(Long conversationId, Supplier<List<ChatMessage>> loader,
+                                   AtomicReference<List<ChatMessage>> loaded) {
+        String key = KEY_PREFIX + conversationId;
+        String versionKey = VERSION_KEY_PREFIX + conversationId;
+        return stringRedisTemplate.execute(new SessionCallback<List<ChatMessage>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<ChatMessage> execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.watch(Arrays.asList(key, versionKey));
+
+                List<ChatMessage> merged;
+                Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+                try {
+                    List<ChatMessage> cached = parse(ops.opsForZSet().reverseRange(key, 0, -1));
+                    loaded.set(loader.get());
+                    merged = merge(cached, loaded.get());
+                    for (ChatMessage message : merged) {
+                        tuples.add(new DefaultTypedTuple<>(serialize(message), message.getMessageId().doubleValue()));
+                    }
+                } catch (RuntimeException e) {
+                    ops.unwatch();
+                    throw e;
+                }
+                if (merged.size() < cacheSize) {
+                    tuples.add(new DefaultTypedTuple<>(COMPLETE_MARKER, 0D));
+                }
+
+                ops.multi();
+                ops.delete(key);
+                if (!tuples.isEmpty()) {
+                    ops.opsForZSet().add(key, tuples);
+                }
+                ops.expire(key, ttlHours, TimeUnit.HOURS);
+                ops.exec();
+                return merged;
+            }
+        });
+    }
+
+    /**
+     * 按消息ID去重并倒序，以数据库中的为准，保留缓存长度
+     */
+    private List<ChatMessage> merge(List<ChatMessage> cached, List<ChatMessage> loaded) {
+        Map<Long, ChatMessage> messages = new TreeMap<>(Comparator.reverseOrder());
+        cached.forEach(message -> messages.put(message.getMessageId(), message));
+        if (loaded != null) {
+            loaded.forEach(message -> messages.put(message.getMessageId(), message));
+        }
+        List<ChatMessage> result = new ArrayList<>(messages.values());
+        return result.size() > cacheSize ? new ArrayList<>(result.subList(0, cacheSize)) : result;
+    }
+
+    private boolean isComplete(Set<String> cached) {
+        return cached.size() >= cacheSize || cached.contains(COMPLETE_MARKER);
+    }
+
+    /**
+     * 解析按消息ID倒序读取的集合成员，跳过完整标记
+     */
+    private List<ChatMessage> parse(Set<String> cached) {
+        if (cached == null || cached.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<ChatMessage> messages = new ArrayList<>(cached.size());
+        Set<Long> seen = new HashSet<>();
+        for (String value : cached) {
+            if (COMPLETE_MARKER.equals(value) || messages.size() >= cacheSize) {
+                continue;
+            }
+            ChatMessage message = parseEntry(value);
+            if (message != null && seen.add(message.getMessageId())) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private ChatMessage parseEntry(String value) {
+        if (value == null || COMPLETE_MARKER.equals(value)) {
+            return null;
+        }
+        try {
+            ChatMessage message = objectMapper.readValue(value, ChatMessage.class);
+            return message.getMessageId() != null ? message : null;
+        } catch (Exception e) {
+            log.warn("解析会话消息缓存失败: {}", value, e);
+            return null;
+        }
+    }
+
+    private String serialize(ChatMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (Exception e) {
+            throw new IllegalStateException("序列化聊天消息失败: messageId=" + message.getMessageId(), e);
+        }
+    }
+
+    /**
+     * 递增会话的缓存版本号，使正在进行的回填放弃写入
+     */
+    private void bumpVersion(Long conversationId) {
+        String versionKey = VERSION_KEY_PREFIX + conversationId;
+        stringRedisTemplate.opsForValue().increment(versionKey);
+        stringRedisTemplate.expire(versionKey, ttlHours, TimeUnit.HOURS);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
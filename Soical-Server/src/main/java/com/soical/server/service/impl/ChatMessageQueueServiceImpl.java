@@ -5,12 +5,15 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.soical.server.entity.ChatMessage;
 import com.soical.server.service.ChatMessageQueueService;
+import com.soical.server.util.RecentIdCache;
 import com.soical.server.websocket.ChatWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
@@ -28,10 +31,14 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * 聊天消息队列服务实现类
  * 使用Redis实现消息的发布和订阅功能
+ * 按用户通道订阅：用户连接到本节点时SUBSCRIBE其通道，断开时UNSUBSCRIBE，
+ * 节点只接收和反序列化发给本地连接用户的消息；
+ * 发布即丢弃，接收者重连期间的消息不会实时推送，需要可靠投递时使用Stream模式
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.queue.mode", havingValue = "pubsub", matchIfMissing = true)
 public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
 
     private final RedisTemplate<String, Object> redisTemplate;
@@ -42,11 +49,21 @@ public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
     // Redis通道前缀
     private static final String CHAT_CHANNEL_PREFIX = "soical:chat:user:";
     
+    // 本节点已订阅通道的用户
+    private final Set<Long> subscribedUsers = ConcurrentHashMap.newKeySet();
+    
+    // 所有用户通道共用的消息监听器
+    private ChatMessageListener chatMessageListener;
+    
+    // 本节点去重保留的最近消息ID数
+    @Value("${chat.queue.dedup-size:10000}")
+    private int dedupSize;
+    
     @PostConstruct
     @Override
     public void initializeSubscriptions() {
         log.info("初始化Redis消息订阅...");
-        startMessageSubscription();
+        chatMessageListener = new ChatMessageListener(objectMapper, chatWebSocketHandler, new RecentIdCache(dedupSize));
         log.info("Redis消息订阅已初始化");
     }
     
@@ -73,19 +90,45 @@ public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
     
     @Override
     public void startMessageSubscription() {
-        log.info("启动Redis消息订阅，订阅通道模式: {}", CHAT_CHANNEL_PREFIX + "*");
-        
-        // 创建消息监听器并添加到容器
-        ChatMessageListener chatMessageListener = new ChatMessageListener(objectMapper, chatWebSocketHandler);
-        redisMessageListenerContainer.addMessageListener(chatMessageListener, new PatternTopic(CHAT_CHANNEL_PREFIX + "*"));
-        
-        log.info("Redis消息订阅已成功启动");
+        // 补订阅启动期间已经连接的用户
+        Set<Long> connectedUserIds = chatWebSocketHandler.getConnectedUserIds();
+        connectedUserIds.forEach(this::subscribeUser);
+        log.info("Redis消息订阅已启动，已订阅用户通道数: {}", subscribedUsers.size());
+    }
+    
+    @Override
+    public synchronized void subscribeUser(Long userId) {
+        if (userId == null || !subscribedUsers.add(userId)) {
+            return;
+        }
+        try {
+            redisMessageListenerContainer.addMessageListener(chatMessageListener, new ChannelTopic(createChannelForUser(userId)));
+            log.debug("已订阅用户消息通道: {}", userId);
+        } catch (Exception e) {
+            subscribedUsers.remove(userId);
+            log.error("订阅用户消息通道失败: {}", userId, e);
+        }
+    }
+    
+    @Override
+    public synchronized void unsubscribeUser(Long userId) {
+        // 用户可能已用新会话重新连接，此时保留订阅
+        if (userId == null || chatWebSocketHandler.isUserConnected(userId) || !subscribedUsers.remove(userId)) {
+            return;
+        }
+        try {
+            redisMessageListenerContainer.removeMessageListener(chatMessageListener, new ChannelTopic(createChannelForUser(userId)));
+            log.debug("已取消订阅用户消息通道: {}", userId);
+        } catch (Exception e) {
+            log.warn("取消订阅用户消息通道失败: {}", userId, e);
+        }
     }
     
     @Override
     public void stopMessageSubscription() {
         log.info("停止Redis消息订阅");
-        // 这里可以实现停止订阅的逻辑，如果需要的话
+        redisMessageListenerContainer.removeMessageListener(chatMessageListener);
+        subscribedUsers.clear();
     }
     
     @Override
@@ -108,12 +151,14 @@ public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
         private final ChatWebSocketHandler chatWebSocketHandler;
         private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ChatMessageListener.class);
         
-        // 用于记录正在处理的消息，避免重复处理
-        private final Set<String> processingMessages = ConcurrentHashMap.newKeySet();
+        // 最近已转发的消息ID，同一条消息重复到达时只转发一次
+        private final RecentIdCache deliveredMessageIds;
         
-        public ChatMessageListener(ObjectMapper objectMapper, ChatWebSocketHandler chatWebSocketHandler) {
+        public ChatMessageListener(ObjectMapper objectMapper, ChatWebSocketHandler chatWebSocketHandler,
+                                   RecentIdCache deliveredMessageIds) {
             this.objectMapper = objectMapper;
             this.chatWebSocketHandler = chatWebSocketHandler;
+            this.deliveredMessageIds = deliveredMessageIds;
         }
         
         @Override
@@ -122,18 +167,15 @@ public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
             byte[] body = message.getBody();
             String channel = new String(message.getChannel());
             
-            // 转换为字符串
-            String messageString = new String(body);
-            
-            // 使用消息内容的哈希值作为消息ID，检查是否已在处理中
-            String messageId = String.valueOf(messageString.hashCode());
-            
-            // 如果消息已在处理中，则忽略
-            if (!processingMessages.add(messageId)) {
-                log.info("消息已在处理中，跳过: {}", messageId);
+            // 取消订阅前可能仍会收到少量消息，接收者已不在本节点时直接忽略
+            if (!isReceiverConnected(channel)) {
+                log.debug("接收者未连接到本节点，跳过: {}", channel);
                 return;
             }
             
+            // 转换为字符串
+            String messageString = new String(body);
+            
             try {
                 log.info("收到Redis消息，通道: {}", channel);
                 log.debug("消息内容: {}", messageString);
@@ -165,14 +207,18 @@ public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
                 
                 // 如果反序列化成功且有接收者ID
                 if (chatMessage != null && chatMessage.getReceiverId() != null) {
+                    // 按消息ID去重
+                    if (chatMessage.getMessageId() != null && !deliveredMessageIds.add(chatMessage.getMessageId())) {
+                        log.info("消息已转发过，跳过: {}", chatMessage.getMessageId());
+                        return;
+                    }
                     try {
                         // 将ChatMessage对象转换为JSON字符串
                         String messageJson = objectMapper.writeValueAsString(chatMessage);
                         
-                        // 添加同步锁，防止同时向同一WebSocket会话写入消息
-                        synchronized (chatWebSocketHandler) {
-                            chatWebSocketHandler.sendMessageToUser(chatMessage.getReceiverId(), messageJson);
-                            log.info("消息已成功转发到用户: {}", chatMessage.getReceiverId());
+                        // 进入接收者会话的出站队列，由发送线程池写出，不阻塞监听线程
+                        if (chatWebSocketHandler.sendMessageToUser(chatMessage.getReceiverId(), messageJson)) {
+                            log.info("消息已转发到用户: {}", chatMessage.getReceiverId());
                         }
                     } catch (JsonProcessingException e) {
                         log.error("消息序列化为JSON失败: {}", e.getMessage());
@@ -186,9 +232,20 @@ public class ChatMessageQueueServiceImpl implements ChatMessageQueueService {
             } catch (Exception e) {
                 log.error("处理Redis消息时出错: {}", e.getMessage());
                 log.debug("异常详情", e);
-            } finally {
-                // 处理完成后，从集合中移除
-                processingMessages.remove(messageId);
+            }
+        }
+        
+        /**
+         * 根据通道名判断接收者是否连接到本节点
+         */
+        private boolean isReceiverConnected(String channel) {
+            if (!channel.startsWith(CHAT_CHANNEL_PREFIX)) {
+                return true;
+            }
+            try {
+                return chatWebSocketHandler.isUserConnected(Long.valueOf(channel.substring(CHAT_CHANNEL_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                return true;
             }
         }
         
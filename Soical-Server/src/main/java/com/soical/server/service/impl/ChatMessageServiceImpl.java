@@ -1,28 +1,19 @@
 package com.soical.server.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.soical.server.dto.CursorPage;
 import com.soical.server.entity.ChatMessage;
 import com.soical.server.entity.Conversation;
 import com.soical.server.mapper.ChatMessageMapper;
+import com.soical.server.service.ChatMessageCacheService;
 import com.soical.server.service.ChatMessageService;
+import com.soical.server.service.ChatMessageWriteService;
 import com.soical.server.service.ConversationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.core.PreparedStatementSetter;
-import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.util.Collections;
 import java.util.List;
 
@@ -33,173 +24,81 @@ import java.util.List;
 @Service
 public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatMessage> implements ChatMessageService {
 
+    /**
+     * 历史消息单页最大条数
+     */
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     @Autowired
     private ConversationService conversationService;
     
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private ChatMessageCacheService chatMessageCacheService;
+    
+    @Autowired
+    private ChatMessageWriteService chatMessageWriteService;
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public Long saveMessage(ChatMessage message) {
-        if (message == null) {
-            log.error("消息对象为空");
-            return null;
-        }
-        
-        // 打印完整的消息对象，帮助调试
-        log.info("准备保存的消息详情: {}", message);
-        
-        // 确保所有必要字段都已设置
-        if (message.getSenderId() == null || message.getReceiverId() == null) {
-            log.error("消息缺少发送者或接收者信息: senderId={}, receiverId={}", 
-                message.getSenderId(), message.getReceiverId());
-            return null;
+    public List<ChatMessage> getMessagesByConversationId(Long conversationId) {
+        if (conversationId == null) {
+            return Collections.emptyList();
         }
         
-        // 设置消息创建时间
-        if (message.getCreateTime() == null) {
-            message.setCreateTime(new java.util.Date());
+        return getRecentMessages(conversationId);
+    }
+    
+    @Override
+    public CursorPage<ChatMessage> getMessageHistory(Long conversationId, Long beforeMessageId, int size) {
+        CursorPage<ChatMessage> result = new CursorPage<>();
+        if (conversationId == null) {
+            return result;
         }
+        int pageSize = size < 1 ? 20 : Math.min(size, MAX_HISTORY_PAGE_SIZE);
         
-        // 初始化已读状态
-        if (message.getIsRead() == null) {
-            message.setIsRead(false);
+        List<ChatMessage> messages;
+        boolean hasMore;
+        if (beforeMessageId == null && pageSize <= chatMessageCacheService.getCacheSize()) {
+            // 第一页从最近消息缓存读取
+            messages = getRecentMessages(conversationId);
+            hasMore = messages.size() > pageSize || messages.size() >= chatMessageCacheService.getCacheSize();
+        } else {
+            messages = baseMapper.selectHistory(conversationId, beforeMessageId, pageSize + 1);
+            hasMore = messages.size() > pageSize;
         }
-        
-        // 初始化消息类型
-        if (message.getMessageType() == null) {
-            message.setMessageType(1); // 默认为文本消息
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
         }
         
-        // 确保会话ID已设置，如果没有，则尝试创建或查找会话
-        if (message.getConversationId() == null) {
-            log.info("消息未设置会话ID，尝试查找或创建会话");
-            Conversation conversation = conversationService.findByUsers(
-                    message.getSenderId(), message.getReceiverId());
-            
-            if (conversation == null) {
-                log.info("未找到会话，创建新会话");
-                conversation = conversationService.createConversation(
-                        message.getSenderId(), message.getReceiverId());
-                if (conversation == null) {
-                    log.error("创建会话失败");
-                    return null;
-                }
-            }
-            
-            message.setConversationId(conversation.getConversationId());
-            log.info("设置会话ID: {}", conversation.getConversationId());
-        }
-        
-        try {
-            // 直接使用SQL插入语句，避免ORM映射问题
-            String sql = "INSERT INTO t_chat_message (conversation_id, sender_id, receiver_id, content, message_type, is_read, create_time) " +
-                         "VALUES (?, ?, ?, ?, ?, ?, ?)";
-            
-            Object[] params = new Object[] {
-                message.getConversationId(),
-                message.getSenderId(),
-                message.getReceiverId(),
-                message.getContent(),
-                message.getMessageType(),
-                message.getIsRead() ? 1 : 0,
-                message.getCreateTime()
-            };
-            
-            log.info("执行SQL插入: {}, 参数: {}", sql, params);
-            
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                ps.setLong(1, message.getConversationId());
-                ps.setLong(2, message.getSenderId());
-                ps.setLong(3, message.getReceiverId());
-                ps.setString(4, message.getContent());
-                ps.setInt(5, message.getMessageType());
-                ps.setInt(6, message.getIsRead() ? 1 : 0);
-                ps.setTimestamp(7, new java.sql.Timestamp(message.getCreateTime().getTime()));
-                return ps;
-            }, keyHolder);
-            
-            Number messageId = keyHolder.getKey();
-            if (messageId != null) {
-                message.setMessageId(messageId.longValue());
-                log.info("消息保存成功: ID={}", messageId.longValue());
-                
-                // 更新会话的最后一条消息
-                updateConversationLastMessage(message);
-                
-                return messageId.longValue();
-            } else {
-                log.error("消息保存失败，无法获取生成的ID");
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("保存消息时发生异常: {}", e.getMessage(), e);
-            return null;
-        }
-    }
-    
-    /**
-     * 更新会话的最后一条消息信息
-     */
-    private void updateConversationLastMessage(ChatMessage message) {
-        try {
-            // 获取会话
-            Conversation conversation = conversationService.getById(message.getConversationId());
-            if (conversation == null) {
-                log.warn("无法更新会话最后消息，会话不存在: {}", message.getConversationId());
-                return;
-            }
-            
-            // 更新会话信息
-            conversation.setLastMessage(message.getContent());
-            conversation.setLastMessageTime(message.getCreateTime());
-            
-            // 更新未读消息计数
-            if (conversation.getUserAId().equals(message.getReceiverId()) || 
-                conversation.getUserBId().equals(message.getReceiverId())) {
-                Integer currentCount = conversation.getUnreadCount();
-                if (currentCount == null) {
-                    currentCount = 0;
-                }
-                conversation.setUnreadCount(currentCount + 1);
-            }
-            
-            // 保存更新
-            boolean updated = conversationService.updateConversation(conversation);
-            if (updated) {
-                log.info("会话最后消息更新成功: {}", message.getConversationId());
-            } else {
-                log.warn("会话最后消息更新失败: {}", message.getConversationId());
-            }
-        } catch (Exception e) {
-            log.error("更新会话最后消息时出错: {}", e.getMessage(), e);
+        result.setRecords(messages);
+        result.setHasMore(hasMore);
+        if (hasMore && !messages.isEmpty()) {
+            result.setNextCursor(String.valueOf(messages.get(messages.size() - 1).getMessageId()));
         }
+        return result;
     }
     
     @Override
-    public List<ChatMessage> getMessagesByConversationId(Long conversationId) {
-        if (conversationId == null) {
+    public List<ChatMessage> getMessagesBetweenUsers(Long senderId, Long receiverId, Long beforeMessageId, int size) {
+        if (senderId == null || receiverId == null || size < 1) {
             return Collections.emptyList();
         }
         
-        LambdaQueryWrapper<ChatMessage> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ChatMessage::getConversationId, conversationId)
-                .orderByDesc(ChatMessage::getCreateTime);
-        
-        return this.list(queryWrapper);
-    }
-    
-    @Override
-    public List<ChatMessage> getMessagesBetweenUsers(Long senderId, Long receiverId, int page, int size) {
-        if (senderId == null || receiverId == null || page < 1 || size < 1) {
+        // 按会话查询，避免对两种发送方向做OR条件扫描
+        Conversation conversation = conversationService.findByUsers(senderId, receiverId);
+        if (conversation == null) {
             return Collections.emptyList();
         }
         
-        int offset = (page - 1) * size;
-        return baseMapper.getMessagesBetweenUsers(senderId, receiverId, size, offset);
+        // 按消息ID游标直接定位，一次查询，与历史消息接口的页大小和排序一致
+        return getMessageHistory(conversation.getConversationId(), beforeMessageId, size).getRecords();
+    }
+    
+    /**
+     * 获取会话最近的消息，缓存未命中时按消息ID从索引读取
+     */
+    private List<ChatMessage> getRecentMessages(Long conversationId) {
+        return chatMessageCacheService.getRecentMessages(conversationId,
+                () -> baseMapper.selectHistory(conversationId, null, chatMessageCacheService.getCacheSize()));
     }
     
     @Override
@@ -209,7 +108,16 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
             return false;
         }
         
+        ChatMessage message = baseMapper.selectById(messageId);
+        if (message == null) {
+            // 可能仍在批量写入队列或预写日志中，记录已读标记，写入后生效
+            return chatMessageWriteService.markMessageRead(messageId);
+        }
+        
         int rows = baseMapper.markAsRead(messageId);
+        if (rows > 0) {
+            chatMessageCacheService.markMessageRead(message.getConversationId(), messageId);
+        }
         return rows > 0;
     }
     
@@ -220,11 +128,14 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
             return 0;
         }
         
+        // 先记录已读标记，尚未写入数据库的消息写入后同样标记为已读，不会重新累加未读数
+        chatMessageWriteService.markConversationRead(conversationId, receiverId);
         int rows = baseMapper.markConversationMessagesAsRead(conversationId, receiverId);
         
         // 如果有消息被标记为已读，重置会话的未读计数
         if (rows > 0) {
             conversationService.markAsRead(conversationId, receiverId);
+            chatMessageCacheService.markConversationRead(conversationId, receiverId);
         }
         
         return rows;
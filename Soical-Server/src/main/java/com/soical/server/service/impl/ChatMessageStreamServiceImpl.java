@@ -0,0 +1,368 @@
+package com.soical.server.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soical.server.entity.ChatMessage;
+import com.soical.server.service.ChatMessageQueueService;
+import com.soical.server.util.RecentIdCache;
+import com.soical.server.websocket.ChatWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis Stream的聊天消息队列服务实现类
+ * 每个接收者一个Stream，消息先XADD持久化，再通过用户通知通道唤醒持有该用户连接的节点读取；
+ * 消息写出到WebSocket后才XACK，连接断开时未确认的消息在用户重连时补发
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "chat.queue.mode", havingValue = "stream")
+public class ChatMessageStreamServiceImpl implements ChatMessageQueueService {
+
+    private static final String STREAM_KEY_PREFIX = "soical:chat:stream:";
+
+    private static final String NOTIFY_CHANNEL_PREFIX = "soical:chat:notify:";
+
+    private static final String FIELD_MESSAGE = "message";
+
+    private static final String CONSUMER_GROUP = "websocket";
+
+    /**
+     * 每个用户同一时刻只有一个会话，消费者名固定，
+     * 用户换到其他节点重连后，从0读取即可拿到之前所有未确认的消息，无需XCLAIM
+     */
+    private static final String CONSUMER_NAME = "session";
+
+    /**
+     * 按用户ID分段的投递锁数量
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${chat.queue.dedup-size:10000}")
+    private int dedupSize;
+
+    @Value("${chat.queue.stream.max-length:1000}")
+    private long maxLength;
+
+    @Value("${chat.queue.stream.ttl-days:7}")
+    private long ttlDays;
+
+    @Value("${chat.queue.stream.batch-size:100}")
+    private int batchSize;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChatWebSocketHandler chatWebSocketHandler;
+
+    /**
+     * 本节点已订阅通知通道的用户
+     */
+    private final Set<Long> subscribedUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 同一用户的投递串行执行，保证消息按Stream顺序进入出站队列
+     */
+    private final Object[] userLocks = new Object[LOCK_STRIPES];
+
+    /**
+     * 最近已写出的消息ID，补发时跳过已送达的消息
+     */
+    private RecentIdCache deliveredMessageIds;
+
+    private final MessageListener notifyListener = (message, pattern) -> {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        try {
+            deliver(Long.valueOf(channel.substring(NOTIFY_CHANNEL_PREFIX.length())), false);
+        } catch (NumberFormatException e) {
+            log.warn("无效的消息通知通道: {}", channel);
+        }
+    };
+
+    public ChatMessageStreamServiceImpl() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    @Override
+    public void initializeSubscriptions() {
+        deliveredMessageIds = new RecentIdCache(dedupSize);
+        log.info("聊天消息使用Redis Stream模式投递");
+    }
+
+    @Override
+    public boolean publishMessage(ChatMessage message) {
+        if (message == null || message.getReceiverId() == null) {
+            log.error("消息或接收者ID为空，无法发布消息");
+            return false;
+        }
+
+        Long receiverId = message.getReceiverId();
+        try {
+            String messageJson = objectMapper.writeValueAsString(message);
+            byte[] rawKey = toBytes(createChannelForUser(receiverId));
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.streamCommands().xAdd(rawKey, Collections.singletonMap(toBytes(FIELD_MESSAGE), toBytes(messageJson)));
+                connection.streamCommands().xTrim(rawKey, maxLength, true);
+                connection.keyCommands().expire(rawKey, TimeUnit.DAYS.toSeconds(ttlDays));
+                connection.publish(toBytes(NOTIFY_CHANNEL_PREFIX + receiverId), rawKey);
+                return null;
+            });
+            log.info("消息已写入Redis Stream: receiverId={}, messageId={}", receiverId, message.getMessageId());
+            return true;
+        } catch (Exception e) {
+            log.error("写入Redis Stream失败", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void startMessageSubscription() {
+        // 补订阅启动期间已经连接的用户
+        chatWebSocketHandler.getConnectedUserIds().forEach(this::subscribeUser);
+        log.info("Redis Stream消息投递已启动，已订阅用户数: {}", subscribedUsers.size());
+    }
+
+    @Override
+    public void subscribeUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        synchronized (lockFor(userId)) {
+            createGroup(createChannelForUser(userId));
+            if (subscribedUsers.add(userId)) {
+                try {
+                    redisMessageListenerContainer.addMessageListener(notifyListener, new ChannelTopic(NOTIFY_CHANNEL_PREFIX + userId));
+                } catch (Exception e) {
+                    subscribedUsers.remove(userId);
+                    log.error("订阅用户消息通知失败: {}", userId, e);
+                }
+            }
+        }
+        // 用户重连，补发未确认的消息和离线期间的新消息
+        deliver(userId, true);
+    }
+
+    @Override
+    public void unsubscribeUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        synchronized (lockFor(userId)) {
+            // 用户可能已用新会话重新连接，此时保留订阅
+            if (chatWebSocketHandler.isUserConnected(userId) || !subscribedUsers.remove(userId)) {
+                return;
+            }
+            try {
+                redisMessageListenerContainer.removeMessageListener(notifyListener, new ChannelTopic(NOTIFY_CHANNEL_PREFIX + userId));
+            } catch (Exception e) {
+                log.warn("取消订阅用户消息通知失败: {}", userId, e);
+            }
+        }
+    }
+
+    @Override
+    public void stopMessageSubscription() {
+        log.info("停止Redis Stream消息投递");
+        redisMessageListenerContainer.removeMessageListener(notifyListener);
+        subscribedUsers.clear();
+    }
+
+    @Override
+    public String getChannelPrefix() {
+        return STREAM_KEY_PREFIX;
+    }
+
+    @Override
+    public String createChannelForUser(Long userId) {
+        return STREAM_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 定期为本节点的在线用户读取新消息，补偿丢失的通知
+     */
+    @Scheduled(fixedDelayString = "${chat.queue.stream.sweep-interval-ms:10000}")
+    public void sweep() {
+        for (Long userId : new ArrayList<>(subscribedUsers)) {
+            deliver(userId, false);
+        }
+    }
+
+    /**
+     * 读取并投递用户的消息
+     *
+     * @param userId        用户ID
+     * @param replayPending 是否先补发已读取但未确认的消息（重连时）
+     */
+    private void deliver(Long userId, boolean replayPending) {
+        if (!chatWebSocketHandler.isUserConnected(userId)) {
+            return;
+        }
+        String key = createChannelForUser(userId);
+        synchronized (lockFor(userId)) {
+            try {
+                deliverRecords(userId, key, replayPending);
+            } catch (Exception e) {
+                if (!isNoGroup(e)) {
+                    log.warn("投递Stream消息失败: userId={}", userId, e);
+                    return;
+                }
+                // Stream过期后消费组随之删除，重建后重试
+                createGroup(key);
+                try {
+                    deliverRecords(userId, key, replayPending);
+                } catch (Exception ex) {
+                    log.warn("投递Stream消息失败: userId={}", userId, ex);
+                }
+            }
+        }
+    }
+
+    private void deliverRecords(Long userId, String key, boolean replayPending) {
+        if (replayPending) {
+            // 从0开始读取的是本消费者已读取未确认的消息，按最后一条的ID翻页
+            String lastId = "0";
+            while (true) {
+                List<MapRecord<String, Object, Object>> records = read(key, ReadOffset.from(lastId));
+                for (MapRecord<String, Object, Object> record : records) {
+                    if (!deliverRecord(userId, key, record)) {
+                        return;
+                    }
+                    lastId = record.getId().getValue();
+                }
+                if (records.size() < batchSize) {
+                    break;
+                }
+            }
+        }
+
+        while (true) {
+            List<MapRecord<String, Object, Object>> records = read(key, ReadOffset.lastConsumed());
+            for (MapRecord<String, Object, Object> record : records) {
+                if (!deliverRecord(userId, key, record)) {
+                    // 未能进入发送队列的消息保持未确认，重连时补发
+                    return;
+                }
+            }
+            if (records.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> read(String key, ReadOffset offset) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                Consumer.from(CONSUMER_GROUP, CONSUMER_NAME),
+                StreamReadOptions.empty().count(batchSize),
+                StreamOffset.create(key, offset));
+        return records != null ? records : Collections.emptyList();
+    }
+
+    /**
+     * 投递单条消息，写出到WebSocket后确认
+     *
+     * @return 是否已进入发送队列（或无需发送）
+     */
+    private boolean deliverRecord(Long userId, String key, MapRecord<String, Object, Object> record) {
+        RecordId recordId = record.getId();
+        Object payload = record.getValue().get(FIELD_MESSAGE);
+        if (payload == null) {
+            acknowledge(key, recordId);
+            return true;
+        }
+
+        String messageJson = payload.toString();
+        Long messageId = readMessageId(messageJson);
+        if (messageId != null && deliveredMessageIds.contains(messageId)) {
+            // 已送达过，只补确认
+            acknowledge(key, recordId);
+            return true;
+        }
+
+        return chatWebSocketHandler.sendMessageToUser(userId, messageJson, () -> {
+            deliveredMessageIds.add(messageId);
+            acknowledge(key, recordId);
+        });
+    }
+
+    private Long readMessageId(String messageJson) {
+        try {
+            JsonNode messageId = objectMapper.readTree(messageJson).get("messageId");
+            return messageId != null && messageId.canConvertToLong() ? messageId.asLong() : null;
+        } catch (Exception e) {
+            log.warn("解析Stream消息失败: {}", messageJson);
+            return null;
+        }
+    }
+
+    private void acknowledge(String key, RecordId recordId) {
+        try {
+            stringRedisTemplate.opsForStream().acknowledge(key, CONSUMER_GROUP, recordId);
+        } catch (Exception e) {
+            // 未确认的消息重连时会再次投递，由消息ID去重
+            log.warn("确认Stream消息失败: key={}, id={}", key, recordId, e);
+        }
+    }
+
+    /**
+     * 创建消费组，Stream不存在时一并创建；从0开始，离线期间写入的消息也会投递
+     */
+    private void createGroup(String key) {
+        try {
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> connection.streamCommands()
+                    .xGroupCreate(toBytes(key), CONSUMER_GROUP, ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (message == null || !message.contains("BUSYGROUP")) {
+                log.warn("创建Stream消费组失败: {}", key, e);
+            }
+        }
+    }
+
+    private boolean isNoGroup(Exception e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null && message.contains("NOGROUP");
+    }
+
+    private Object lockFor(Long userId) {
+        return userLocks[(int) Math.floorMod(userId, (long) LOCK_STRIPES)];
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,609 @@
+package com.soical.server.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soical.server.common.BusinessException;
+import com.soical.server.common.ResultCode;
+import com.soical.server.entity.ChatMessage;
+import com.soical.server.service.ChatMessageCacheService;
+import com.soical.server.service.ChatMessageWriteService;
+import com.soical.server.service.UserActivityService;
+import com.soical.server.util.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisZSetCommands.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天消息写入服务实现类
+ * 消息写入Redis Stream预写日志后进入内存队列，定时按批INSERT，
+ * 同一批内同一会话的最后消息和未读数合并为一次更新；写库成功后删除日志。
+ * 写库失败或节点重启时，超过一定时间仍留在日志中的消息由恢复任务补写，补写前按消息ID去重；
+ * 无法写入的消息（外键、数据截断、ID冲突等）转入死信Stream，不阻塞其余消息。
+ * 消息写库前接收者已标记已读时，已读标记记录在Redis中，写库后应用
+ */
+@Slf4j
+@Service
+public class ChatMessageWriteServiceImpl implements ChatMessageWriteService {
+
+    private static final String WAL_KEY = "chat:message:wal";
+
+    private static final String DEAD_LETTER_KEY = "chat:message:wal:dead";
+
+    private static final String WAL_FIELD_MESSAGE = "message";
+
+    private static final String DEAD_LETTER_FIELD_WAL_ID = "walId";
+
+    private static final String DEAD_LETTER_FIELD_ERROR = "error";
+
+    private static final String RECOVERY_LOCK_KEY = "chat:message:wal:recovery";
+
+    /**
+     * 会话已读标记：chat:message:read-mark:{会话ID}:{接收者ID} -> 标记时生成的ID，ID更小的消息视为已读
+     */
+    private static final String READ_MARK_KEY_PREFIX = "chat:message:read-mark:";
+
+    /**
+     * 单条消息已读标记：chat:message:read:{消息ID}
+     */
+    private static final String MESSAGE_READ_KEY_PREFIX = "chat:message:read:";
+
+    private static final String INSERT_MESSAGE_SQL = "INSERT INTO t_chat_message " +
+            "(message_id, conversation_id, sender_id, receiver_id, content, message_type, is_read, create_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 只有更新的消息才覆盖最后消息（恢复补写的旧消息只累加未读数）
+     */
+    private static final String UPDATE_CONVERSATION_SQL = "UPDATE t_conversation SET " +
+            "last_message = IF(last_message_time IS NULL OR last_message_time <= ?, ?, last_message), " +
+            "last_message_time = IF(last_message_time IS NULL OR last_message_time <= ?, ?, last_message_time), " +
+            "unread_count = COALESCE(unread_count, 0) + ? " +
+            "WHERE conversation_id = ?";
+
+    private static final String DECREMENT_UNREAD_SQL = "UPDATE t_conversation SET " +
+            "unread_count = GREATEST(COALESCE(unread_count, 0) - ?, 0) WHERE conversation_id = ?";
+
+    @Value("${chat.message.write.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.message.write.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.message.write.recovery-stale-ms:60000}")
+    private long recoveryStaleMillis;
+
+    @Value("${chat.message.write.recovery-interval-ms:60000}")
+    private long recoveryIntervalMillis;
+
+    @Value("${chat.message.write.wal-max-length:1000000}")
+    private long walMaxLength;
+
+    @Value("${chat.message.write.dead-letter-max-length:10000}")
+    private long deadLetterMaxLength;
+
+    @Value("${chat.message.write.read-mark-ttl-hours:24}")
+    private long readMarkTtlHours;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private UserActivityService userActivityService;
+
+    @Autowired
+    private ChatMessageCacheService chatMessageCacheService;
+
+    private volatile BlockingQueue<PendingMessage> queue;
+
+    @Override
+    public ChatMessage submit(ChatMessage message) {
+        if (message.getConversationId() == null || message.getSenderId() == null || message.getReceiverId() == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "消息缺少会话、发送者或接收者信息");
+        }
+
+        message.setMessageId(snowflakeIdGenerator.nextId());
+        if (message.getCreateTime() == null) {
+            message.setCreateTime(new Date());
+        }
+        if (message.getIsRead() == null) {
+            message.setIsRead(false);
+        }
+        if (message.getMessageType() == null) {
+            message.setMessageType(1); // 默认为文本消息
+        }
+
+        PendingMessage pending = new PendingMessage(message, appendToWal(message));
+        if (pending.walId == null || !getQueue().offer(pending)) {
+            // 预写日志不可用或队列已满时同步写入；写入失败且没有预写日志可补写时通知发送方
+            PersistResult result = persist(Collections.singletonList(pending));
+            if (result == PersistResult.REJECTED || (result == PersistResult.RETRY && pending.walId == null)) {
+                throw new BusinessException(ResultCode.FAILED.getCode(), "消息保存失败");
+            }
+        }
+
+        // 写入最近消息缓存，批量写库前打开聊天界面也能看到
+        chatMessageCacheService.cacheMessage(message);
+        return message;
+    }
+
+    @Override
+    public void markConversationRead(Long conversationId, Long receiverId) {
+        if (conversationId == null || receiverId == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(readMarkKey(conversationId, receiverId),
+                    String.valueOf(snowflakeIdGenerator.nextId()), readMarkTtlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("记录会话已读标记失败: conversationId={}, receiverId={}", conversationId, receiverId, e);
+        }
+    }
+
+    @Override
+    public boolean markMessageRead(Long messageId) {
+        if (messageId == null) {
+            return false;
+        }
+        // 只接受标记有效期内生成的ID（允许节点间少量时钟偏差），更早的消息不可能仍在等待写入
+        long age = System.currentTimeMillis() - SnowflakeIdGenerator.timestampOf(messageId);
+        if (age < -TimeUnit.MINUTES.toMillis(1) || age > TimeUnit.HOURS.toMillis(readMarkTtlHours)) {
+            return false;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(MESSAGE_READ_KEY_PREFIX + messageId, "1",
+                    readMarkTtlHours, TimeUnit.HOURS);
+            return true;
+        } catch (Exception e) {
+            log.warn("记录消息已读标记失败: messageId={}", messageId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 按批写入队列中的消息
+     */
+    @Scheduled(fixedDelayString = "${chat.message.write.flush-interval-ms:10}")
+    public void flush() {
+        List<PendingMessage> batch = new ArrayList<>();
+        while (getQueue().drainTo(batch, batchSize) > 0) {
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 补写预写日志中滞留的消息（写库失败或写入节点已停止）
+     * 已写入的消息直接删除日志，无法写入的消息转入死信，数据库不可用时停止本轮补写
+     */
+    @Scheduled(fixedDelayString = "${chat.message.write.recovery-interval-ms:60000}")
+    public void recover() {
+        try {
+            // 多个节点同时恢复会重复累加未读数，只允许一个节点执行
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(RECOVERY_LOCK_KEY, "1", recoveryIntervalMillis, TimeUnit.MILLISECONDS);
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+
+            String staleBefore = (System.currentTimeMillis() - recoveryStaleMillis) + "-0";
+            Range.Bound<String> lowerBound = Range.Bound.unbounded();
+            String lastWalId = null;
+            int recovered = 0;
+            while (true) {
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().range(WAL_KEY,
+                        Range.of(lowerBound, Range.Bound.inclusive(staleBefore)),
+                        Limit.limit().count(batchSize));
+                if (records == null || records.isEmpty()) {
+                    break;
+                }
+
+                // 从上一批最后一条继续读取，日志删除失败时也不会重复处理
+                List<PendingMessage> batch = new ArrayList<>(records.size());
+                for (MapRecord<String, Object, Object> record : records) {
+                    String walId = record.getId().getValue();
+                    if (walId.equals(lastWalId)) {
+                        continue;
+                    }
+                    ChatMessage message = readWalRecord(record);
+                    if (message != null) {
+                        batch.add(new PendingMessage(message, walId));
+                    } else {
+                        Object messageJson = record.getValue().get(WAL_FIELD_MESSAGE);
+                        deadLetter(walId, messageJson != null ? messageJson.toString() : null, "预写日志无法解析");
+                    }
+                }
+                String batchLastWalId = records.get(records.size() - 1).getId().getValue();
+                if (batchLastWalId.equals(lastWalId)) {
+                    break;
+                }
+                lastWalId = batchLastWalId;
+                lowerBound = Range.Bound.inclusive(lastWalId);
+
+                batch = filterPersisted(batch);
+                if (!batch.isEmpty() && persist(batch) == PersistResult.RETRY) {
+                    break;
+                }
+                recovered += batch.size();
+                if (records.size() < batchSize) {
+                    break;
+                }
+            }
+            if (recovered > 0) {
+                log.info("已从预写日志补写聊天消息: count={}", recovered);
+            }
+
+            trimWal();
+        } catch (Exception e) {
+            log.warn("补写预写日志中的聊天消息失败", e);
+        }
+    }
+
+    /**
+     * 停止前写入队列中剩余的消息
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 批量写入消息并合并更新会话，成功后删除预写日志
+     * 批次中有无法写入的消息时逐条重试，定位后转入死信
+     *
+     * @return 写入结果
+     */
+    private PersistResult persist(List<PendingMessage> batch) {
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        batch.forEach(pending -> messages.add(pending.message));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, messages, messages.size(), (ps, message) -> {
+                    ps.setLong(1, message.getMessageId());
+                    ps.setLong(2, message.getConversationId());
+                    ps.setLong(3, message.getSenderId());
+                    ps.setLong(4, message.getReceiverId());
+                    ps.setString(5, message.getContent());
+                    ps.setInt(6, message.getMessageType());
+                    ps.setInt(7, Boolean.TRUE.equals(message.getIsRead()) ? 1 : 0);
+                    ps.setTimestamp(8, new Timestamp(message.getCreateTime().getTime()));
+                });
+
+                List<ConversationUpdate> updates = mergeConversationUpdates(messages);
+                jdbcTemplate.batchUpdate(UPDATE_CONVERSATION_SQL, updates, updates.size(), (ps, update) -> {
+                    Timestamp lastMessageTime = new Timestamp(update.lastMessageTime.getTime());
+                    ps.setTimestamp(1, lastMessageTime);
+                    ps.setString(2, update.lastMessage);
+                    ps.setTimestamp(3, lastMessageTime);
+                    ps.setTimestamp(4, lastMessageTime);
+                    ps.setInt(5, update.messageCount);
+                    ps.setLong(6, update.conversationId);
+                });
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() > 1) {
+                log.warn("批量保存聊天消息存在无法写入的消息，改为逐条写入: count={}", batch.size(), e);
+                PersistResult result = PersistResult.PERSISTED;
+                for (PendingMessage pending : batch) {
+                    if (persist(Collections.singletonList(pending)) == PersistResult.RETRY) {
+                        result = PersistResult.RETRY;
+                    }
+                }
+                return result;
+            }
+
+            PendingMessage pending = batch.get(0);
+            if (e instanceof DuplicateKeyException) {
+                // 可能已由其他写入完成，按会话和发送者区分重复写入和ID冲突
+                long[] row = findExisting(batch).get(pending.message.getMessageId());
+                if (row != null && isSameMessage(row, pending.message)) {
+                    deleteFromWal(batch);
+                    return PersistResult.PERSISTED;
+                }
+            }
+            log.error("聊天消息无法写入: messageId={}", pending.message.getMessageId(), e);
+            deadLetter(pending.walId, toJson(pending.message), e.getMessage());
+            return PersistResult.REJECTED;
+        } catch (Exception e) {
+            log.error("批量保存聊天消息失败，等待从预写日志补写: count={}", messages.size(), e);
+            return PersistResult.RETRY;
+        }
+
+        applyReadMarks(messages);
+        messages.forEach(message -> userActivityService.record(message.getSenderId(), UserActivityService.ActivityType.MESSAGE));
+        deleteFromWal(batch);
+        return PersistResult.PERSISTED;
+    }
+
+    /**
+     * 应用已读标记：写库前或写库期间已被接收者标记已读的消息改为已读，并扣减会话未读数
+     * 已读标记在更新数据库已读状态之前写入，这里在写库提交之后读取：
+     * 要么读到标记，要么数据库的已读更新发生在提交之后，已经覆盖这批消息
+     */
+    private void applyReadMarks(List<ChatMessage> messages) {
+        try {
+            List<String> keys = new ArrayList<>();
+            Map<String, Integer> readMarkIndexes = new HashMap<>();
+            for (ChatMessage message : messages) {
+                readMarkIndexes.computeIfAbsent(readMarkKey(message.getConversationId(), message.getReceiverId()), key -> {
+                    keys.add(key);
+                    return keys.size() - 1;
+                });
+            }
+            int messageKeyOffset = keys.size();
+            messages.forEach(message -> keys.add(MESSAGE_READ_KEY_PREFIX + message.getMessageId()));
+
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return;
+            }
+            Map<Long, List<Long>> readByConversation = new LinkedHashMap<>();
+            for (int i = 0; i < messages.size(); i++) {
+                ChatMessage message = messages.get(i);
+                if (Boolean.TRUE.equals(message.getIsRead())) {
+                    continue;
+                }
+                String readMark = values.get(readMarkIndexes.get(readMarkKey(message.getConversationId(), message.getReceiverId())));
+                if (values.get(messageKeyOffset + i) != null
+                        || (readMark != null && message.getMessageId() < Long.parseLong(readMark))) {
+                    readByConversation.computeIfAbsent(message.getConversationId(), k -> new ArrayList<>())
+                            .add(message.getMessageId());
+                }
+            }
+            if (readByConversation.isEmpty()) {
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> readByConversation.forEach((conversationId, messageIds) -> {
+                String sql = "UPDATE t_chat_message SET is_read = 1 WHERE is_read = 0 AND message_id IN ("
+                        + String.join(",", Collections.nCopies(messageIds.size(), "?")) + ")";
+                int rows = jdbcTemplate.update(sql, messageIds.toArray());
+                if (rows > 0) {
+                    jdbcTemplate.update(DECREMENT_UNREAD_SQL, rows, conversationId);
+                }
+            }));
+            readByConversation.forEach((conversationId, messageIds) ->
+                    messageIds.forEach(messageId -> chatMessageCacheService.markMessageRead(conversationId, messageId)));
+        } catch (Exception e) {
+            // 消息已写入，已读状态未能应用时保持未读，接收者再次标记已读即可
+            log.warn("应用聊天消息已读标记失败: count={}", messages.size(), e);
+        }
+    }
+
+    private String readMarkKey(Long conversationId, Long receiverId) {
+        return READ_MARK_KEY_PREFIX + conversationId + ":" + receiverId;
+    }
+
+    /**
+     * 过滤已写入数据库的消息
+     * 同一ID已存在且会话、发送者一致的视为已写入，删除其日志；不一致的为ID冲突，转入死信
+     *
+     * @return 尚未写入的消息
+     */
+    private List<PendingMessage> filterPersisted(List<PendingMessage> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Map<Long, long[]> existing = findExisting(batch);
+        List<PendingMessage> remaining = new ArrayList<>(batch.size());
+        List<PendingMessage> persisted = new ArrayList<>();
+        for (PendingMessage pending : batch) {
+            long[] row = existing.get(pending.message.getMessageId());
+            if (row == null) {
+                remaining.add(pending);
+            } else if (isSameMessage(row, pending.message)) {
+                persisted.add(pending);
+            } else {
+                log.error("聊天消息ID冲突: messageId={}", pending.message.getMessageId());
+                deadLetter(pending.walId, toJson(pending.message), "消息ID冲突");
+            }
+        }
+        deleteFromWal(persisted);
+        return remaining;
+    }
+
+    /**
+     * 查询数据库中已存在的消息
+     *
+     * @return 消息ID -> [会话ID, 发送者ID]
+     */
+    private Map<Long, long[]> findExisting(List<PendingMessage> batch) {
+        List<Object> ids = new ArrayList<>(batch.size());
+        batch.forEach(pending -> ids.add(pending.message.getMessageId()));
+        String sql = "SELECT message_id, conversation_id, sender_id FROM t_chat_message WHERE message_id IN ("
+                + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+        Map<Long, long[]> existing = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> existing.put(rs.getLong("message_id"),
+                new long[]{rs.getLong("conversation_id"), rs.getLong("sender_id")}), ids.toArray());
+        return existing;
+    }
+
+    private boolean isSameMessage(long[] row, ChatMessage message) {
+        return row[0] == message.getConversationId() && row[1] == message.getSenderId();
+    }
+
+    /**
+     * 按会话合并：取时间最新的一条作为最后消息，累计消息数作为新增未读数
+     */
+    private List<ConversationUpdate> mergeConversationUpdates(List<ChatMessage> messages) {
+        Map<Long, ConversationUpdate> updates = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            ConversationUpdate update = updates.computeIfAbsent(message.getConversationId(), ConversationUpdate::new);
+            update.messageCount++;
+            if (update.lastMessageTime == null || !message.getCreateTime().before(update.lastMessageTime)) {
+                update.lastMessage = message.getContent();
+                update.lastMessageTime = message.getCreateTime();
+            }
+        }
+        return new ArrayList<>(updates.values());
+    }
+
+    private String appendToWal(ChatMessage message) {
+        try {
+            RecordId recordId = stringRedisTemplate.opsForStream().add(StreamRecords.string(
+                    Collections.singletonMap(WAL_FIELD_MESSAGE, toJson(message))).withStreamKey(WAL_KEY));
+            return recordId != null ? recordId.getValue() : null;
+        } catch (Exception e) {
+            log.warn("写入消息预写日志失败，改为同步写入: messageId={}", message.getMessageId(), e);
+            return null;
+        }
+    }
+
+    private ChatMessage readWalRecord(MapRecord<String, Object, Object> record) {
+        Object messageJson = record.getValue().get(WAL_FIELD_MESSAGE);
+        if (messageJson == null) {
+            return null;
+        }
+        try {
+            ChatMessage message = objectMapper.readValue(messageJson.toString(), ChatMessage.class);
+            return message.getMessageId() != null && message.getConversationId() != null
+                    && message.getSenderId() != null && message.getReceiverId() != null
+                    && message.getCreateTime() != null ? message : null;
+        } catch (Exception e) {
+            log.warn("解析消息预写日志失败: id={}", record.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 将无法写入的消息转入死信Stream并删除其日志，供人工排查
+     */
+    private void deadLetter(String walId, String messageJson, String error) {
+        if (walId == null) {
+            return;
+        }
+        try {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(DEAD_LETTER_FIELD_WAL_ID, walId);
+            fields.put(WAL_FIELD_MESSAGE, messageJson != null ? messageJson : "");
+            fields.put(DEAD_LETTER_FIELD_ERROR, error != null ? error : "");
+            stringRedisTemplate.opsForStream().add(StreamRecords.string(fields).withStreamKey(DEAD_LETTER_KEY));
+            stringRedisTemplate.opsForStream().trim(DEAD_LETTER_KEY, deadLetterMaxLength, true);
+            stringRedisTemplate.opsForStream().delete(WAL_KEY, walId);
+        } catch (Exception e) {
+            log.warn("消息转入死信失败: walId={}", walId, e);
+        }
+    }
+
+    private void deleteFromWal(List<PendingMessage> batch) {
+        String[] walIds = batch.stream()
+                .map(pending -> pending.walId)
+                .filter(Objects::nonNull)
+                .toArray(String[]::new);
+        if (walIds.length == 0) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForStream().delete(WAL_KEY, walIds);
+        } catch (Exception e) {
+            // 残留的日志会被恢复任务按消息ID去重
+            log.warn("删除消息预写日志失败: count={}", walIds.length, e);
+        }
+    }
+
+    /**
+     * 日志长度超过上限时裁剪最早的记录（数据库长时间不可用时防止Redis内存无限增长）
+     */
+    private void trimWal() {
+        Long size = stringRedisTemplate.opsForStream().size(WAL_KEY);
+        if (size != null && size > walMaxLength) {
+            log.error("消息预写日志超过上限，裁剪最早的记录: size={}, maxLength={}", size, walMaxLength);
+            stringRedisTemplate.opsForStream().trim(WAL_KEY, walMaxLength, true);
+        }
+    }
+
+    private String toJson(ChatMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (Exception e) {
+            throw new IllegalStateException("序列化聊天消息失败: messageId=" + message.getMessageId(), e);
+        }
+    }
+
+    private BlockingQueue<PendingMessage> getQueue() {
+        if (queue == null) {
+            synchronized (this) {
+                if (queue == null) {
+                    queue = new LinkedBlockingQueue<>(queueCapacity);
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * 写入结果
+     */
+    private enum PersistResult {
+        /**
+         * 已写入（或此前已写入）
+         */
+        PERSISTED,
+        /**
+         * 暂时失败，留在预写日志中等待补写
+         */
+        RETRY,
+        /**
+         * 无法写入，已转入死信
+         */
+        REJECTED
+    }
+
+    /**
+     * 待写入的消息及其预写日志ID
+     */
+    private static class PendingMessage {
+        private final ChatMessage message;
+        private final String walId;
+
+        private PendingMessage(ChatMessage message, String walId) {
+            this.message = message;
+            this.walId = walId;
+        }
+    }
+
+    /**
+     * 一批消息对同一会话的合并更新
+     */
+    private static class ConversationUpdate {
+        private final Long conversationId;
+        private String lastMessage;
+        private Date lastMessageTime;
+        private int messageCount;
+
+        private ConversationUpdate(Long conversationId) {
+            this.conversationId = conversationId;
+        }
+    }
+}
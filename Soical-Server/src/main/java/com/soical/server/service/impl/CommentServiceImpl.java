@@ -11,7 +11,9 @@ import com.soical.server.entity.User;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.CommentMapper;
 import com.soical.server.service.CommentService;
+import com.soical.server.service.PostCounterService;
 import com.soical.server.service.PostService;
+import com.soical.server.service.UserActivityService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
 import org.springframework.beans.BeanUtils;
@@ -33,6 +35,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
     private final UserService userService;
     private final UserProfileService userProfileService;
     private final ApplicationContext applicationContext;
+    private final UserActivityService userActivityService;
+    private final PostCounterService postCounterService;
     
     // 使用懒加载方式获取PostService，避免循环依赖
     private PostService getPostService() {
@@ -42,10 +46,14 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
     @Autowired
     public CommentServiceImpl(UserService userService,
                             UserProfileService userProfileService,
-                            ApplicationContext applicationContext) {
+                            ApplicationContext applicationContext,
+                            UserActivityService userActivityService,
+                            PostCounterService postCounterService) {
         this.userService = userService;
         this.userProfileService = userProfileService;
         this.applicationContext = applicationContext;
+        this.userActivityService = userActivityService;
+        this.postCounterService = postCounterService;
     }
 
     @Override
@@ -99,8 +107,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         }
 
         // 更新动态评论数
-        post.setCommentCount(post.getCommentCount() + 1);
-        getPostService().updateById(post);
+        postCounterService.increment(postId, PostCounterService.CounterType.COMMENT, 1);
+        userActivityService.record(userId, UserActivityService.ActivityType.COMMENT);
 
         return comment.getCommentId();
     }
@@ -141,11 +149,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         
         if (updated) {
             // 更新动态评论数
-            Post post = getPostService().getById(comment.getPostId());
-            if (post != null) {
-                post.setCommentCount(post.getCommentCount() - 1);
-                getPostService().updateById(post);
-            }
+            postCounterService.increment(comment.getPostId(), PostCounterService.CounterType.COMMENT, -1);
         }
         
         return updated;
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.soical.server.entity.Conversation;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.ConversationMapper;
+import com.soical.server.service.ChatMessageCacheService;
 import com.soical.server.service.ConversationService;
 import com.soical.server.service.UserProfileService;
 import lombok.extern.slf4j.Slf4j;
@@ -27,8 +28,12 @@ public class ConversationServiceImpl extends ServiceImpl<ConversationMapper, Con
     
     private final UserProfileService userProfileService;
     
-    public ConversationServiceImpl(UserProfileService userProfileService) {
+    private final ChatMessageCacheService chatMessageCacheService;
+    
+    public ConversationServiceImpl(UserProfileService userProfileService,
+                                   ChatMessageCacheService chatMessageCacheService) {
         this.userProfileService = userProfileService;
+        this.chatMessageCacheService = chatMessageCacheService;
     }
     
     @Override
@@ -158,6 +163,7 @@ public class ConversationServiceImpl extends ServiceImpl<ConversationMapper, Con
         
         boolean removed = this.removeById(conversationId);
         if (removed) {
+            chatMessageCacheService.evict(conversationId);
             log.info("会话删除成功: {}", conversationId);
         } else {
             log.error("会话删除失败: {}", conversationId);
@@ -0,0 +1,442 @@
+package com.soical.server.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soical.server.entity.Post;
+import com.soical.server.mapper.PostMapper;
+import com.soical.server.mapper.UserProfileMapper;
+import com.soical.server.service.ImageDerivativeService;
+import com.soical.server.service.PostCacheService;
+import com.soical.server.service.UserCandidateIndexService;
+import com.soical.server.util.FileUtil;
+import com.soical.server.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 图片衍生图服务实现类
+ * 使用ImageIO解码、按EXIF方向摆正后Graphics2D逐级缩放，统一输出JPEG（不带EXIF，方向已应用到像素）；
+ * 衍生图对象名由原图对象名加规格后缀得到，原图按内容哈希存储，相同图片的衍生图只生成一次
+ */
+@Slf4j
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    private static final String DERIVATIVE_CONTENT_TYPE = "image/jpeg";
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    /**
+     * JPEG APP1段的标记值，EXIF数据保存在该段中
+     */
+    private static final int APP1_MARKER = 0xE1;
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private static final TypeReference<Map<String, Map<String, String>>> VARIANTS_TYPE =
+            new TypeReference<Map<String, Map<String, String>>>() {};
+
+    @Value("${image.derivative.thumbnail-size:320}")
+    private int thumbnailSize;
+
+    @Value("${image.derivative.medium-size:1080}")
+    private int mediumSize;
+
+    @Value("${image.derivative.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${image.derivative.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    @Autowired
+    private PostMapper postMapper;
+
+    @Autowired
+    private UserProfileMapper userProfileMapper;
+
+    @Autowired
+    private PostCacheService postCacheService;
+
+    @Autowired
+    private UserCandidateIndexService candidateIndexService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("imageExecutor")
+    private Executor imageExecutor;
+
+    @Override
+    public void generateForPost(Long postId, List<String> imageUrls) {
+        if (postId == null || imageUrls == null || imageUrls.isEmpty()) {
+            return;
+        }
+        List<String> urls = new ArrayList<>(imageUrls);
+        TransactionUtils.afterCommit(() -> submit("postId=" + postId, () -> {
+            Map<String, Map<String, String>> variants = new LinkedHashMap<>();
+            for (String url : urls) {
+                Map<String, String> generated = generate(url);
+                if (!generated.isEmpty()) {
+                    variants.put(url, generated);
+                }
+            }
+            if (variants.isEmpty()) {
+                return;
+            }
+
+            postMapper.update(null, Wrappers.lambdaUpdate(Post.class)
+                    .eq(Post::getPostId, postId)
+                    .set(Post::getImageVariants, objectMapper.writeValueAsString(variants)));
+            postCacheService.evictPosts(Collections.singletonList(postId));
+        }));
+    }
+
+    @Override
+    public void generateForProfilePhoto(Long userId, String photoUrl) {
+        if (userId == null || !StringUtils.hasText(photoUrl)) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> submit("userId=" + userId, () -> {
+            Map<String, String> generated = generate(photoUrl);
+            if (generated.isEmpty()) {
+                return;
+            }
+
+            // 只写入这一张照片的衍生图，避免覆盖并发添加的其他照片
+            String path = "$.\"" + photoUrl.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+            userProfileMapper.updatePhotoVariant(userId, path, objectMapper.writeValueAsString(generated));
+            candidateIndexService.refresh(userId);
+        }));
+    }
+
+    @Override
+    public void deleteDerivatives(String originalUrl) {
+        String objectName = FileUtil.getObjectName(originalUrl);
+        if (objectName == null || !originalUrl.endsWith(objectName)) {
+            return;
+        }
+        // 衍生图与原图存储在同一位置，URL前缀相同
+        String prefix = originalUrl.substring(0, originalUrl.length() - objectName.length());
+        for (String spec : specs().keySet()) {
+            FileUtil.deleteFile(prefix + derivativeName(objectName, spec));
+        }
+    }
+
+    @Override
+    public List<String> resolve(List<String> originals, String variantsJson, String variant) {
+        if (originals == null) {
+            return null;
+        }
+        if (!StringUtils.hasText(variantsJson)) {
+            return new ArrayList<>(originals);
+        }
+
+        Map<String, Map<String, String>> variants;
+        try {
+            variants = objectMapper.readValue(variantsJson, VARIANTS_TYPE);
+        } catch (IOException e) {
+            log.warn("解析衍生图JSON失败: {}", variantsJson, e);
+            return new ArrayList<>(originals);
+        }
+
+        List<String> result = new ArrayList<>(originals.size());
+        for (String original : originals) {
+            Map<String, String> urls = variants.get(original);
+            String url = urls != null ? urls.get(variant) : null;
+            result.add(url != null ? url : original);
+        }
+        return result;
+    }
+
+    /**
+     * 生成单张图片的衍生图
+     * 先生成中图，再从中图缩放出缩略图；原图不大于目标尺寸时不生成该规格
+     *
+     * @param originalUrl 原图URL
+     * @return 规格 -> 衍生图URL
+     */
+    private Map<String, String> generate(String originalUrl) throws IOException {
+        String objectName = FileUtil.getObjectName(originalUrl);
+        if (objectName == null) {
+            log.warn("无法解析图片存储位置，跳过衍生图: {}", originalUrl);
+            return Collections.emptyMap();
+        }
+
+        BufferedImage source = readImage(originalUrl);
+        if (source == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        BufferedImage current = source;
+        for (Map.Entry<String, Integer> spec : specs().entrySet()) {
+            if (Math.max(current.getWidth(), current.getHeight()) <= spec.getValue()) {
+                continue;
+            }
+            current = resize(current, spec.getValue());
+            result.put(spec.getKey(), FileUtil.storeObject(derivativeName(objectName, spec.getKey()),
+                    encodeJpeg(current), DERIVATIVE_CONTENT_TYPE).getUrl());
+        }
+        return result;
+    }
+
+    /**
+     * 衍生图对象名：原图对象名去掉扩展名，加规格后缀
+     */
+    private static String derivativeName(String objectName, String spec) {
+        String baseName = objectName.lastIndexOf('.') > objectName.lastIndexOf('/')
+                ? objectName.substring(0, objectName.lastIndexOf('.'))
+                : objectName;
+        return baseName + "_" + spec + ".jpg";
+    }
+
+    /**
+     * 衍生图规格，按尺寸从大到小排列
+     */
+    private Map<String, Integer> specs() {
+        Map<String, Integer> specs = new LinkedHashMap<>();
+        specs.put(MEDIUM, mediumSize);
+        specs.put(THUMBNAIL, thumbnailSize);
+        return specs;
+    }
+
+    /**
+     * 读取原图，解码前先检查像素数，避免超大图片耗尽内存；JPEG按EXIF方向摆正
+     *
+     * @return 图片，格式不支持或过大时返回null
+     */
+    private BufferedImage readImage(String url) throws IOException {
+        try (InputStream in = FileUtil.openFile(url);
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = imageInput != null
+                    ? ImageIO.getImageReaders(imageInput)
+                    : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                log.info("图片格式不支持，跳过衍生图: {}", url);
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, false);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxSourcePixels) {
+                    log.warn("图片像素过多，跳过衍生图: url={}, pixels={}", url, pixels);
+                    return null;
+                }
+                // 动图只取第一帧
+                BufferedImage image = reader.read(0);
+                return applyOrientation(image, readOrientation(reader));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 从JPEG元数据的APP1段读取EXIF方向，没有或无法解析时返回1（不需要旋转）
+     */
+    private int readOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !Arrays.asList(metadata.getMetadataFormatNames()).contains(JPEG_METADATA_FORMAT)) {
+                return 1;
+            }
+            NodeList markers = ((IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT)).getElementsByTagName("unknown");
+            for (int i = 0; i < markers.getLength(); i++) {
+                IIOMetadataNode marker = (IIOMetadataNode) markers.item(i);
+                if (String.valueOf(APP1_MARKER).equals(marker.getAttribute("MarkerTag"))
+                        && marker.getUserObject() instanceof byte[]) {
+                    int orientation = parseExifOrientation((byte[]) marker.getUserObject());
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("读取图片EXIF方向失败", e);
+        }
+        return 1;
+    }
+
+    /**
+     * 解析APP1段中的EXIF方向：Exif头 + TIFF头（字节序、IFD0偏移）+ IFD0条目
+     *
+     * @return 方向值1~8，不是EXIF数据或没有方向时返回0
+     */
+    private static int parseExifOrientation(byte[] data) {
+        int tiff = 6;
+        if (data.length < tiff + 8 || data[0] != 'E' || data[1] != 'x' || data[2] != 'i' || data[3] != 'f') {
+            return 0;
+        }
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > data.length) {
+            return 0;
+        }
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > data.length) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == EXIF_ORIENTATION_TAG) {
+                int orientation = readShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    /**
+     * 按EXIF方向摆正图片（2~8为镜像和旋转的组合，5~8宽高互换）
+     */
+    private BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform;
+        switch (orientation) {
+            case 2:
+                transform = new AffineTransform(-1, 0, 0, 1, w, 0);
+                break;
+            case 3:
+                transform = new AffineTransform(-1, 0, 0, -1, w, h);
+                break;
+            case 4:
+                transform = new AffineTransform(1, 0, 0, -1, 0, h);
+                break;
+            case 5:
+                transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+                break;
+            case 6:
+                transform = new AffineTransform(0, 1, -1, 0, h, 0);
+                break;
+            case 7:
+                transform = new AffineTransform(0, -1, -1, 0, h, w);
+                break;
+            case 8:
+                transform = new AffineTransform(0, -1, 1, 0, 0, w);
+                break;
+            default:
+                return image;
+        }
+        boolean swap = orientation >= 5;
+        BufferedImage rotated = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, rotated.getWidth(), rotated.getHeight());
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    /**
+     * 按最长边等比缩放，每次最多缩小一半以减少锯齿，透明背景填充为白色
+     */
+    private BufferedImage resize(BufferedImage source, int maxEdge) {
+        double scale = (double) maxEdge / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 提交到图片线程池，队列满或生成失败时只记录日志，读取时使用原图
+     */
+    private void submit(String target, DerivativeTask task) {
+        try {
+            imageExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.warn("生成衍生图失败: {}", target, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("图片处理队列已满，跳过衍生图: {}", target);
+        }
+    }
+
+    @FunctionalInterface
+    private interface DerivativeTask {
+        void run() throws Exception;
+    }
+}
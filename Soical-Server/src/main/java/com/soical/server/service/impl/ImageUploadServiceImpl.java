@@ -0,0 +1,253 @@
+package com.soical.server.service.impl;
+
+import com.soical.server.common.BusinessException;
+import com.soical.server.common.ResultCode;
+import com.soical.server.service.ImageDerivativeService;
+import com.soical.server.service.ImageUploadService;
+import com.soical.server.util.FileUtil;
+import com.soical.server.util.FileUtil.StoredFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 图片上传服务实现类
+ * 图片在上传线程池中并发上传，每张图片直接从上传临时文件流式写入存储。
+ * 图片按内容存储，只有本次新写入的文件才可能在保存失败后无人引用：登记到待清理集合（image:orphan:candidates），
+ * 定时任务在宽限期后删除原图及衍生图。
+ * 所有按内容存储的图片都经过本服务上传，上传到已有内容时记录到保留集合（image:orphan:retained）并移出待清理集合，
+ * 清理时跳过保留集合中的图片，不需要扫描各表的引用
+ */
+@Slf4j
+@Service
+public class ImageUploadServiceImpl implements ImageUploadService {
+
+    private static final String ORPHAN_CANDIDATES_KEY = "image:orphan:candidates";
+
+    /**
+     * 上传到已有内容的图片：URL -> 上传时间，这些图片被其他上传引用，清理时不能删除
+     */
+    private static final String ORPHAN_RETAINED_KEY = "image:orphan:retained";
+
+    private static final String ORPHAN_SWEEP_LOCK_KEY = "image:orphan:sweep:lock";
+
+    @Value("${upload.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    @Value("${upload.orphan.grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    @Value("${upload.orphan.sweep-interval-ms:3600000}")
+    private long orphanSweepIntervalMillis;
+
+    @Value("${upload.orphan.batch-size:50}")
+    private int orphanBatchSize;
+
+    @Value("${upload.orphan.retain-hours:24}")
+    private long orphanRetainHours;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    @Qualifier("uploadExecutor")
+    private AsyncTaskExecutor uploadExecutor;
+
+    @Override
+    public String uploadImage(MultipartFile image) {
+        return retain(new ArrayList<>(Collections.singletonList(FileUtil.storeImage(image)))).get(0).getUrl();
+    }
+
+    @Override
+    public List<StoredFile> uploadImages(List<MultipartFile> images) {
+        if (images == null || images.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 先校验全部图片，避免部分上传后才发现类型不支持
+        for (MultipartFile image : images) {
+            FileUtil.validateImage(image);
+        }
+        if (images.size() == 1) {
+            return retain(new ArrayList<>(Collections.singletonList(FileUtil.storeImage(images.get(0)))));
+        }
+
+        // 请求失败或超时返回后，multipart临时文件会被清理：尚未开始的上传直接跳过，进行中的上传被中断；
+        // 取消后仍完成的上传自行登记待清理
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Queue<StoredFile> completed = new ConcurrentLinkedQueue<>();
+        List<Future<StoredFile>> futures = new ArrayList<>(images.size());
+        for (MultipartFile image : images) {
+            futures.add(uploadExecutor.submit(() -> {
+                if (cancelled.get()) {
+                    throw new CancellationException();
+                }
+                StoredFile file = FileUtil.storeImage(image);
+                completed.add(file);
+                if (cancelled.get()) {
+                    releaseImages(Collections.singletonList(file));
+                }
+                return file;
+            }));
+        }
+
+        // 等待全部完成，收集成功的结果
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        List<StoredFile> storedFiles = new ArrayList<>(images.size());
+        RuntimeException failure = null;
+        for (Future<StoredFile> future : futures) {
+            try {
+                storedFiles.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof BusinessException
+                        ? (BusinessException) e.getCause()
+                        : new BusinessException(ResultCode.FAILED.getCode(), "图片上传失败");
+                log.error("图片上传失败", e.getCause());
+            } catch (TimeoutException e) {
+                failure = new BusinessException(ResultCode.FAILED.getCode(), "图片上传超时");
+                log.error("图片上传超时: timeout={}s", timeoutSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new BusinessException(ResultCode.FAILED.getCode(), "图片上传被中断");
+            }
+            if (failure != null) {
+                break;
+            }
+        }
+
+        if (failure != null) {
+            // 先置取消标记再收集已完成的上传，与上传任务中的检查配合，每个写入的文件至少登记一次
+            cancelled.set(true);
+            futures.forEach(future -> future.cancel(true));
+            releaseImages(new ArrayList<>(completed));
+            throw failure;
+        }
+        return retain(storedFiles);
+    }
+
+    @Override
+    public void releaseImages(List<StoredFile> storedFiles) {
+        if (storedFiles == null) {
+            return;
+        }
+        // 已存在的内容在本次上传前就有引用，只登记本次新写入的
+        List<String> urls = storedFiles.stream()
+                .filter(StoredFile::isCreated)
+                .map(StoredFile::getUrl)
+                .collect(Collectors.toList());
+        if (urls.isEmpty()) {
+            return;
+        }
+        try {
+            double now = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().add(ORPHAN_CANDIDATES_KEY, urls.stream()
+                    .map(url -> (ZSetOperations.TypedTuple<String>) new DefaultTypedTuple<>(url, now))
+                    .collect(Collectors.toSet()));
+        } catch (Exception e) {
+            // 登记失败只会留下未引用的文件，不影响已有数据
+            log.warn("登记待清理图片失败: {}", urls, e);
+        }
+    }
+
+    /**
+     * 清理无引用的图片
+     * 宽限期后仍在待清理集合中、且不在保留集合中的图片删除原图和衍生图；
+     * 登记时间早于保留集合有效期的，无法确认是否被再次上传，只移出集合不删除
+     */
+    @Scheduled(fixedDelayString = "${upload.orphan.sweep-interval-ms:3600000}",
+            initialDelayString = "${upload.orphan.sweep-interval-ms:3600000}")
+    public void sweepOrphanImages() {
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(ORPHAN_SWEEP_LOCK_KEY, "1", orphanSweepIntervalMillis, TimeUnit.MILLISECONDS);
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            long retainedSince = now - TimeUnit.HOURS.toMillis(orphanRetainHours);
+            stringRedisTemplate.opsForZSet().removeRangeByScore(ORPHAN_RETAINED_KEY, 0, retainedSince);
+            Long expired = stringRedisTemplate.opsForZSet().removeRangeByScore(ORPHAN_CANDIDATES_KEY, 0, retainedSince);
+            if (expired != null && expired > 0) {
+                log.warn("待清理图片超过保留集合有效期，跳过删除: count={}", expired);
+            }
+
+            long before = now - TimeUnit.MINUTES.toMillis(orphanGraceMinutes);
+            Set<String> candidates = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(ORPHAN_CANDIDATES_KEY, retainedSince, before, 0, orphanBatchSize);
+            if (candidates == null || candidates.isEmpty()) {
+                return;
+            }
+
+            List<Object> retained = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String url : candidates) {
+                    connection.zSetCommands().zScore(toBytes(ORPHAN_RETAINED_KEY), toBytes(url));
+                }
+                return null;
+            });
+            int deleted = 0;
+            int index = 0;
+            for (String url : candidates) {
+                boolean referenced = retained.get(index++) != null;
+                // 先移出集合再删除，同一内容在此之前再次上传时已被移出，不会删除
+                Long removed = stringRedisTemplate.opsForZSet().remove(ORPHAN_CANDIDATES_KEY, url);
+                if (removed != null && removed > 0 && !referenced) {
+                    FileUtil.deleteFile(url);
+                    imageDerivativeService.deleteDerivatives(url);
+                    deleted++;
+                }
+            }
+            log.info("清理无引用图片完成: candidates={}, deleted={}", candidates.size(), deleted);
+        } catch (Exception e) {
+            log.warn("清理无引用图片失败", e);
+        }
+    }
+
+    /**
+     * 再次上传到已有内容的图片不再是待清理的孤儿
+     * 同时记录到保留集合：首次上传的保存可能在此之后才失败并登记待清理，清理时仍能知道该内容被再次上传过
+     */
+    private List<StoredFile> retain(List<StoredFile> storedFiles) {
+        List<String> urls = storedFiles.stream()
+                .filter(file -> !file.isCreated())
+                .map(StoredFile::getUrl)
+                .collect(Collectors.toList());
+        if (!urls.isEmpty()) {
+            try {
+                double now = System.currentTimeMillis();
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (String url : urls) {
+                        connection.zSetCommands().zAdd(toBytes(ORPHAN_RETAINED_KEY), now, toBytes(url));
+                        connection.zSetCommands().zRem(toBytes(ORPHAN_CANDIDATES_KEY), toBytes(url));
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("移出待清理图片失败", e);
+            }
+        }
+        return storedFiles;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
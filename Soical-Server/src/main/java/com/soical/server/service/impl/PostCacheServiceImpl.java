@@ -0,0 +1,423 @@
+package com.soical.server.service.impl;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soical.server.dto.PostDTO;
+import com.soical.server.service.PostCacheService;
+import com.soical.server.util.TransactionUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 动态缓存服务实现类
+ * 详情键为 post:cache:detail:{postId}，回填只在键不存在时写入；动态删除或下架时写入短期墓碑而不是删除键，
+ * 失效前开始的加载不会把已删除的动态写回缓存；
+ * 列表页键带全局版本号和列表范围（推荐、某个城市）版本号，失效时递增对应版本号，旧版本的键自然过期。
+ * 失效消息通过Redis频道广播，各实例收到后清理本地缓存
+ */
+@Slf4j
+@Service
+public class PostCacheServiceImpl implements PostCacheService {
+
+    private static final String DETAIL_KEY_PREFIX = "post:cache:detail:";
+
+    private static final String FEED_KEY_PREFIX = "post:cache:feed:";
+
+    private static final String FEED_VERSION_KEY = "post:cache:feed:version";
+
+    /**
+     * 列表范围版本号键前缀：post:cache:feed:scope-version:{范围}
+     */
+    private static final String FEED_SCOPE_VERSION_KEY_PREFIX = "post:cache:feed:scope-version:";
+
+    /**
+     * 详情缓存墓碑值，存在期间不回填
+     */
+    private static final String TOMBSTONE = "-";
+
+    /**
+     * 失效广播频道，消息格式为 posts:{id,id...}、feeds:{version} 或 scope:{version}:{范围}
+     */
+    private static final String EVICT_CHANNEL = "post:cache:evict";
+
+    private static final String POSTS_MESSAGE_PREFIX = "posts:";
+
+    private static final String FEEDS_MESSAGE_PREFIX = "feeds:";
+
+    private static final String SCOPE_MESSAGE_PREFIX = "scope:";
+
+    @Value("${post.cache.local-max-size:1000}")
+    private int localMaxSize;
+
+    @Value("${post.cache.local-ttl-seconds:10}")
+    private long localTtlSeconds;
+
+    @Value("${post.cache.detail-ttl-seconds:300}")
+    private long detailTtlSeconds;
+
+    @Value("${post.cache.feed-ttl-seconds:30}")
+    private long feedTtlSeconds;
+
+    @Value("${post.cache.tombstone-seconds:10}")
+    private long tombstoneSeconds;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LocalCache<Long, PostDTO> localDetails;
+
+    private LocalCache<String, CachedFeedPage> localFeeds;
+
+    /**
+     * 当前列表页缓存版本号
+     */
+    private volatile long feedVersion;
+
+    /**
+     * 各列表范围的缓存版本号，首次使用时从Redis读取，之后随失效消息更新
+     */
+    private final Map<String, Long> scopeVersions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        long ttlMillis = TimeUnit.SECONDS.toMillis(localTtlSeconds);
+        localDetails = new LocalCache<>(localMaxSize, ttlMillis);
+        localFeeds = new LocalCache<>(localMaxSize, ttlMillis);
+        try {
+            String version = stringRedisTemplate.opsForValue().get(FEED_VERSION_KEY);
+            feedVersion = version != null ? Long.parseLong(version) : 0;
+        } catch (Exception e) {
+            log.warn("读取动态列表缓存版本号失败", e);
+        }
+        redisMessageListenerContainer.addMessageListener(evictListener(), new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    @Override
+    public PostDTO getPostDetail(Long postId, Supplier<PostDTO> loader) {
+        // 1. 本地缓存
+        PostDTO cached = localDetails.get(postId);
+        if (cached != null) {
+            return copy(cached);
+        }
+
+        // 2. Redis缓存
+        String key = DETAIL_KEY_PREFIX + postId;
+        String json = readRaw(key);
+        if (TOMBSTONE.equals(json)) {
+            // 动态刚被删除或下架，直接加载，不回填
+            PostDTO loaded = loader.get();
+            return loaded != null ? copy(loaded) : null;
+        }
+        cached = parseJson(key, json, new TypeReference<PostDTO>() {});
+        if (cached == null) {
+            // 3. 加载并回填，键已被写入墓碑或其他值时放弃，本地也不缓存
+            cached = loader.get();
+            if (!writeJsonIfAbsent(key, cached, detailTtlSeconds)) {
+                return cached != null ? copy(cached) : null;
+            }
+        }
+        localDetails.put(postId, cached);
+        return copy(cached);
+    }
+
+    @Override
+    public Page<PostDTO> getFeedPage(String feedType, String city, Integer page, Integer pageSize,
+                                     Supplier<Page<PostDTO>> loader) {
+        String scope = feedScope(feedType, city);
+        String pageKey = feedType + ":" + (city != null ? city : "") + ":" + page + ":" + pageSize;
+        String versionedKey = feedVersion + ":" + getScopeVersion(scope) + ":" + pageKey;
+
+        CachedFeedPage cached = localFeeds.get(versionedKey);
+        if (cached == null) {
+            String key = FEED_KEY_PREFIX + versionedKey;
+            cached = readJson(key, new TypeReference<CachedFeedPage>() {});
+            if (cached == null) {
+                Page<PostDTO> loaded = loader.get();
+                cached = new CachedFeedPage();
+                cached.setRecords(loaded.getRecords());
+                cached.setTotal(loaded.getTotal());
+                writeJson(key, cached, feedTtlSeconds);
+            }
+            localFeeds.put(versionedKey, cached);
+        }
+
+        Page<PostDTO> result = new Page<>(page, pageSize);
+        result.setRecords(cached.getRecords().stream().map(this::copy).collect(Collectors.toList()));
+        result.setTotal(cached.getTotal());
+        return result;
+    }
+
+    @Override
+    public void evictPosts(Collection<Long> postIds) {
+        evictDetails(postIds, false);
+    }
+
+    @Override
+    public void evictRemovedPosts(Collection<Long> postIds) {
+        evictDetails(postIds, true);
+    }
+
+    @Override
+    public void evictFeeds() {
+        TransactionUtils.afterCommit(() -> {
+            localFeeds.clear();
+            try {
+                Long version = stringRedisTemplate.opsForValue().increment(FEED_VERSION_KEY);
+                if (version != null) {
+                    feedVersion = Math.max(feedVersion, version);
+                    stringRedisTemplate.convertAndSend(EVICT_CHANNEL, FEEDS_MESSAGE_PREFIX + version);
+                }
+            } catch (Exception e) {
+                log.warn("动态列表缓存失效失败", e);
+            }
+        });
+    }
+
+    @Override
+    public void evictCityFeed(String city) {
+        if (city == null || city.isEmpty()) {
+            return;
+        }
+        String scope = feedScope(FEED_CITY, city);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                Long version = stringRedisTemplate.opsForValue().increment(FEED_SCOPE_VERSION_KEY_PREFIX + scope);
+                if (version != null) {
+                    scopeVersions.merge(scope, version, Math::max);
+                    stringRedisTemplate.convertAndSend(EVICT_CHANNEL, SCOPE_MESSAGE_PREFIX + version + ":" + scope);
+                }
+            } catch (Exception e) {
+                log.warn("同城动态列表缓存失效失败: city={}", city, e);
+            }
+        });
+    }
+
+    /**
+     * 使动态详情缓存失效
+     *
+     * @param tombstone 是否写入墓碑（而不是删除键），墓碑存在期间不回填
+     */
+    private void evictDetails(Collection<Long> postIds, boolean tombstone) {
+        if (postIds == null || postIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(postIds);
+        TransactionUtils.afterCommit(() -> {
+            ids.forEach(localDetails::remove);
+            try {
+                if (tombstone) {
+                    stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                        byte[] value = TOMBSTONE.getBytes(StandardCharsets.UTF_8);
+                        for (Long id : ids) {
+                            connection.stringCommands().setEx(
+                                    (DETAIL_KEY_PREFIX + id).getBytes(StandardCharsets.UTF_8), tombstoneSeconds, value);
+                        }
+                        return null;
+                    });
+                } else {
+                    stringRedisTemplate.delete(ids.stream().map(id -> DETAIL_KEY_PREFIX + id).collect(Collectors.toList()));
+                }
+                String joined = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+                stringRedisTemplate.convertAndSend(EVICT_CHANNEL, POSTS_MESSAGE_PREFIX + joined);
+            } catch (Exception e) {
+                log.warn("动态详情缓存失效失败: postIds={}", ids, e);
+            }
+        });
+    }
+
+    /**
+     * 列表的失效范围：同城列表按城市区分，其余列表按类型
+     */
+    private String feedScope(String feedType, String city) {
+        return FEED_CITY.equals(feedType) ? feedType + ":" + (city != null ? city : "") : feedType;
+    }
+
+    private long getScopeVersion(String scope) {
+        return scopeVersions.computeIfAbsent(scope, k -> {
+            try {
+                String version = stringRedisTemplate.opsForValue().get(FEED_SCOPE_VERSION_KEY_PREFIX + k);
+                return version != null ? Long.parseLong(version) : 0L;
+            } catch (Exception e) {
+                log.warn("读取动态列表范围版本号失败: scope={}", k, e);
+                return 0L;
+            }
+        });
+    }
+
+    /**
+     * 失效消息监听器，清理本实例的本地缓存
+     */
+    private MessageListener evictListener() {
+        return (message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                if (body.startsWith(POSTS_MESSAGE_PREFIX)) {
+                    for (String id : body.substring(POSTS_MESSAGE_PREFIX.length()).split(",")) {
+                        localDetails.remove(Long.valueOf(id));
+                    }
+                } else if (body.startsWith(FEEDS_MESSAGE_PREFIX)) {
+                    long version = Long.parseLong(body.substring(FEEDS_MESSAGE_PREFIX.length()));
+                    if (version > feedVersion) {
+                        feedVersion = version;
+                    }
+                    localFeeds.clear();
+                } else if (body.startsWith(SCOPE_MESSAGE_PREFIX)) {
+                    String rest = body.substring(SCOPE_MESSAGE_PREFIX.length());
+                    int separator = rest.indexOf(':');
+                    scopeVersions.merge(rest.substring(separator + 1),
+                            Long.parseLong(rest.substring(0, separator)), Math::max);
+                }
+            } catch (RuntimeException e) {
+                log.warn("处理动态缓存失效消息失败: {}", body, e);
+            }
+        };
+    }
+
+    private <T> T readJson(String key, TypeReference<T> type) {
+        return parseJson(key, readRaw(key), type);
+    }
+
+    private String readRaw(String key) {
+        try {
+            return stringRedisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取动态缓存失败: key={}", key, e);
+            return null;
+        }
+    }
+
+    private <T> T parseJson(String key, String json, TypeReference<T> type) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            log.warn("解析动态缓存失败: key={}", key, e);
+            return null;
+        }
+    }
+
+    private void writeJson(String key, Object value, long ttlSeconds) {
+        if (value == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value), ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入动态缓存失败: key={}", key, e);
+        }
+    }
+
+    /**
+     * 键不存在时写入
+     *
+     * @return 是否写入成功
+     */
+    private boolean writeJsonIfAbsent(String key, Object value, long ttlSeconds) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(
+                    key, objectMapper.writeValueAsString(value), ttlSeconds, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("写入动态缓存失败: key={}", key, e);
+            return false;
+        }
+    }
+
+    /**
+     * 复制缓存中的动态，调用方填充点赞状态时不影响缓存
+     */
+    private PostDTO copy(PostDTO source) {
+        PostDTO target = new PostDTO();
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+
+    /**
+     * 缓存的动态列表页
+     */
+    @Data
+    public static class CachedFeedPage {
+        private List<PostDTO> records = new ArrayList<>();
+        private long total;
+    }
+
+    /**
+     * 带过期时间的LRU本地缓存
+     */
+    private static class LocalCache<K, V> {
+        private final long ttlMillis;
+        private final Map<K, Entry<V>> entries;
+
+        LocalCache(int maxSize, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = Collections.synchronizedMap(new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    return size() > maxSize;
+                }
+            });
+        }
+
+        V get(K key) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        void put(K key, V value) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        }
+
+        void remove(K key) {
+            entries.remove(key);
+        }
+
+        void clear() {
+            entries.clear();
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.soical.server.service.impl;
+
+import com.soical.server.dto.PostCounterDelta;
+import com.soical.server.entity.Post;
+import com.soical.server.mapper.PostMapper;
+import com.soical.server.service.PostCacheService;
+import com.soical.server.service.PostCounterService;
+import com.soical.server.service.PostHotScoreService;
+import com.soical.server.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 动态计数服务实现类
+ * 每个动态的待写回增量保存在内存中，写回时按批生成一条UPDATE。
+ * 正在写回的增量单独保存，UPDATE完成前读取时仍然合并，避免计数短暂回退
+ */
+@Slf4j
+@Service
+public class PostCounterServiceImpl implements PostCounterService {
+
+    /**
+     * 每批写回的动态数
+     */
+    private static final int FLUSH_BATCH_SIZE = 200;
+
+    @Autowired
+    private PostMapper postMapper;
+
+    @Autowired
+    private PostHotScoreService postHotScoreService;
+
+    @Autowired
+    private PostCacheService postCacheService;
+
+    /**
+     * 动态ID -> 待写回的增量
+     */
+    private final Map<Long, PendingCounts> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 动态ID -> 正在写回的增量
+     */
+    private final Map<Long, PendingCounts> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(Long postId, CounterType type, long delta) {
+        if (postId == null || type == null || delta == 0) {
+            return;
+        }
+        // 事务回滚时计数不变
+        TransactionUtils.afterCommit(() -> add(postId, type, delta));
+    }
+
+    @Override
+    public void applyPending(Collection<Post> posts) {
+        if (pending.isEmpty() && inFlight.isEmpty()) {
+            return;
+        }
+        for (Post post : posts) {
+            PendingCounts counts = pending.get(post.getPostId());
+            PendingCounts flushing = inFlight.get(post.getPostId());
+            if (counts == null && flushing == null) {
+                continue;
+            }
+            post.setLikeCount(merge(post.getLikeCount(), sum(counts, flushing, CounterType.LIKE)));
+            post.setCommentCount(merge(post.getCommentCount(), sum(counts, flushing, CounterType.COMMENT)));
+            post.setShareCount(merge(post.getShareCount(), sum(counts, flushing, CounterType.SHARE)));
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${post.counter.flush-interval-ms:3000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // 1. 将增量从待写回转入写回中（先加后减，读取时不会漏掉），没有新增量的动态从表中移除
+        List<PostCounterDelta> deltas = new ArrayList<>();
+        for (Long postId : pending.keySet()) {
+            PendingCounts counts = pending.get(postId);
+            if (counts == null) {
+                continue;
+            }
+            PostCounterDelta delta = new PostCounterDelta();
+            delta.setPostId(postId);
+            delta.setLikeDelta(counts.like.get());
+            delta.setCommentDelta(counts.comment.get());
+            delta.setShareDelta(counts.share.get());
+            if (delta.getLikeDelta() != 0 || delta.getCommentDelta() != 0 || delta.getShareDelta() != 0) {
+                addAll(inFlight, delta, 1);
+                addAll(pending, delta, -1);
+                deltas.add(delta);
+            }
+            pending.computeIfPresent(postId, (id, current) -> current.isEmpty() ? null : current);
+        }
+
+        // 2. 分批写回
+        for (int from = 0; from < deltas.size(); from += FLUSH_BATCH_SIZE) {
+            List<PostCounterDelta> batch = deltas.subList(from, Math.min(from + FLUSH_BATCH_SIZE, deltas.size()));
+            try {
+                postMapper.applyCounterDeltas(batch);
+            } catch (Exception e) {
+                // 写回失败时放回待写回增量，下次重试
+                for (PostCounterDelta delta : batch) {
+                    addAll(pending, delta, 1);
+                    addAll(inFlight, delta, -1);
+                }
+                log.error("写回动态计数失败: size={}", batch.size(), e);
+                continue;
+            }
+
+            // 计数已写回，移除写回中的增量后再使详情缓存失效，
+            // 失效前按新计数加增量读取并回填的缓存会被清掉；热度按新计数重算
+            batch.forEach(delta -> addAll(inFlight, delta, -1));
+            List<Long> postIds = new ArrayList<>(batch.size());
+            batch.forEach(delta -> postIds.add(delta.getPostId()));
+            postIds.forEach(postHotScoreService::markDirty);
+            postCacheService.evictPosts(postIds);
+        }
+    }
+
+    /**
+     * 关闭前写回剩余的增量
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 累加增量，与写回时的移除互斥，避免增量写入已移除的对象
+     */
+    private void add(Long postId, CounterType type, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        pending.compute(postId, (id, counts) -> {
+            if (counts == null) {
+                counts = new PendingCounts();
+            }
+            counts.get(type).addAndGet(delta);
+            return counts;
+        });
+    }
+
+    /**
+     * 将一个动态的三项增量乘以sign后累加到指定表，累加后为零的项从表中移除
+     */
+    private static void addAll(Map<Long, PendingCounts> target, PostCounterDelta delta, int sign) {
+        target.compute(delta.getPostId(), (id, counts) -> {
+            if (counts == null) {
+                counts = new PendingCounts();
+            }
+            counts.like.addAndGet(sign * delta.getLikeDelta());
+            counts.comment.addAndGet(sign * delta.getCommentDelta());
+            counts.share.addAndGet(sign * delta.getShareDelta());
+            return counts.isEmpty() ? null : counts;
+        });
+    }
+
+    private static long sum(PendingCounts counts, PendingCounts flushing, CounterType type) {
+        return (counts != null ? counts.get(type).get() : 0) + (flushing != null ? flushing.get(type).get() : 0);
+    }
+
+    private static Integer merge(Integer persisted, long delta) {
+        long value = (persisted != null ? persisted : 0) + delta;
+        return (int) Math.max(value, 0);
+    }
+
+    /**
+     * 单个动态的待写回增量
+     */
+    private static class PendingCounts {
+        private final AtomicLong like = new AtomicLong();
+        private final AtomicLong comment = new AtomicLong();
+        private final AtomicLong share = new AtomicLong();
+
+        AtomicLong get(CounterType type) {
+            switch (type) {
+                case LIKE:
+                    return like;
+                case COMMENT:
+                    return comment;
+                default:
+                    return share;
+            }
+        }
+
+        boolean isEmpty() {
+            return like.get() == 0 && comment.get() == 0 && share.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.soical.server.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.soical.server.entity.Post;
+import com.soical.server.mapper.PostMapper;
+import com.soical.server.service.PostHotScoreService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 动态热度服务实现类
+ * 热度评分公式：(点赞数 * 2 + 评论数 * 3 + 分享数 * 5) / (当前时间 - 发布时间的小时数 + 2)^gravity
+ * 重算在数据库中按当前计数批量完成，热门排行保存在有序集合 post:hot 中
+ */
+@Slf4j
+@Service
+public class PostHotScoreServiceImpl implements PostHotScoreService {
+
+    /**
+     * 热门排行键
+     */
+    private static final String RANKING_KEY = "post:hot";
+
+    /**
+     * 重建排行时使用的临时键前缀，每次重建使用独立的键，避免多个实例互相覆盖
+     */
+    private static final String RANKING_TMP_KEY_PREFIX = "post:hot:tmp:";
+
+    /**
+     * 全量刷新分布式锁，多实例部署时每个周期只由一个实例执行
+     */
+    private static final String REFRESH_LOCK_KEY = "post:hot:refresh:lock";
+
+    private static final int LIKE_WEIGHT = 2;
+    private static final int COMMENT_WEIGHT = 3;
+    private static final int SHARE_WEIGHT = 5;
+
+    /**
+     * 每批重算的动态数
+     */
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    @Value("${post.hot-score.gravity:1.2}")
+    private double gravity;
+
+    @Value("${post.hot-score.window-days:7}")
+    private int windowDays;
+
+    @Value("${post.hot-score.ranking-size:500}")
+    private int rankingSize;
+
+    @Value("${post.hot-score.refresh-lock-seconds:240}")
+    private long refreshLockSeconds;
+
+    @Autowired
+    private PostMapper postMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 待重算的动态ID，同一动态的多次互动只重算一次
+     */
+    private final Set<Long> dirtyPostIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    @Override
+    public void markDirty(Long postId) {
+        if (postId != null) {
+            dirtyPostIds.add(postId);
+        }
+    }
+
+    @Override
+    public void remove(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        dirtyPostIds.remove(postId);
+        try {
+            stringRedisTemplate.opsForZSet().remove(RANKING_KEY, postId.toString());
+        } catch (Exception e) {
+            log.warn("从热门排行移除动态失败: postId={}", postId, e);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${post.hot-score.flush-interval-ms:10000}")
+    public void flushDirty() {
+        if (dirtyPostIds.isEmpty()) {
+            return;
+        }
+
+        // 逐个取出，刷新期间新标记的动态留到下次
+        List<Long> postIds = new ArrayList<>();
+        Iterator<Long> iterator = dirtyPostIds.iterator();
+        while (iterator.hasNext()) {
+            postIds.add(iterator.next());
+            iterator.remove();
+        }
+
+        for (int from = 0; from < postIds.size(); from += FLUSH_BATCH_SIZE) {
+            List<Long> batch = postIds.subList(from, Math.min(from + FLUSH_BATCH_SIZE, postIds.size()));
+            try {
+                postMapper.recomputeHotScores(batch, null, LIKE_WEIGHT, COMMENT_WEIGHT, SHARE_WEIGHT, gravity);
+                List<Post> posts = postMapper.selectList(Wrappers.lambdaQuery(Post.class)
+                        .select(Post::getPostId, Post::getHotScore, Post::getStatus)
+                        .in(Post::getPostId, batch));
+                updateRanking(posts);
+            } catch (Exception e) {
+                // 重算失败的动态放回，下次重试
+                dirtyPostIds.addAll(batch);
+                log.error("重算动态热度失败: size={}", batch.size(), e);
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${post.hot-score.refresh-interval-ms:300000}",
+            initialDelayString = "${post.hot-score.refresh-initial-delay-ms:30000}")
+    public void refreshAll() {
+        if (!refreshing.compareAndSet(false, true)) {
+            log.info("动态热度正在刷新，跳过本次执行");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            // 锁在过期前不释放，其他实例本周期不再重复执行
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(REFRESH_LOCK_KEY, "1", refreshLockSeconds, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.info("动态热度已由其他实例刷新，跳过本次执行");
+                return;
+            }
+
+            // 1. 重算时间窗口内的全部动态，未被互动的动态也随时间衰减
+            LocalDateTime since = LocalDateTime.now().minusDays(windowDays);
+            int updated = postMapper.recomputeHotScores(null, since, LIKE_WEIGHT, COMMENT_WEIGHT, SHARE_WEIGHT, gravity);
+
+            // 2. 重建热门排行，写入临时键后整体替换
+            List<Post> topPosts = postMapper.selectList(Wrappers.lambdaQuery(Post.class)
+                    .select(Post::getPostId, Post::getHotScore)
+                    .eq(Post::getStatus, 1)
+                    .orderByDesc(Post::getHotScore)
+                    .orderByDesc(Post::getPostId)
+                    .last("LIMIT " + rankingSize));
+            if (topPosts.isEmpty()) {
+                stringRedisTemplate.delete(RANKING_KEY);
+            } else {
+                Set<ZSetOperations.TypedTuple<String>> tuples = topPosts.stream()
+                        .map(post -> ZSetOperations.TypedTuple.of(post.getPostId().toString(), scoreOf(post)))
+                        .collect(Collectors.toSet());
+                String tmpKey = RANKING_TMP_KEY_PREFIX + UUID.randomUUID();
+                try {
+                    stringRedisTemplate.opsForZSet().add(tmpKey, tuples);
+                    stringRedisTemplate.rename(tmpKey, RANKING_KEY);
+                } catch (RuntimeException e) {
+                    stringRedisTemplate.delete(tmpKey);
+                    throw e;
+                }
+            }
+
+            log.info("动态热度刷新完成: updated={}, ranking={}, cost={}ms",
+                    updated, topPosts.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("动态热度刷新失败", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    @Override
+    public List<Long> getHotPostIds(long offset, int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(RANKING_KEY, offset, offset + count - 1);
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return members.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public long getRankingSize() {
+        Long size = stringRedisTemplate.opsForZSet().zCard(RANKING_KEY);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 将重算后的动态写入排行，并裁剪到排行容量
+     * 排行尚未构建时跳过，等待全量刷新
+     */
+    private void updateRanking(List<Post> posts) {
+        if (posts.isEmpty() || !Boolean.TRUE.equals(stringRedisTemplate.hasKey(RANKING_KEY))) {
+            return;
+        }
+        byte[] rawKey = toBytes(RANKING_KEY);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Post post : posts) {
+                byte[] member = toBytes(post.getPostId().toString());
+                if (post.getStatus() != null && post.getStatus() == 1) {
+                    connection.zSetCommands().zAdd(rawKey, scoreOf(post), member);
+                } else {
+                    connection.zSetCommands().zRem(rawKey, member);
+                }
+            }
+            connection.zSetCommands().zRemRange(rawKey, 0, -(rankingSize + 1L));
+            return null;
+        });
+    }
+
+    private static double scoreOf(Post post) {
+        return post.getHotScore() != null ? post.getHotScore() : 0D;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -8,26 +8,69 @@ import com.soical.server.entity.Post;
 import com.soical.server.entity.PostLike;
 import com.soical.server.entity.User;
 import com.soical.server.mapper.PostLikeMapper;
+import com.soical.server.service.PostCounterService;
 import com.soical.server.service.PostLikeService;
 import com.soical.server.service.PostService;
+import com.soical.server.service.UserActivityService;
 import com.soical.server.service.UserService;
+import com.soical.server.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 动态点赞服务实现类
  */
+@Slf4j
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class PostLikeServiceImpl extends ServiceImpl<PostLikeMapper, PostLike> implements PostLikeService {
 
+    /**
+     * 用户点赞集合缓存键前缀：post:liked:{userId}
+     */
+    private static final String LIKED_CACHE_KEY_PREFIX = "post:liked:";
+
+    /**
+     * 集合已完整加载的标记成员
+     */
+    private static final String LIKED_CACHE_LOADED = "loaded";
+
+    /**
+     * 点赞数超过上限、不做缓存的标记成员
+     */
+    private static final String LIKED_CACHE_OVERFLOW = "overflow";
+
+    @Value("${post.liked-cache.max-size:5000}")
+    private int likedCacheMaxSize;
+
+    @Value("${post.liked-cache.ttl-minutes:30}")
+    private long likedCacheTtlMinutes;
+
     private final UserService userService;
     private final ApplicationContext applicationContext;
+    private final UserActivityService userActivityService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostCounterService postCounterService;
     
     // 使用懒加载方式获取PostService，避免循环依赖
     private PostService getPostService() {
@@ -36,9 +79,15 @@ public class PostLikeServiceImpl extends ServiceImpl<PostLikeMapper, PostLike> i
     
     @Autowired
     public PostLikeServiceImpl(UserService userService, 
-                             ApplicationContext applicationContext) {
+                             ApplicationContext applicationContext,
+                             UserActivityService userActivityService,
+                             StringRedisTemplate stringRedisTemplate,
+                             PostCounterService postCounterService) {
         this.userService = userService;
         this.applicationContext = applicationContext;
+        this.userActivityService = userActivityService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.postCounterService = postCounterService;
     }
 
     @Override
@@ -69,8 +118,9 @@ public class PostLikeServiceImpl extends ServiceImpl<PostLikeMapper, PostLike> i
         boolean saved = save(postLike);
         if (saved) {
             // 更新动态点赞数
-            post.setLikeCount(post.getLikeCount() + 1);
-            getPostService().updateById(post);
+            postCounterService.increment(postId, PostCounterService.CounterType.LIKE, 1);
+            userActivityService.record(userId, UserActivityService.ActivityType.LIKE);
+            updateLikedCache(userId, postId, true);
         }
 
         return saved;
@@ -92,11 +142,8 @@ public class PostLikeServiceImpl extends ServiceImpl<PostLikeMapper, PostLike> i
         boolean removed = removeById(postLike.getLikeId());
         if (removed) {
             // 更新动态点赞数
-            Post post = getPostService().getById(postId);
-            if (post != null) {
-                post.setLikeCount(Math.max(0, post.getLikeCount() - 1));
-                getPostService().updateById(post);
-            }
+            postCounterService.increment(postId, PostCounterService.CounterType.LIKE, -1);
+            updateLikedCache(userId, postId, false);
         }
 
         return removed;
@@ -122,4 +169,147 @@ public class PostLikeServiceImpl extends ServiceImpl<PostLikeMapper, PostLike> i
                 .map(PostLike::getUserId)
                 .collect(Collectors.toList());
     }
-} 
\ No newline at end of file
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Set<Long> getLikedPostIds(Long userId, Collection<Long> postIds) {
+        if (userId == null || postIds == null || postIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> distinctPostIds = postIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (distinctPostIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // 1. 优先从Redis点赞集合判断
+        String key = LIKED_CACHE_KEY_PREFIX + userId;
+        Boolean cacheState = null;
+        try {
+            List<Object> flags = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] rawKey = toBytes(key);
+                connection.setCommands().sIsMember(rawKey, toBytes(LIKED_CACHE_LOADED));
+                connection.setCommands().sIsMember(rawKey, toBytes(LIKED_CACHE_OVERFLOW));
+                for (Long postId : distinctPostIds) {
+                    connection.setCommands().sIsMember(rawKey, toBytes(postId.toString()));
+                }
+                return null;
+            });
+            if (Boolean.TRUE.equals(flags.get(0))) {
+                Set<Long> liked = new HashSet<>();
+                for (int i = 0; i < distinctPostIds.size(); i++) {
+                    if (Boolean.TRUE.equals(flags.get(i + 2))) {
+                        liked.add(distinctPostIds.get(i));
+                    }
+                }
+                return liked;
+            }
+            cacheState = Boolean.TRUE.equals(flags.get(1));
+        } catch (Exception e) {
+            log.warn("读取点赞缓存失败: userId={}", userId, e);
+        }
+
+        // 2. 一次IN查询（命中uk_post_user索引）
+        LambdaQueryWrapper<PostLike> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(PostLike::getPostId)
+                .in(PostLike::getPostId, distinctPostIds)
+                .eq(PostLike::getUserId, userId);
+        Set<Long> liked = list(wrapper).stream()
+                .map(PostLike::getPostId)
+                .collect(Collectors.toSet());
+
+        // 3. 缓存未建立且点赞数不过大时，加载该用户的点赞集合
+        // （本方法不在事务中执行，加载时的查询不会沿用步骤2的快照，能看到WATCH之前已提交的点赞）
+        if (Boolean.FALSE.equals(cacheState)) {
+            loadLikedCache(userId);
+        }
+        return liked;
+    }
+
+    @Override
+    public void updateLikedCache(Long userId, Long postId, boolean liked) {
+        if (userId == null || postId == null) {
+            return;
+        }
+        Runnable update = () -> {
+            String key = LIKED_CACHE_KEY_PREFIX + userId;
+            try {
+                // 无论集合是否已建立都写入：未建立时只产生不带加载标记的部分集合，读取时仍会重新加载；
+                // 写入同时使正在进行的加载失效（加载通过WATCH检测该键的修改）
+                byte[] rawKey = toBytes(key);
+                byte[] member = toBytes(postId.toString());
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    if (liked) {
+                        connection.setCommands().sAdd(rawKey, member);
+                    } else {
+                        connection.setCommands().sRem(rawKey, member);
+                    }
+                    connection.keyCommands().expire(rawKey, TimeUnit.MINUTES.toSeconds(likedCacheTtlMinutes));
+                    return null;
+                });
+            } catch (Exception e) {
+                // 更新失败时删除整个集合，下次重新加载
+                log.warn("更新点赞缓存失败: userId={}, postId={}", userId, postId, e);
+                stringRedisTemplate.delete(key);
+            }
+        };
+
+        // 在事务提交后更新，避免回滚后缓存与数据库不一致
+        TransactionUtils.afterCommit(update);
+    }
+
+    /**
+     * 加载用户的点赞集合到Redis
+     * 点赞数超过上限时只写入溢出标记，之后该用户一直走数据库查询。
+     * 先WATCH集合再查询数据库，查询后有点赞或取消点赞写入集合时放弃本次加载，
+     * 避免用查询时的旧结果覆盖并发的修改
+     */
+    private void loadLikedCache(Long userId) {
+        String key = LIKED_CACHE_KEY_PREFIX + userId;
+        try {
+            stringRedisTemplate.execute(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.watch(key);
+
+                    List<PostLike> likes;
+                    try {
+                        LambdaQueryWrapper<PostLike> wrapper = new LambdaQueryWrapper<>();
+                        wrapper.select(PostLike::getPostId)
+                                .eq(PostLike::getUserId, userId)
+                                .last("LIMIT " + (likedCacheMaxSize + 1));
+                        likes = list(wrapper);
+                    } catch (RuntimeException e) {
+                        ops.unwatch();
+                        throw e;
+                    }
+
+                    List<String> members = new ArrayList<>(likes.size() + 1);
+                    if (likes.size() > likedCacheMaxSize) {
+                        members.add(LIKED_CACHE_OVERFLOW);
+                    } else {
+                        likes.forEach(like -> members.add(like.getPostId().toString()));
+                        members.add(LIKED_CACHE_LOADED);
+                    }
+
+                    ops.multi();
+                    ops.delete(key);
+                    ops.opsForSet().add(key, members.toArray(new String[0]));
+                    ops.expire(key, likedCacheTtlMinutes, TimeUnit.MINUTES);
+                    ops.exec();
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("加载点赞缓存失败: userId={}", userId, e);
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
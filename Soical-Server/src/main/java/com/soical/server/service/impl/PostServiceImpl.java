@@ -8,34 +8,48 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.soical.server.common.BusinessException;
 import com.soical.server.common.ResultCode;
+import com.soical.server.dto.CursorPage;
 import com.soical.server.dto.PostDTO;
 import com.soical.server.entity.Post;
 import com.soical.server.entity.PostLike;
 import com.soical.server.entity.User;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.PostMapper;
+import com.soical.server.service.ImageDerivativeService;
+import com.soical.server.service.ImageUploadService;
+import com.soical.server.service.PostCacheService;
+import com.soical.server.service.PostCounterService;
+import com.soical.server.service.PostHotScoreService;
 import com.soical.server.service.PostLikeService;
 import com.soical.server.service.PostService;
-import com.soical.server.service.UserFollowService;
+import com.soical.server.service.PostTimelineService;
+import com.soical.server.service.UserActivityService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
-import com.soical.server.util.FileUtil;
+import com.soical.server.util.CursorUtil;
+import com.soical.server.util.FileUtil.StoredFile;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 动态服务实现类
@@ -45,19 +59,32 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements PostService {
 
+    /**
+     * 游标分页单页最大条数
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 50;
+
+    /**
+     * 组装分享链时最多展开的层数
+     */
+    private static final int MAX_SHARE_DEPTH = 5;
+
     private final UserService userService;
     private final UserProfileService userProfileService;
     private final PostLikeService postLikeService;
     private final ObjectMapper objectMapper;
-    private final ApplicationContext applicationContext;
     private final PostMapper postMapper;
-
-    // 使用懒加载方式获取UserFollowService，避免循环依赖
-    private UserFollowService getUserFollowService() {
-        return applicationContext.getBean(UserFollowService.class);
-    }
+    private final UserActivityService userActivityService;
+    private final PostTimelineService postTimelineService;
+    private final PostHotScoreService postHotScoreService;
+    private final PostCounterService postCounterService;
+    private final PostCacheService postCacheService;
+    private final ImageUploadService imageUploadService;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageDerivativeService imageDerivativeService;
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long createPost(Long userId, String content, List<MultipartFile> images) {
         // 验证用户是否存在
         User user = userService.getById(userId);
@@ -65,14 +92,6 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             throw new BusinessException(ResultCode.USER_NOT_EXIST);
         }
 
-        // 上传图片
-        List<String> imageUrls = new ArrayList<>();
-        if (images != null && !images.isEmpty()) {
-            imageUrls = images.stream()
-                    .map(FileUtil::uploadImage)
-                    .collect(Collectors.toList());
-        }
-
         // 获取用户所在城市
         String city = "";
         UserProfile profile = userProfileService.getUserProfile(userId);
@@ -80,6 +99,10 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             city = profile.getCity();
         }
 
+        // 在事务外并发上传图片，上传期间不占用数据库连接
+        List<StoredFile> storedImages = imageUploadService.uploadImages(images);
+        List<String> imageUrls = storedImages.stream().map(StoredFile::getUrl).collect(Collectors.toList());
+
         // 创建动态
         Post post = new Post();
         post.setUserId(userId);
@@ -88,6 +111,7 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         try {
             post.setImages(objectMapper.writeValueAsString(imageUrls));
         } catch (JsonProcessingException e) {
+            imageUploadService.releaseImages(storedImages);
             throw new BusinessException(ResultCode.FAILED.getCode(), "图片处理失败");
         }
         post.setLikeCount(0);
@@ -98,13 +122,28 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         post.setPostType(imageUrls.isEmpty() ? 0 : 1); // 判断动态类型：0-普通文本，1-图文
         post.setHotScore(10.0); // 初始热度评分
 
-        // 保存动态
-        boolean saved = save(post);
-        if (!saved) {
-            throw new BusinessException(ResultCode.FAILED.getCode(), "动态发布失败");
-        }
-
-        return post.getPostId();
+        // 保存动态，事务只包含数据库写入
+        return transactionTemplate.execute(status -> {
+            // 只有事务未提交时才登记已上传的图片待清理，提交后的回调出错不影响已保存的动态
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completionStatus) {
+                    if (completionStatus != STATUS_COMMITTED) {
+                        imageUploadService.releaseImages(storedImages);
+                    }
+                }
+            });
+
+            boolean saved = save(post);
+            if (!saved) {
+                throw new BusinessException(ResultCode.FAILED.getCode(), "动态发布失败");
+            }
+            userActivityService.record(userId, UserActivityService.ActivityType.POST);
+            postTimelineService.publish(userId, post.getPostId());
+            postCacheService.evictCityFeed(post.getCity());
+            imageDerivativeService.generateForPost(post.getPostId(), imageUrls);
+            return post.getPostId();
+        });
     }
 
     @Override
@@ -148,11 +187,10 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             throw new BusinessException(ResultCode.FAILED.getCode(), "动态分享失败");
         }
 
-        // 增加原始动态的分享数
-        getBaseMapper().incrementShareCount(originalPostId);
-        
-        // 更新原始动态的热度
-        updateHotScore(originalPost);
+        // 增加原始动态的分享数（批量写回，热度随之重算）
+        postCounterService.increment(originalPostId, PostCounterService.CounterType.SHARE, 1);
+        postTimelineService.publish(userId, sharedPost.getPostId());
+        postCacheService.evictCityFeed(sharedPost.getCity());
 
         return sharedPost.getPostId();
     }
@@ -188,14 +226,16 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
     @Override
     @Transactional(readOnly = true)
     public PostDTO getPostDetail(Long postId) {
-        // 查询动态
-        Post post = getById(postId);
-        if (post == null || post.getStatus() != 1) {
-            throw new BusinessException(ResultCode.NOT_FOUND.getCode(), "动态不存在或已删除");
-        }
+        return postCacheService.getPostDetail(postId, () -> {
+            // 查询动态
+            Post post = getById(postId);
+            if (post == null || post.getStatus() != 1) {
+                throw new BusinessException(ResultCode.NOT_FOUND.getCode(), "动态不存在或已删除");
+            }
 
-        // 转换为DTO
-        return convertToPostDTO(post);
+            // 转换为DTO
+            return convertToPostDTO(post);
+        });
     }
 
     @Override
@@ -213,7 +253,13 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
 
         // 逻辑删除
         post.setStatus(0);
-        return updateById(post);
+        boolean updated = updateById(post);
+        if (updated) {
+            postHotScoreService.remove(postId);
+            postCacheService.evictRemovedPosts(Collections.singletonList(postId));
+            postCacheService.evictFeeds();
+        }
+        return updated;
     }
     
     @Override
@@ -225,34 +271,22 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             throw new BusinessException(ResultCode.USER_NOT_EXIST);
         }
         
-        // 获取关注的用户ID列表
-        List<Long> followingIds = getUserFollowService().getFollowingIds(userId);
-        if (followingIds.isEmpty()) {
-            return new Page<>(page, pageSize);
-        }
-        
-        // 查询关注用户的动态
-        Page<Post> postPage = new Page<>(page, pageSize);
-        Page<Post> postResult = baseMapper.selectFollowedPosts(postPage, followingIds);
-        
-        // 转换为DTO
-        Page<PostDTO> dtoPage = convertToPostDTOPage(postResult);
-        
-        // 填充点赞状态
-        fillLikeStatus(dtoPage.getRecords(), userId);
-        
-        return dtoPage;
+        return queryFollowedPostsPage(userId, page, pageSize);
     }
     
     @Override
     @Transactional(readOnly = true)
     public Page<PostDTO> getRecommendedPostList(Long userId, Integer page, Integer pageSize) {
-        // 查询推荐动态（按热度排序）
-        Page<Post> postPage = new Page<>(page, pageSize);
-        Page<Post> postResult = baseMapper.selectRecommendedPosts(postPage);
-        
-        // 转换为DTO
-        Page<PostDTO> dtoPage = convertToPostDTOPage(postResult);
+        // 查询推荐动态（按热度排序），热门排行之外的页从数据库查询；结果与查看者无关，可共享缓存
+        Page<PostDTO> dtoPage = postCacheService.getFeedPage(PostCacheService.FEED_RECOMMENDED, null, page, pageSize, () -> {
+            Page<PostDTO> hotPage = queryHotPostsPage(page, pageSize);
+            if (hotPage != null) {
+                return hotPage;
+            }
+            Page<Post> postPage = new Page<>(page, pageSize);
+            Page<Post> postResult = baseMapper.selectRecommendedPosts(postPage);
+            return convertToPostDTOPage(postResult);
+        });
         
         // 如果用户已登录，填充是否已点赞的信息
         if (userId != null) {
@@ -282,12 +316,13 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             }
         }
         
-        // 查询同城动态
-        Page<Post> postPage = new Page<>(page, pageSize);
-        Page<Post> postResult = baseMapper.selectCityPosts(postPage, city);
-        
-        // 转换为DTO
-        Page<PostDTO> dtoPage = convertToPostDTOPage(postResult);
+        // 查询同城动态并转换为DTO，按城市共享缓存
+        String cityName = city;
+        Page<PostDTO> dtoPage = postCacheService.getFeedPage(PostCacheService.FEED_CITY, cityName, page, pageSize, () -> {
+            Page<Post> postPage = new Page<>(page, pageSize);
+            Page<Post> postResult = baseMapper.selectCityPosts(postPage, cityName);
+            return convertToPostDTOPage(postResult);
+        });
         
         // 填充点赞状态
         fillLikeStatus(dtoPage.getRecords(), userId);
@@ -295,56 +330,267 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         return dtoPage;
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostDTO> getPostListByCursor(String cursor, Integer pageSize) {
+        return queryPostsByCursor(null, null, cursor, pageSize, null);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostDTO> getCommunityPostsByCursor(Long userId, String cursor, Integer pageSize) {
+        // 验证用户是否存在
+        User user = userService.getById(userId);
+        if (user == null) {
+            throw new BusinessException(ResultCode.USER_NOT_EXIST);
+        }
+        
+        return queryPostsByCursor(null, null, cursor, pageSize, userId);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostDTO> getNearbyPostsByCursor(Long userId, String city, String cursor, Integer pageSize) {
+        // 验证用户是否存在
+        User user = userService.getById(userId);
+        if (user == null) {
+            throw new BusinessException(ResultCode.USER_NOT_EXIST);
+        }
+        
+        // 如果未提供城市，从用户资料中获取
+        if (city == null || city.isEmpty()) {
+            UserProfile userProfile = userProfileService.getUserProfile(userId);
+            if (userProfile != null && userProfile.getCity() != null && !userProfile.getCity().isEmpty()) {
+                city = userProfile.getCity();
+            } else {
+                // 如果用户资料中也没有城市信息，则返回空结果
+                return new CursorPage<>();
+            }
+        }
+        
+        return queryPostsByCursor(null, city, cursor, pageSize, userId);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostDTO> getFollowedPostsByCursor(Long userId, String cursor, Integer pageSize) {
+        // 验证用户是否存在
+        User user = userService.getById(userId);
+        if (user == null) {
+            throw new BusinessException(ResultCode.USER_NOT_EXIST);
+        }
+        
+        // 从时间线读取，游标中的动态ID即时间线位置
+        int size = pageSize == null || pageSize <= 0 ? 10 : Math.min(pageSize, MAX_CURSOR_PAGE_SIZE);
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        List<Long> postIds = postTimelineService.getTimelinePostIds(userId,
+                position != null ? position.getId() : null, size + 1);
+        
+        CursorPage<PostDTO> result = new CursorPage<>();
+        boolean hasMore = postIds.size() > size;
+        if (hasMore) {
+            postIds = postIds.subList(0, size);
+        }
+        List<Post> posts = listPostsInOrder(postIds);
+        result.setHasMore(hasMore);
+        if (hasMore) {
+            // 游标取本页时间线的最后一个位置，而不是最后一条保留的动态，
+            // 本页末尾的动态已删除时也不会重复返回或停止翻页；时间线只按动态ID定位，时间仅为游标格式所需
+            LocalDateTime time = posts.isEmpty() ? LocalDateTime.now() : posts.get(posts.size() - 1).getCreateTime();
+            result.setNextCursor(CursorUtil.encode(time, postIds.get(postIds.size() - 1)));
+        }
+        
+        List<PostDTO> records = convertToPostDTOs(filterNormalPosts(posts));
+        fillLikeStatus(records, userId);
+        result.setRecords(records);
+        return result;
+    }
+    
+    /**
+     * 从关注动态时间线分页查询
+     * 时间线只保留最近的动态，超出部分的页返回空
+     */
+    private Page<PostDTO> queryFollowedPostsPage(Long userId, Integer page, Integer pageSize) {
+        int current = page == null || page < 1 ? 1 : page;
+        int size = pageSize == null || pageSize < 1 ? 10 : pageSize;
+        int offset = (current - 1) * size;
+        
+        List<Long> postIds = postTimelineService.getTimelinePostIds(userId, null, offset + size);
+        postIds = offset < postIds.size() ? postIds.subList(offset, postIds.size()) : Collections.emptyList();
+        
+        List<PostDTO> records = convertToPostDTOs(filterNormalPosts(listPostsInOrder(postIds)));
+        fillLikeStatus(records, userId);
+        
+        Page<PostDTO> dtoPage = new Page<>(current, size);
+        dtoPage.setRecords(records);
+        dtoPage.setTotal(Math.max(postTimelineService.countTimeline(userId), offset + records.size()));
+        return dtoPage;
+    }
+    
     /**
-     * 计算并更新动态热度评分
-     * 热度评分公式：(点赞数 * 2 + 评论数 * 3 + 分享数 * 5) / (当前时间 - 发布时间的小时数 + 2)^1.2
+     * 从热门排行分页查询
      *
-     * @param post 动态对象
+     * @return 分页结果，排行未构建或页超出排行范围时返回null
      */
-    private void updateHotScore(Post post) {
-        if (post == null) {
-            return;
+    private Page<PostDTO> queryHotPostsPage(Integer page, Integer pageSize) {
+        int current = page == null || page < 1 ? 1 : page;
+        int size = pageSize == null || pageSize < 1 ? 10 : pageSize;
+        long offset = (long) (current - 1) * size;
+        if (offset + size > postHotScoreService.getRankingSize()) {
+            return null;
         }
         
-        // 获取发布时间
-        LocalDateTime createTime = post.getCreateTime();
-        if (createTime == null) {
-            createTime = LocalDateTime.now();
-        }
+        List<Long> postIds = postHotScoreService.getHotPostIds(offset, size);
+        List<PostDTO> records = convertToPostDTOs(filterNormalPosts(listPostsInOrder(postIds)));
         
-        // 计算发布时间到现在经过的小时数
-        long currentTimeMillis = System.currentTimeMillis();
-        long createTimeMillis = createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        double hoursElapsed = (double) (currentTimeMillis - createTimeMillis) / (1000 * 60 * 60) + 2; // 加2避免新发布的动态分母太小
+        Page<PostDTO> dtoPage = new Page<>(current, size);
+        dtoPage.setRecords(records);
+        dtoPage.setTotal(lambdaQuery().eq(Post::getStatus, 1).count());
+        return dtoPage;
+    }
+    
+    /**
+     * 按ID批量查询动态，保持ID列表的顺序
+     */
+    private List<Post> listPostsInOrder(List<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Post> postMap = listByIds(postIds).stream()
+                .collect(Collectors.toMap(Post::getPostId, post -> post));
+        return postIds.stream()
+                .map(postMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 过滤掉已删除的动态（时间线中可能仍保留已删除动态的ID）
+     */
+    private List<Post> filterNormalPosts(List<Post> posts) {
+        return posts.stream()
+                .filter(post -> post.getStatus() != null && post.getStatus() == 1)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 按 (create_time, post_id) 游标查询动态
+     * 多查一条用于判断是否还有下一页
+     *
+     * @param userIds       发布者ID列表（可选）
+     * @param city          城市名称（可选）
+     * @param cursor        上一页返回的游标
+     * @param pageSize      每页条数
+     * @param currentUserId 当前用户ID，不为空时填充点赞状态
+     */
+    private CursorPage<PostDTO> queryPostsByCursor(List<Long> userIds, String city, String cursor,
+                                                   Integer pageSize, Long currentUserId) {
+        int size = pageSize == null || pageSize <= 0 ? 10 : Math.min(pageSize, MAX_CURSOR_PAGE_SIZE);
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
         
-        // 计算热度分数
-        int likeWeight = 2;
-        int commentWeight = 3;
-        int shareWeight = 5;
+        List<Post> posts = baseMapper.selectPostsByCursor(userIds, city,
+                position != null ? position.getTime() : null,
+                position != null ? position.getId() : null,
+                size + 1);
         
-        double score = (post.getLikeCount() * likeWeight + post.getCommentCount() * commentWeight + post.getShareCount() * shareWeight)
-                     / Math.pow(hoursElapsed, 1.2);
+        CursorPage<PostDTO> result = new CursorPage<>();
+        boolean hasMore = posts.size() > size;
+        if (hasMore) {
+            posts = posts.subList(0, size);
+        }
+        result.setHasMore(hasMore);
+        if (hasMore) {
+            Post last = posts.get(posts.size() - 1);
+            result.setNextCursor(CursorUtil.encode(last.getCreateTime(), last.getPostId()));
+        }
         
-        // 更新热度评分
-        baseMapper.updateHotScore(post.getPostId(), score);
+        List<PostDTO> records = convertToPostDTOs(posts);
+        if (currentUserId != null) {
+            fillLikeStatus(records, currentUserId);
+        }
+        result.setRecords(records);
+        return result;
     }
-
+    
     /**
      * 将Post对象转换为PostDTO
      */
     private PostDTO convertToPostDTO(Post post) {
+        return convertToPostDTOs(Collections.singletonList(post)).get(0);
+    }
+
+    /**
+     * 批量将Post对象转换为PostDTO
+     * 先收集原始动态和作者ID，用IN查询一次性加载，再在内存中组装
+     */
+    private List<PostDTO> convertToPostDTOs(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 1. 加载被分享的原始动态（分享的动态可能被再次分享，逐层加载）
+        Map<Long, Post> postMap = new HashMap<>();
+        posts.forEach(post -> postMap.put(post.getPostId(), post));
+        Set<Long> missingPostIds = collectOriginalPostIds(posts, postMap);
+        for (int depth = 0; depth < MAX_SHARE_DEPTH && !missingPostIds.isEmpty(); depth++) {
+            List<Post> originals = listByIds(missingPostIds);
+            originals.forEach(original -> postMap.put(original.getPostId(), original));
+            missingPostIds = collectOriginalPostIds(originals, postMap);
+        }
+
+        // 合并尚未写回的计数
+        postCounterService.applyPending(postMap.values());
+
+        // 2. 批量加载作者信息，查询时已关联出作者信息的动态无需再加载
+        Set<Long> authorIds = postMap.values().stream()
+                .filter(post -> post.getUsername() == null)
+                .map(Post::getUserId)
+                .collect(Collectors.toSet());
+        Map<Long, User> userMap = new HashMap<>();
+        Map<Long, UserProfile> profileMap = new HashMap<>();
+        if (!authorIds.isEmpty()) {
+            userService.listByIds(authorIds).forEach(user -> userMap.put(user.getUserId(), user));
+            profileMap.putAll(userProfileService.getUserProfiles(userMap.keySet()));
+        }
+
+        // 3. 组装DTO
+        List<PostDTO> result = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            result.add(buildPostDTO(post, postMap, userMap, profileMap, 0));
+        }
+        return result;
+    }
+
+    /**
+     * 收集尚未加载的原始动态ID
+     */
+    private Set<Long> collectOriginalPostIds(Collection<Post> posts, Map<Long, Post> loaded) {
+        return posts.stream()
+                .filter(post -> Boolean.TRUE.equals(post.getIsShared()) && post.getOriginalPostId() != null)
+                .map(Post::getOriginalPostId)
+                .filter(originalPostId -> !loaded.containsKey(originalPostId))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 使用已加载的数据组装单个PostDTO
+     */
+    private PostDTO buildPostDTO(Post post, Map<Long, Post> postMap, Map<Long, User> userMap,
+                                 Map<Long, UserProfile> profileMap, int depth) {
         PostDTO postDTO = new PostDTO();
         BeanUtils.copyProperties(post, postDTO);
 
-        // 获取用户信息
-        User user = userService.getById(post.getUserId());
-        if (user != null) {
-            postDTO.setAvatar(user.getAvatar());
-            
-            // 获取用户资料
-            UserProfile userProfile = userProfileService.getUserProfile(post.getUserId());
-            if (userProfile != null) {
-                postDTO.setNickname(userProfile.getNickname());
+        // 设置用户信息
+        if (post.getUsername() == null) {
+            User user = userMap.get(post.getUserId());
+            if (user != null) {
+                postDTO.setUsername(user.getUsername());
+                postDTO.setAvatar(user.getAvatar());
+                
+                UserProfile userProfile = profileMap.get(post.getUserId());
+                if (userProfile != null) {
+                    postDTO.setNickname(userProfile.getNickname());
+                }
             }
         }
 
@@ -353,16 +599,18 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             if (post.getImages() != null && !post.getImages().isEmpty()) {
                 List<String> images = objectMapper.readValue(post.getImages(), new TypeReference<List<String>>() {});
                 postDTO.setImages(images);
+                postDTO.setThumbnails(imageDerivativeService.resolve(images, post.getImageVariants(), ImageDerivativeService.THUMBNAIL));
+                postDTO.setMediumImages(imageDerivativeService.resolve(images, post.getImageVariants(), ImageDerivativeService.MEDIUM));
             }
         } catch (JsonProcessingException e) {
             postDTO.setImages(new ArrayList<>());
         }
 
-        // 如果是分享的动态，获取原始动态信息
-        if (post.getIsShared() && post.getOriginalPostId() != null) {
-            Post originalPost = getById(post.getOriginalPostId());
+        // 如果是分享的动态，设置原始动态信息
+        if (Boolean.TRUE.equals(post.getIsShared()) && post.getOriginalPostId() != null && depth < MAX_SHARE_DEPTH) {
+            Post originalPost = postMap.get(post.getOriginalPostId());
             if (originalPost != null && originalPost.getStatus() == 1) {
-                postDTO.setOriginalPost(convertToPostDTO(originalPost));
+                postDTO.setOriginalPost(buildPostDTO(originalPost, postMap, userMap, profileMap, depth + 1));
             }
         }
         
@@ -378,12 +626,7 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
     private Page<PostDTO> convertToPostDTOPage(Page<Post> postPage) {
         Page<PostDTO> postDTOPage = new Page<>();
         BeanUtils.copyProperties(postPage, postDTOPage, "records");
-
-        List<PostDTO> postDTOList = postPage.getRecords().stream()
-                .map(this::convertToPostDTO)
-                .collect(Collectors.toList());
-
-        postDTOPage.setRecords(postDTOList);
+        postDTOPage.setRecords(convertToPostDTOs(postPage.getRecords()));
         return postDTOPage;
     }
     
@@ -400,16 +643,8 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
                                      .map(PostDTO::getPostId)
                                      .collect(Collectors.toList());
         
-        // 查询用户点赞的动态列表
-        List<Long> likedPostIds = new ArrayList<>();
-        for (Long postId : postIds) {
-            if (postLikeService.hasLiked(userId, postId)) {
-                likedPostIds.add(postId);
-            }
-        }
-        
-        // 创建一个不可变集合而不是使用Set.copyOf
-        Set<Long> likedPostIdSet = new HashSet<>(likedPostIds);
+        // 批量查询用户点赞的动态
+        Set<Long> likedPostIdSet = postLikeService.getLikedPostIds(userId, postIds);
         
         // 设置点赞状态
         for (PostDTO postDTO : postDTOs) {
@@ -454,18 +689,22 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             throw new BusinessException(ResultCode.USER_NOT_EXIST);
         }
         
-        // 创建分页对象
-        Page<Post> postPage = new Page<>(page, pageSize);
-        
-        // 查询热门动态 - 按热度评分降序
-        LambdaQueryWrapper<Post> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Post::getStatus, 1) // 只查询状态正常的动态
-                   .orderByDesc(Post::getHotScore); // 按热度评分降序
-        
-        Page<Post> postResult = page(postPage, queryWrapper);
-        
-        // 转换为DTO
-        Page<PostDTO> dtoPage = convertToPostDTOPage(postResult);
+        // 优先从热门排行读取
+        Page<PostDTO> dtoPage = queryHotPostsPage(page, pageSize);
+        if (dtoPage == null) {
+            // 创建分页对象
+            Page<Post> postPage = new Page<>(page, pageSize);
+            
+            // 查询热门动态 - 按热度评分降序
+            LambdaQueryWrapper<Post> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.eq(Post::getStatus, 1) // 只查询状态正常的动态
+                       .orderByDesc(Post::getHotScore); // 按热度评分降序
+            
+            Page<Post> postResult = page(postPage, queryWrapper);
+            
+            // 转换为DTO
+            dtoPage = convertToPostDTOPage(postResult);
+        }
         
         // 填充点赞状态
         fillLikeStatus(dtoPage.getRecords(), userId);
@@ -544,30 +783,7 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             throw new BusinessException(ResultCode.USER_NOT_EXIST);
         }
         
-        // 获取关注的用户ID列表
-        List<Long> followingIds = getUserFollowService().getFollowingIds(userId);
-        if (followingIds.isEmpty()) {
-            return new Page<>(page, pageSize);
-        }
-        
-        // 创建分页对象
-        Page<Post> postPage = new Page<>(page, pageSize);
-        
-        // 查询关注用户的动态
-        LambdaQueryWrapper<Post> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Post::getStatus, 1) // 只查询状态正常的动态
-                   .in(Post::getUserId, followingIds) // 仅查询关注用户的动态
-                   .orderByDesc(Post::getCreateTime); // 按创建时间降序
-        
-        Page<Post> postResult = page(postPage, queryWrapper);
-        
-        // 转换为DTO
-        Page<PostDTO> dtoPage = convertToPostDTOPage(postResult);
-        
-        // 填充点赞状态
-        fillLikeStatus(dtoPage.getRecords(), userId);
-        
-        return dtoPage;
+        return queryFollowedPostsPage(userId, page, pageSize);
     }
     
     @Override
@@ -597,11 +813,10 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         boolean saved = postLikeService.save(postLike);
         
         if (saved) {
-            // 更新动态点赞数
-            baseMapper.incrementLikeCount(postId);
-            
-            // 更新热度评分
-            updateHotScore(post);
+            // 更新动态点赞数（批量写回，热度随之重算）
+            postCounterService.increment(postId, PostCounterService.CounterType.LIKE, 1);
+            userActivityService.record(userId, UserActivityService.ActivityType.LIKE);
+            postLikeService.updateLikedCache(userId, postId, true);
         }
         
         return saved;
@@ -634,11 +849,9 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         );
         
         if (removed) {
-            // 更新动态点赞数
-            baseMapper.decrementLikeCount(postId);
-            
-            // 更新热度评分
-            updateHotScore(post);
+            // 更新动态点赞数（批量写回，热度随之重算）
+            postCounterService.increment(postId, PostCounterService.CounterType.LIKE, -1);
+            postLikeService.updateLikedCache(userId, postId, false);
         }
         
         return removed;
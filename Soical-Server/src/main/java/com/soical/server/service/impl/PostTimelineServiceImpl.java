@@ -0,0 +1,249 @@
+package com.soical.server.service.impl;
+
+import com.soical.server.mapper.PostMapper;
+import com.soical.server.mapper.UserFollowMapper;
+import com.soical.server.service.PostTimelineService;
+import com.soical.server.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 关注动态时间线服务实现类
+ * 时间线保存在有序集合 timeline:{userId} 中，成员和分数均为动态ID（自增ID即发布顺序），
+ * 只保留最近的 timeline.max-size 条；成员0为已构建标记
+ */
+@Slf4j
+@Service
+public class PostTimelineServiceImpl implements PostTimelineService {
+
+    /**
+     * 时间线键前缀
+     */
+    private static final String TIMELINE_KEY_PREFIX = "timeline:";
+
+    /**
+     * 大V作者集合键
+     */
+    private static final String CELEBRITY_KEY = "timeline:celebrities";
+
+    /**
+     * 已构建标记成员，分数为0，读取时排除
+     */
+    private static final String BUILT_MARKER = "0";
+
+    /**
+     * 推送时每批处理的粉丝数
+     */
+    private static final int FAN_OUT_BATCH_SIZE = 500;
+
+    /**
+     * 推送脚本：时间线存在时写入动态并裁剪，保留标记成员和最近的若干条；不存在时不写入。
+     * 判断和写入在同一脚本中执行，期间被删除的时间线不会被写成没有标记、没有过期时间的残缺集合。
+     * KEYS[1]为时间线键，ARGV[1]为保留条数，ARGV[2..]为动态ID
+     */
+    private static final byte[] FAN_OUT_SCRIPT = toBytes(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 2, #ARGV do redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i]) end " +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 1, -(tonumber(ARGV[1]) + 1)) " +
+            "return 1");
+
+    @Value("${timeline.max-size:800}")
+    private int maxSize;
+
+    @Value("${timeline.celebrity-threshold:5000}")
+    private int celebrityThreshold;
+
+    @Value("${timeline.ttl-days:7}")
+    private long ttlDays;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserFollowMapper userFollowMapper;
+
+    @Autowired
+    private PostMapper postMapper;
+
+    @Autowired
+    @Qualifier("timelineExecutor")
+    private Executor timelineExecutor;
+
+    @Override
+    public void publish(Long authorId, Long postId) {
+        if (authorId == null || postId == null) {
+            return;
+        }
+        // 事务提交后再推送，避免粉丝读到未提交的动态
+        TransactionUtils.afterCommit(() -> timelineExecutor.execute(() -> fanOut(authorId, postId)));
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        // 关注关系提交后再删除，避免并发读取按旧关系重建
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.delete(TIMELINE_KEY_PREFIX + userId);
+            } catch (Exception e) {
+                log.warn("删除时间线失败: userId={}", userId, e);
+            }
+        });
+    }
+
+    @Override
+    public List<Long> getTimelinePostIds(Long userId, Long beforePostId, int count) {
+        if (userId == null || count <= 0) {
+            return Collections.emptyList();
+        }
+
+        // 1. 读取推送的时间线，不存在时从数据库重建
+        String key = TIMELINE_KEY_PREFIX + userId;
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            rebuild(userId);
+        }
+        double max = beforePostId != null ? beforePostId - 1 : Double.POSITIVE_INFINITY;
+        Set<String> members = stringRedisTemplate.opsForZSet().reverseRangeByScore(key, 1, max, 0, count);
+        List<Long> pushedIds = members == null ? Collections.emptyList() : members.stream()
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+
+        // 2. 拉取关注的大V的动态
+        List<Long> celebrityIds = getFollowedCelebrities(userId);
+        if (celebrityIds.isEmpty()) {
+            return pushedIds;
+        }
+        List<Long> pulledIds = postMapper.selectPostIdsByUsers(celebrityIds, beforePostId, count);
+
+        // 3. 按动态ID倒序合并
+        TreeSet<Long> merged = new TreeSet<>(Comparator.reverseOrder());
+        merged.addAll(pushedIds);
+        merged.addAll(pulledIds);
+        return merged.stream().limit(count).collect(Collectors.toList());
+    }
+
+    @Override
+    public long countTimeline(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        String key = TIMELINE_KEY_PREFIX + userId;
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            rebuild(userId);
+        }
+        Long size = stringRedisTemplate.opsForZSet().count(key, 1, Double.POSITIVE_INFINITY);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 推送动态到粉丝的时间线
+     * 只写入已构建的时间线，未构建的在读取时从数据库重建。
+     * 作者粉丝数降到阈值以下（不再是大V）时，之前拉取的动态不在粉丝的时间线中，一并补推最近的动态
+     */
+    private void fanOut(Long authorId, Long postId) {
+        try {
+            Integer followerCount = userFollowMapper.countFollowers(authorId);
+            if (followerCount != null && followerCount >= celebrityThreshold) {
+                // 大V不推送，粉丝读取时拉取
+                stringRedisTemplate.opsForSet().add(CELEBRITY_KEY, authorId.toString());
+                return;
+            }
+            Long removed = stringRedisTemplate.opsForSet().remove(CELEBRITY_KEY, authorId.toString());
+
+            Set<Long> postIds = new HashSet<>();
+            postIds.add(postId);
+            if (removed != null && removed > 0) {
+                postIds.addAll(postMapper.selectPostIdsByUsers(Collections.singletonList(authorId), null, maxSize));
+                log.info("作者不再是大V，补推最近的动态到粉丝时间线: authorId={}, posts={}", authorId, postIds.size());
+            }
+
+            Long lastFollowerId = 0L;
+            while (true) {
+                List<Long> followerIds = userFollowMapper.selectFollowerIdsAfter(authorId, lastFollowerId, FAN_OUT_BATCH_SIZE);
+                if (followerIds.isEmpty()) {
+                    break;
+                }
+
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Long followerId : followerIds) {
+                        byte[][] keyAndArgs = new byte[postIds.size() + 2][];
+                        keyAndArgs[0] = toBytes(TIMELINE_KEY_PREFIX + followerId);
+                        keyAndArgs[1] = toBytes(String.valueOf(maxSize));
+                        int i = 2;
+                        for (Long id : postIds) {
+                            keyAndArgs[i++] = toBytes(id.toString());
+                        }
+                        connection.scriptingCommands().eval(FAN_OUT_SCRIPT, ReturnType.INTEGER, 1, keyAndArgs);
+                    }
+                    return null;
+                });
+
+                lastFollowerId = followerIds.get(followerIds.size() - 1);
+                if (followerIds.size() < FAN_OUT_BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("推送动态到粉丝时间线失败: authorId={}, postId={}", authorId, postId, e);
+        }
+    }
+
+    /**
+     * 从数据库重建用户的时间线（不含大V的动态）
+     */
+    private void rebuild(Long userId) {
+        String key = TIMELINE_KEY_PREFIX + userId;
+        try {
+            List<Long> followingIds = userFollowMapper.selectFollowingIds(userId);
+            Set<String> celebrities = stringRedisTemplate.opsForSet().members(CELEBRITY_KEY);
+            if (celebrities != null && !celebrities.isEmpty()) {
+                followingIds = followingIds.stream()
+                        .filter(id -> !celebrities.contains(id.toString()))
+                        .collect(Collectors.toList());
+            }
+
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            tuples.add(ZSetOperations.TypedTuple.of(BUILT_MARKER, 0D));
+            if (!followingIds.isEmpty()) {
+                for (Long postId : postMapper.selectPostIdsByUsers(followingIds, null, maxSize)) {
+                    tuples.add(ZSetOperations.TypedTuple.of(postId.toString(), postId.doubleValue()));
+                }
+            }
+            stringRedisTemplate.opsForZSet().add(key, tuples);
+            stringRedisTemplate.expire(key, ttlDays, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.error("重建时间线失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 获取用户关注的大V
+     */
+    private List<Long> getFollowedCelebrities(Long userId) {
+        Set<String> celebrities = stringRedisTemplate.opsForSet().members(CELEBRITY_KEY);
+        if (celebrities == null || celebrities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> candidateIds = celebrities.stream().map(Long::valueOf).collect(Collectors.toList());
+        return userFollowMapper.selectFollowingIdsAmong(userId, candidateIds);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,86 @@
+package com.soical.server.service.impl;
+
+import com.soical.server.service.RecommendMetricsService;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 推荐策略指标服务实现类
+ * 进程内累计，重启后清零
+ */
+@Service
+public class RecommendMetricsServiceImpl implements RecommendMetricsService {
+
+    private final Map<String, StrategyStats> statsMap = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordSuccess(String strategy, long costMillis, int hitCount) {
+        StrategyStats stats = getStats(strategy);
+        stats.calls.increment();
+        stats.totalCostMillis.add(costMillis);
+        stats.maxCostMillis.accumulate(costMillis);
+        stats.hits.add(hitCount);
+        if (hitCount == 0) {
+            stats.emptyResults.increment();
+        }
+    }
+
+    @Override
+    public void recordFailure(String strategy) {
+        getStats(strategy).failures.increment();
+    }
+
+    @Override
+    public void recordTimeout(String strategy) {
+        getStats(strategy).timeouts.increment();
+    }
+
+    @Override
+    public void recordSelected(String strategy, int count) {
+        getStats(strategy).selected.add(count);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getStrategyMetrics() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        statsMap.forEach((strategy, stats) -> {
+            long calls = stats.calls.sum();
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("calls", calls);
+            metrics.put("avgCostMillis", calls > 0 ? stats.totalCostMillis.sum() / calls : 0);
+            metrics.put("maxCostMillis", stats.maxCostMillis.get());
+            metrics.put("hits", stats.hits.sum());
+            metrics.put("avgHits", calls > 0 ? (double) stats.hits.sum() / calls : 0);
+            metrics.put("emptyResults", stats.emptyResults.sum());
+            metrics.put("selected", stats.selected.sum());
+            metrics.put("timeouts", stats.timeouts.sum());
+            metrics.put("failures", stats.failures.sum());
+            result.put(strategy, metrics);
+        });
+        return result;
+    }
+
+    private StrategyStats getStats(String strategy) {
+        return statsMap.computeIfAbsent(strategy, k -> new StrategyStats());
+    }
+
+    /**
+     * 单个策略的累计指标
+     */
+    private static class StrategyStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalCostMillis = new LongAdder();
+        private final LongAccumulator maxCostMillis = new LongAccumulator(Math::max, 0);
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder emptyResults = new LongAdder();
+        private final LongAdder selected = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+    }
+}
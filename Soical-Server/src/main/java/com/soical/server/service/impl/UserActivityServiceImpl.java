@@ -0,0 +1,292 @@
+package com.soical.server.service.impl;
+
+import com.soical.server.entity.User;
+import com.soical.server.service.UserActivityService;
+import com.soical.server.service.UserCandidateIndexService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户活跃度服务实现类
+ * 计数保存在Redis哈希 user:activity:{userId} 中，字段为 {行为}:{日期} 和最后活跃时间，
+ * 计算出的分数在本地缓存一段时间，行为发生时失效
+ */
+@Slf4j
+@Service
+public class UserActivityServiceImpl implements UserActivityService {
+
+    /**
+     * 活跃度计数键前缀
+     */
+    private static final String ACTIVITY_KEY_PREFIX = "user:activity:";
+
+    /**
+     * 最后活跃时间字段
+     */
+    private static final String LAST_ACTIVE_FIELD = "last";
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * 加权行为数对应的内容活跃度分档，第i档阈值对应i+1分，最高6分
+     */
+    private static final int[] CONTENT_SCORE_THRESHOLDS = {1, 3, 6, 11, 21, 41};
+
+    /**
+     * 本地缓存条目上限，超过后整体清空
+     */
+    private static final int MAX_CACHE_ENTRIES = 100000;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Value("${activity.window-days:7}")
+    private int windowDays;
+
+    @Value("${activity.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserCandidateIndexService candidateIndexService;
+
+    /**
+     * 用户ID -> 活跃度缓存
+     */
+    private final Map<Long, CachedActivity> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(Long userId, ActivityType type) {
+        if (userId == null || type == null) {
+            return;
+        }
+        try {
+            String key = ACTIVITY_KEY_PREFIX + userId;
+            String field = type.getField() + ":" + LocalDate.now().format(DAY_FORMATTER);
+            String now = String.valueOf(System.currentTimeMillis());
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] rawKey = toBytes(key);
+                connection.hashCommands().hIncrBy(rawKey, toBytes(field), 1);
+                connection.hashCommands().hSet(rawKey, toBytes(LAST_ACTIVE_FIELD), toBytes(now));
+                connection.keyCommands().expire(rawKey, TimeUnit.DAYS.toSeconds(windowDays + 1L));
+                return null;
+            });
+            cache.remove(userId);
+        } catch (Exception e) {
+            // 计数失败不影响业务操作
+            log.warn("记录用户行为失败: userId={}, type={}", userId, type, e);
+        }
+    }
+
+    @Override
+    public int getActivityScore(Long userId) {
+        CachedActivity activity = getActivity(userId);
+        return activity != null ? activity.score : 0;
+    }
+
+    @Override
+    public Map<Long, Integer> getActivityScores(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Integer> result = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            CachedActivity cached = cache.get(userId);
+            if (cached != null && cached.expireAt > now) {
+                result.put(userId, cached.score);
+            } else {
+                missingIds.add(userId);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            try {
+                // 未命中的用户一次管道读取
+                List<Object> counters = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Long userId : missingIds) {
+                        connection.hashCommands().hGetAll(toBytes(ACTIVITY_KEY_PREFIX + userId));
+                    }
+                    return null;
+                });
+                for (int i = 0; i < missingIds.size(); i++) {
+                    CachedActivity activity = computeAndCache(missingIds.get(i), castCounters(counters.get(i)));
+                    result.put(missingIds.get(i), activity.score);
+                }
+            } catch (Exception e) {
+                log.warn("批量获取用户活跃度失败: size={}", missingIds.size(), e);
+                missingIds.forEach(userId -> result.putIfAbsent(userId, 0));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Date getLastActiveTime(Long userId) {
+        CachedActivity activity = getActivity(userId);
+        return activity != null && activity.lastActiveTime > 0 ? new Date(activity.lastActiveTime) : null;
+    }
+
+    private CachedActivity getActivity(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        CachedActivity cached = cache.get(userId);
+        if (cached != null && cached.expireAt > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        try {
+            Map<Object, Object> counters = stringRedisTemplate.opsForHash().entries(ACTIVITY_KEY_PREFIX + userId);
+            return computeAndCache(userId, counters);
+        } catch (Exception e) {
+            log.warn("获取用户活跃度失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> castCounters(Object counters) {
+        return counters instanceof Map ? (Map<Object, Object>) counters : Collections.emptyMap();
+    }
+
+    /**
+     * 根据计数计算活跃度并写入本地缓存，顺带清理窗口外的计数字段
+     */
+    private CachedActivity computeAndCache(Long userId, Map<Object, Object> counters) {
+        String cutoff = LocalDate.now().minusDays(windowDays - 1L).format(DAY_FORMATTER);
+        Map<String, Integer> weights = new HashMap<>();
+        for (ActivityType type : ActivityType.values()) {
+            weights.put(type.getField(), type.getWeight());
+        }
+
+        long lastActiveTime = 0;
+        int weightedCount = 0;
+        List<Object> staleFields = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : counters.entrySet()) {
+            String field = entry.getKey().toString();
+            if (LAST_ACTIVE_FIELD.equals(field)) {
+                lastActiveTime = parseLong(entry.getValue());
+                continue;
+            }
+
+            int separator = field.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            String day = field.substring(separator + 1);
+            if (day.compareTo(cutoff) < 0) {
+                staleFields.add(field);
+                continue;
+            }
+            Integer weight = weights.get(field.substring(0, separator));
+            if (weight != null) {
+                weightedCount += weight * (int) parseLong(entry.getValue());
+            }
+        }
+
+        if (!staleFields.isEmpty()) {
+            try {
+                stringRedisTemplate.opsForHash().delete(ACTIVITY_KEY_PREFIX + userId, staleFields.toArray());
+            } catch (Exception e) {
+                log.warn("清理过期活跃度计数失败: userId={}", userId, e);
+            }
+        }
+
+        // 没有行为记录（如计数上线前的老用户）时，用候选索引中的更新时间估计最后活跃时间
+        if (lastActiveTime == 0) {
+            UserCandidateIndexService.Candidate candidate = candidateIndexService.getCandidate(userId);
+            User user = candidate != null ? candidate.getUser() : null;
+            if (user != null && user.getUpdateTime() != null) {
+                lastActiveTime = user.getUpdateTime().getTime();
+            }
+        }
+
+        int score = Math.min(10, recencyScore(lastActiveTime) + contentScore(weightedCount));
+        CachedActivity activity = new CachedActivity(score, lastActiveTime,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cacheTtlSeconds));
+        if (cache.size() >= MAX_CACHE_ENTRIES) {
+            cache.clear();
+        }
+        cache.put(userId, activity);
+        return activity;
+    }
+
+    /**
+     * 最近活跃得分 (0-4)
+     */
+    private int recencyScore(long lastActiveTime) {
+        if (lastActiveTime <= 0) {
+            return 0;
+        }
+        long daysDiff = (System.currentTimeMillis() - lastActiveTime) / DAY_MILLIS;
+        if (daysDiff <= 1) {
+            return 4; // 今天活跃
+        } else if (daysDiff <= 3) {
+            return 3; // 近3天活跃
+        } else if (daysDiff <= 7) {
+            return 2; // 近一周活跃
+        } else if (daysDiff <= 30) {
+            return 1; // 近一月活跃
+        }
+        return 0;
+    }
+
+    /**
+     * 内容活跃度得分 (0-6)，按窗口内加权行为数分档
+     */
+    private int contentScore(int weightedCount) {
+        int score = 0;
+        for (int threshold : CONTENT_SCORE_THRESHOLDS) {
+            if (weightedCount >= threshold) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    private long parseLong(Object value) {
+        try {
+            return value != null ? Long.parseLong(value.toString()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 活跃度缓存条目
+     */
+    private static class CachedActivity {
+        private final int score;
+        private final long lastActiveTime;
+        private final long expireAt;
+
+        CachedActivity(int score, long lastActiveTime, long expireAt) {
+            this.score = score;
+            this.lastActiveTime = lastActiveTime;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.soical.server.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.soical.server.entity.User;
+import com.soical.server.entity.UserProfile;
+import com.soical.server.mapper.UserMapper;
+import com.soical.server.mapper.UserProfileMapper;
+import com.soical.server.service.UserCandidateIndexService;
+import com.soical.server.util.LocationUtil;
+import com.soical.server.util.ProfileFeatureVector;
+import com.soical.server.util.RandomSampler;
+import com.soical.server.util.TransactionUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 推荐候选用户索引服务实现类
+ * 启动时从t_user和t_user_profile全量加载，之后由用户/资料更新增量刷新。
+ * 每个实例各有一份索引，刷新在事务提交后执行，并通过Redis频道广播给其他实例
+ */
+@Slf4j
+@Service
+public class UserCandidateIndexServiceImpl implements UserCandidateIndexService, CommandLineRunner {
+
+    /**
+     * 启动加载时每批读取的用户数
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * 年龄段跨度（按出生年份分桶）
+     */
+    private static final int BIRTH_YEAR_BUCKET_SPAN = 5;
+
+    /**
+     * 抽样快照中表示不限性别的键
+     */
+    private static final Integer ALL_GENDERS = -1;
+
+    /**
+     * 刷新广播频道，消息格式为 {实例ID}:{用户ID}
+     */
+    private static final String REFRESH_CHANNEL = "user:candidate:refresh";
+
+    /**
+     * 本实例ID，收到自己发出的广播时跳过
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserProfileMapper userProfileMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 用户ID -> 索引项
+     */
+    private final Map<Long, Candidate> candidates = new ConcurrentHashMap<>();
+
+    /**
+     * 分区 -> 用户ID集合
+     */
+    private final Map<PartitionKey, Set<Long>> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * 随机抽样用的ID数组快照：性别 -> 用户ID数组，键ALL_GENDERS为全部用户
+     * 索引变更后标记失效，下次抽样时重建
+     */
+    private volatile Map<Integer, long[]> sampleSnapshots = Collections.emptyMap();
+
+    private volatile boolean sampleSnapshotsDirty = true;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(refreshListener(), new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        rebuild();
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        log.info("开始构建推荐候选用户索引...");
+
+        int loaded = 0;
+        Long lastUserId = 0L;
+        while (true) {
+            // 按主键分批加载正常状态的用户，避免一次性读取整表
+            LambdaQueryWrapper<User> userQuery = Wrappers.lambdaQuery();
+            userQuery.eq(User::getStatus, 1)
+                    .gt(User::getUserId, lastUserId)
+                    .orderByAsc(User::getUserId)
+                    .last("LIMIT " + LOAD_BATCH_SIZE);
+            List<User> users = userMapper.selectList(userQuery);
+            if (users.isEmpty()) {
+                break;
+            }
+
+            List<Long> userIds = users.stream().map(User::getUserId).collect(Collectors.toList());
+            LambdaQueryWrapper<UserProfile> profileQuery = Wrappers.lambdaQuery();
+            profileQuery.in(UserProfile::getUserId, userIds);
+            Map<Long, UserProfile> profileMap = new HashMap<>();
+            for (UserProfile profile : userProfileMapper.selectList(profileQuery)) {
+                profileMap.putIfAbsent(profile.getUserId(), profile);
+            }
+
+            for (User user : users) {
+                UserProfile profile = profileMap.get(user.getUserId());
+                if (profile != null) {
+                    put(buildCandidate(user, profile));
+                    loaded++;
+                }
+            }
+
+            lastUserId = users.get(users.size() - 1).getUserId();
+            if (users.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+
+        log.info("推荐候选用户索引构建完成: users={}, partitions={}, cost={}ms",
+                loaded, partitions.size(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void refresh(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        // 在事务提交后刷新，读取到本次写入的数据，回滚时不刷新
+        TransactionUtils.afterCommit(() -> {
+            refreshLocal(userId);
+            broadcast(userId);
+        });
+    }
+
+    @Override
+    public void remove(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            removeLocal(userId);
+            // 其他实例收到后按数据库状态刷新，用户已不可推荐时同样会移除
+            broadcast(userId);
+        });
+    }
+
+    /**
+     * 按数据库中的最新状态刷新本实例的索引项
+     */
+    private void refreshLocal(Long userId) {
+        try {
+            User user = userMapper.selectById(userId);
+            if (user == null || user.getStatus() == null || user.getStatus() != 1) {
+                removeLocal(userId);
+                return;
+            }
+
+            UserProfile profile = userProfileMapper.selectOne(Wrappers.lambdaQuery(UserProfile.class)
+                    .eq(UserProfile::getUserId, userId)
+                    .last("LIMIT 1"));
+            if (profile == null) {
+                removeLocal(userId);
+                return;
+            }
+
+            put(buildCandidate(user, profile));
+        } catch (Exception e) {
+            // 刷新失败不影响主流程，下次重建时会修正
+            log.warn("刷新推荐候选用户索引失败: userId={}", userId, e);
+        }
+    }
+
+    private void removeLocal(Long userId) {
+        candidates.computeIfPresent(userId, (id, old) -> {
+            removeFromPartition(partitionOf(old), id);
+            sampleSnapshotsDirty = true;
+            return null;
+        });
+    }
+
+    private void broadcast(Long userId) {
+        try {
+            stringRedisTemplate.convertAndSend(REFRESH_CHANNEL, instanceId + ":" + userId);
+        } catch (Exception e) {
+            log.warn("广播推荐候选用户索引刷新失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 刷新广播监听器，按数据库状态刷新本实例的索引项
+     */
+    private MessageListener refreshListener() {
+        return (message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                int separator = body.lastIndexOf(':');
+                if (!instanceId.equals(body.substring(0, separator))) {
+                    refreshLocal(Long.valueOf(body.substring(separator + 1)));
+                }
+            } catch (RuntimeException e) {
+                log.warn("处理推荐候选用户索引刷新消息失败: {}", body, e);
+            }
+        };
+    }
+
+    @Override
+    public Candidate getCandidate(Long userId) {
+        return userId == null ? null : candidates.get(userId);
+    }
+
+    @Override
+    public List<Candidate> findCandidates(Integer gender, Integer ageMin, Integer ageMax, Set<Long> excludeUserIds) {
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        // 年龄范围换算为出生年份范围（按年份粗略换算，边界各放宽一年）
+        Integer minBirthYear = ageMax != null ? currentYear - ageMax - 1 : null;
+        Integer maxBirthYear = ageMin != null ? currentYear - ageMin : null;
+        boolean filterGender = gender != null && gender > 0;
+
+        List<Candidate> result = new ArrayList<>();
+        for (Map.Entry<PartitionKey, Set<Long>> entry : partitions.entrySet()) {
+            PartitionKey key = entry.getKey();
+            if (filterGender && !gender.equals(key.getGender())) {
+                continue;
+            }
+            if (!bucketInRange(key.getBirthYearBucket(), minBirthYear, maxBirthYear)) {
+                continue;
+            }
+
+            for (Long userId : entry.getValue()) {
+                if (excludeUserIds != null && excludeUserIds.contains(userId)) {
+                    continue;
+                }
+                Candidate candidate = candidates.get(userId);
+                // 分区迁移过程中用户可能同时出现在新旧两个分区，只在当前所属分区中计入
+                if (candidate == null || !key.equals(partitionOf(candidate))
+                        || !birthYearInRange(candidate.getBirthYear(), minBirthYear, maxBirthYear)) {
+                    continue;
+                }
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Long> sampleCandidateIds(Integer gender, Set<Long> excludeUserIds, int count) {
+        Integer snapshotKey = gender != null && gender > 0 ? gender : ALL_GENDERS;
+        long[] ids = getSampleSnapshots().get(snapshotKey);
+        // 快照可能滞后于索引，抽样时再确认用户仍在索引中
+        return RandomSampler.sample(ids, count,
+                id -> (excludeUserIds == null || !excludeUserIds.contains(id)) && candidates.containsKey(id));
+    }
+
+    @Override
+    public int size() {
+        return candidates.size();
+    }
+
+    /**
+     * 获取抽样快照，索引有变更时重建
+     */
+    private Map<Integer, long[]> getSampleSnapshots() {
+        if (!sampleSnapshotsDirty) {
+            return sampleSnapshots;
+        }
+        synchronized (this) {
+            if (sampleSnapshotsDirty) {
+                // 先清除标记，重建期间发生的变更会再次标记
+                sampleSnapshotsDirty = false;
+                Map<Integer, List<Long>> grouped = new HashMap<>();
+                for (Candidate candidate : candidates.values()) {
+                    grouped.computeIfAbsent(ALL_GENDERS, k -> new ArrayList<>()).add(candidate.getUserId());
+                    if (candidate.getGender() != null) {
+                        grouped.computeIfAbsent(candidate.getGender(), k -> new ArrayList<>()).add(candidate.getUserId());
+                    }
+                }
+
+                Map<Integer, long[]> snapshots = new HashMap<>();
+                grouped.forEach((key, userIds) -> snapshots.put(key, userIds.stream().mapToLong(Long::longValue).toArray()));
+                sampleSnapshots = snapshots;
+            }
+            return sampleSnapshots;
+        }
+    }
+
+    /**
+     * 写入索引项，并从旧分区迁移到新分区
+     * 同一用户的写入和移除在compute中串行执行，索引项与分区保持一致；先加入新分区再移出旧分区，读取时不会遗漏
+     */
+    private void put(Candidate candidate) {
+        candidates.compute(candidate.getUserId(), (userId, old) -> {
+            PartitionKey newKey = partitionOf(candidate);
+            partitions.computeIfAbsent(newKey, k -> ConcurrentHashMap.newKeySet()).add(userId);
+            if (old != null) {
+                PartitionKey oldKey = partitionOf(old);
+                if (!oldKey.equals(newKey)) {
+                    removeFromPartition(oldKey, userId);
+                }
+            }
+            sampleSnapshotsDirty = true;
+            return candidate;
+        });
+    }
+
+    private void removeFromPartition(PartitionKey key, Long userId) {
+        Set<Long> userIds = partitions.get(key);
+        if (userIds != null) {
+            userIds.remove(userId);
+        }
+    }
+
+    /**
+     * 构建索引项，预先计算特征向量和省份
+     */
+    private Candidate buildCandidate(User user, UserProfile profile) {
+        // 索引常驻内存，不保留密码
+        user.setPassword(null);
+
+        Candidate candidate = new Candidate();
+        candidate.setUserId(user.getUserId());
+        candidate.setUser(user);
+        candidate.setProfile(profile);
+        candidate.setGender(user.getGender());
+        candidate.setEducation(profile.getEducation());
+        candidate.setProvince(LocationUtil.extractProvince(profile.getLocation()));
+
+        ProfileFeatureVector features = ProfileFeatureVector.of(user, profile);
+        candidate.setFeatures(features);
+        if (features.hasBirthYear()) {
+            candidate.setBirthYear(features.getBirthYear());
+        }
+
+        return candidate;
+    }
+
+    private PartitionKey partitionOf(Candidate candidate) {
+        Integer bucket = candidate.getBirthYear() != null ? candidate.getBirthYear() / BIRTH_YEAR_BUCKET_SPAN : null;
+        return new PartitionKey(candidate.getGender(), candidate.getProvince(), bucket, candidate.getEducation());
+    }
+
+    /**
+     * 判断年龄段分桶与出生年份范围是否有交集，生日未知的分桶总是保留
+     */
+    private boolean bucketInRange(Integer bucket, Integer minBirthYear, Integer maxBirthYear) {
+        if (bucket == null) {
+            return true;
+        }
+        int bucketStart = bucket * BIRTH_YEAR_BUCKET_SPAN;
+        int bucketEnd = bucketStart + BIRTH_YEAR_BUCKET_SPAN - 1;
+        return (minBirthYear == null || bucketEnd >= minBirthYear)
+                && (maxBirthYear == null || bucketStart <= maxBirthYear);
+    }
+
+    private boolean birthYearInRange(Integer birthYear, Integer minBirthYear, Integer maxBirthYear) {
+        if (birthYear == null) {
+            return true;
+        }
+        return (minBirthYear == null || birthYear >= minBirthYear)
+                && (maxBirthYear == null || birthYear <= maxBirthYear);
+    }
+
+    /**
+     * 索引分区键：性别 + 省份 + 年龄段 + 学历
+     */
+    @Data
+    private static class PartitionKey {
+        private final Integer gender;
+        private final String province;
+        private final Integer birthYearBucket;
+        private final Integer education;
+    }
+}
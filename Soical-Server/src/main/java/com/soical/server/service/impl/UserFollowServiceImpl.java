@@ -10,6 +10,7 @@ import com.soical.server.entity.User;
 import com.soical.server.entity.UserFollow;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.UserFollowMapper;
+import com.soical.server.service.PostTimelineService;
 import com.soical.server.service.UserFollowService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
@@ -30,6 +31,7 @@ import java.util.stream.Collectors;
 public class UserFollowServiceImpl extends ServiceImpl<UserFollowMapper, UserFollow> implements UserFollowService {
 
     private final UserService userService;
+    private final PostTimelineService postTimelineService;
     private ApplicationContext applicationContext;
     
     // 使用懒加载方式获取UserProfileService，避免循环依赖
@@ -38,8 +40,10 @@ public class UserFollowServiceImpl extends ServiceImpl<UserFollowMapper, UserFol
     }
     
     @Autowired
-    public UserFollowServiceImpl(UserService userService, ApplicationContext applicationContext) {
+    public UserFollowServiceImpl(UserService userService, PostTimelineService postTimelineService,
+                                 ApplicationContext applicationContext) {
         this.userService = userService;
+        this.postTimelineService = postTimelineService;
         this.applicationContext = applicationContext;
     }
 
@@ -73,7 +77,9 @@ public class UserFollowServiceImpl extends ServiceImpl<UserFollowMapper, UserFol
             if (existFollow.getStatus() == 0) {
                 existFollow.setStatus(1);
                 existFollow.setCreateTime(new Date());
-                return updateById(existFollow);
+                boolean updated = updateById(existFollow);
+                postTimelineService.invalidate(followerId);
+                return updated;
             } else {
                 // 已关注
                 return true;
@@ -87,7 +93,10 @@ public class UserFollowServiceImpl extends ServiceImpl<UserFollowMapper, UserFol
         userFollow.setStatus(1);
         userFollow.setCreateTime(new Date());
         
-        return save(userFollow);
+        boolean saved = save(userFollow);
+        // 关注关系变化，关注动态时间线需要重建
+        postTimelineService.invalidate(followerId);
+        return saved;
     }
 
     @Override
@@ -111,7 +120,9 @@ public class UserFollowServiceImpl extends ServiceImpl<UserFollowMapper, UserFol
         
         // 更新状态为取消关注
         userFollow.setStatus(0);
-        return updateById(userFollow);
+        boolean updated = updateById(userFollow);
+        postTimelineService.invalidate(followerId);
+        return updated;
     }
 
     @Override
@@ -1,34 +1,51 @@
 package com.soical.server.service.impl;
 
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.soical.server.dto.UserMatchDTO;
 import com.soical.server.dto.UserRecommendDTO;
 import com.soical.server.entity.User;
 import com.soical.server.entity.UserMatch;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.entity.UserPreference;
 import com.soical.server.mapper.UserMatchMapper;
+import com.soical.server.service.RecommendMetricsService;
+import com.soical.server.service.UserActivityService;
+import com.soical.server.service.UserCandidateIndexService;
 import com.soical.server.service.UserMatchService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
 import com.soical.server.service.UserPreferenceService;
 import com.soical.server.service.UserRecommendationService;
+import com.soical.server.service.UserSimilarityService;
+import com.soical.server.util.ProfileFeatureVector;
+import com.soical.server.util.TransactionUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,6 +56,39 @@ import java.util.stream.Stream;
 @Service
 public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch> implements UserMatchService {
 
+    /**
+     * 每日推荐卡组缓存键前缀：user:recommend:{userId}:{date}
+     */
+    private static final String RECOMMEND_DECK_KEY_PREFIX = "user:recommend:";
+
+    /**
+     * 卡组推荐类型哈希后缀
+     */
+    private static final String RECOMMEND_DECK_TYPE_SUFFIX = ":type";
+
+    /**
+     * 卡组筛选条件后缀
+     */
+    private static final String RECOMMEND_DECK_FILTER_SUFFIX = ":filter";
+
+    /**
+     * 卡组分数中相似度的放大倍数，低位用于保存名次
+     */
+    private static final long RECOMMEND_DECK_SCORE_SCALE = 10000L;
+
+    /**
+     * 推荐策略名称，用于指标统计
+     */
+    private static final String STRATEGY_COLLABORATIVE = "collaborative";
+    private static final String STRATEGY_CONTENT = "content";
+    private static final String STRATEGY_POPULAR = "popular";
+
+    @Value("${recommend.deck.size:100}")
+    private int recommendDeckSize;
+
+    @Value("${recommend.strategy-timeout-ms:800}")
+    private long strategyTimeoutMillis;
+
     @Autowired
     private UserService userService;
 
@@ -46,7 +96,7 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
     private UserProfileService userProfileService;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
 
     @Autowired
     private UserPreferenceService userPreferenceService;
@@ -54,9 +104,146 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
     @Autowired
     private UserRecommendationService recommendationService;
 
+    @Autowired
+    private RecommendMetricsService recommendMetricsService;
+
+    @Autowired
+    private UserActivityService userActivityService;
+
+    @Autowired
+    @Qualifier("recommendExecutor")
+    private AsyncTaskExecutor recommendExecutor;
+
+    @Autowired
+    private UserSimilarityService userSimilarityService;
+
+    @Autowired
+    private UserCandidateIndexService candidateIndexService;
+
     @Override
     public List<UserRecommendDTO> getRecommendedUsers(Long userId, Integer gender, Integer ageMin, Integer ageMax, 
-                                                     String location, String interests, Integer limit) {
+                                                     String location, String interests, Long cursor, Integer limit) {
+        String deckKey = getRecommendDeckKey(userId);
+        String filterSignature = gender + "|" + ageMin + "|" + ageMax + "|" + location + "|" + interests;
+        
+        try {
+            // 1. 当天卡组不存在、已被消费完或筛选条件变化时，重新生成卡组并直接返回第一页
+            Long deckSize = stringRedisTemplate.opsForZSet().zCard(deckKey);
+            String deckSignature = stringRedisTemplate.opsForValue().get(deckKey + RECOMMEND_DECK_FILTER_SUFFIX);
+            if (deckSize == null || deckSize == 0 || !filterSignature.equals(deckSignature)) {
+                List<UserRecommendDTO> deck = computeRecommendations(
+                        userId, gender, ageMin, ageMax, location, interests, recommendDeckSize);
+                saveRecommendDeck(deckKey, filterSignature, deck);
+                return deck.stream().limit(limit).collect(Collectors.toList());
+            }
+            
+            // 2. 从卡组按游标读取下一页
+            return readRecommendDeckPage(deckKey, cursor, limit);
+        } catch (Exception e) {
+            log.warn("读取推荐卡组失败，直接计算推荐结果: userId={}", userId, e);
+            return computeRecommendations(userId, gender, ageMin, ageMax, location, interests, limit);
+        }
+    }
+
+    /**
+     * 获取当天推荐卡组的缓存键
+     */
+    private String getRecommendDeckKey(Long userId) {
+        return RECOMMEND_DECK_KEY_PREFIX + userId + ":" + LocalDate.now();
+    }
+
+    /**
+     * 保存推荐卡组
+     * 卡组为有序集合，成员为用户ID，分数=相似度*RECOMMEND_DECK_SCORE_SCALE+名次倒序，保证唯一且按排名降序，
+     * 同时作为分页游标；推荐类型单独存放在哈希中
+     */
+    private void saveRecommendDeck(String deckKey, String filterSignature, List<UserRecommendDTO> deck) {
+        String typeKey = deckKey + RECOMMEND_DECK_TYPE_SUFFIX;
+        String filterKey = deckKey + RECOMMEND_DECK_FILTER_SUFFIX;
+        stringRedisTemplate.delete(Arrays.asList(deckKey, typeKey, filterKey));
+        if (deck.isEmpty()) {
+            return;
+        }
+        
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        Map<String, String> types = new HashMap<>();
+        for (int i = 0; i < deck.size(); i++) {
+            UserRecommendDTO dto = deck.get(i);
+            int similarity = dto.getSimilarity() != null ? dto.getSimilarity() : 0;
+            long score = similarity * RECOMMEND_DECK_SCORE_SCALE + (RECOMMEND_DECK_SCORE_SCALE - 1 - i);
+            dto.setCursor(score);
+            tuples.add(new DefaultTypedTuple<>(dto.getUserId().toString(), (double) score));
+            if (dto.getRecommendType() != null) {
+                types.put(dto.getUserId().toString(), dto.getRecommendType());
+            }
+        }
+        
+        stringRedisTemplate.opsForZSet().add(deckKey, tuples);
+        if (!types.isEmpty()) {
+            stringRedisTemplate.opsForHash().putAll(typeKey, types);
+        }
+        stringRedisTemplate.opsForValue().set(filterKey, filterSignature);
+        for (String key : Arrays.asList(deckKey, typeKey, filterKey)) {
+            stringRedisTemplate.expire(key, 1, TimeUnit.DAYS);
+        }
+    }
+
+    /**
+     * 从推荐卡组读取一页，游标为上一页最后一条的分数
+     */
+    private List<UserRecommendDTO> readRecommendDeckPage(String deckKey, Long cursor, Integer limit) {
+        double max = cursor != null ? cursor - 1 : Double.POSITIVE_INFINITY;
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeByScoreWithScores(deckKey, Double.NEGATIVE_INFINITY, max, 0, limit);
+        if (tuples == null || tuples.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        Map<Long, Long> scores = new LinkedHashMap<>();
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            scores.put(Long.valueOf(tuple.getValue()), tuple.getScore().longValue());
+        }
+        List<Object> typeFields = new ArrayList<>();
+        scores.keySet().forEach(id -> typeFields.add(id.toString()));
+        List<Object> types = stringRedisTemplate.opsForHash().multiGet(deckKey + RECOMMEND_DECK_TYPE_SUFFIX, typeFields);
+        Map<Long, String> typeMap = new HashMap<>();
+        int index = 0;
+        for (Long recommendedUserId : scores.keySet()) {
+            Object type = types.get(index++);
+            if (type != null) {
+                typeMap.put(recommendedUserId, type.toString());
+            }
+        }
+        
+        // 批量组装DTO，恢复卡组中的得分和推荐类型
+        List<UserRecommendDTO> page = recommendationService.assembleRecommendDTOsByIds(scores.keySet());
+        for (UserRecommendDTO dto : page) {
+            long score = scores.get(dto.getUserId());
+            dto.setCursor(score);
+            dto.setSimilarity((int) (score / RECOMMEND_DECK_SCORE_SCALE));
+            dto.setRecommendType(typeMap.get(dto.getUserId()));
+        }
+        return page;
+    }
+
+    /**
+     * 从当天推荐卡组中移除已处理（喜欢/不喜欢）的用户
+     */
+    private void consumeRecommendDeck(Long userId, Long targetUserId) {
+        try {
+            String deckKey = getRecommendDeckKey(userId);
+            stringRedisTemplate.opsForZSet().remove(deckKey, targetUserId.toString());
+            stringRedisTemplate.opsForHash().delete(deckKey + RECOMMEND_DECK_TYPE_SUFFIX, targetUserId.toString());
+        } catch (Exception e) {
+            log.warn("移除推荐卡组成员失败: userId={}, targetUserId={}", userId, targetUserId, e);
+        }
+    }
+
+    /**
+     * 计算推荐结果：合并协同过滤、基于内容和热门三种策略
+     */
+    private List<UserRecommendDTO> computeRecommendations(Long userId, Integer gender, Integer ageMin, Integer ageMax,
+                                                          String location, String interests, Integer limit) {
         try {
             // 1. 获取用户偏好
                 UserPreference preference = userPreferenceService.getUserPreference(userId);
@@ -92,24 +279,37 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
                 preference.setLocationPreference(location);
             }
 
-            // 4. 获取不同类型的推荐结果
-            List<UserRecommendDTO> collaborativeResults = recommendationService
-                .getCollaborativeFilteringRecommendations(userId, preference.getGenderPreference(), excludeUserIds, limit);
-                
-            List<UserRecommendDTO> contentResults = recommendationService
-                .getContentBasedRecommendations(
-                    userId, 
-                    preference.getGenderPreference(),
-                    preference.getAgeMin(),
-                    preference.getAgeMax(),
-                    preference.getLocationPreference(),
+            // 4. 并行获取不同类型的推荐结果，共用同一个截止时间，超时的策略按无结果处理
+            final Integer genderPreference = preference.getGenderPreference();
+            final Integer ageMinPreference = preference.getAgeMin();
+            final Integer ageMaxPreference = preference.getAgeMax();
+            final String locationPreference = preference.getLocationPreference();
+            long deadline = System.currentTimeMillis() + strategyTimeoutMillis;
+
+            StrategyCall collaborativeCall = submitStrategy(STRATEGY_COLLABORATIVE,
+                () -> recommendationService.getCollaborativeFilteringRecommendations(
+                    userId, genderPreference, excludeUserIds, limit));
+            StrategyCall contentCall = submitStrategy(STRATEGY_CONTENT,
+                () -> recommendationService.getContentBasedRecommendations(
+                    userId,
+                    genderPreference,
+                    ageMinPreference,
+                    ageMaxPreference,
+                    locationPreference,
                     interests, // 使用传入的兴趣参数
                     excludeUserIds,
                     limit
-                );
-                
-            List<UserRecommendDTO> popularResults = recommendationService
-                .getPopularUserRecommendations(userId, preference.getGenderPreference(), excludeUserIds, limit);
+                ));
+            StrategyCall popularCall = submitStrategy(STRATEGY_POPULAR,
+                () -> recommendationService.getPopularUserRecommendations(
+                    userId, genderPreference, excludeUserIds, limit));
+
+            List<UserRecommendDTO> collaborativeResults = awaitStrategy(collaborativeCall, deadline);
+            List<UserRecommendDTO> contentResults = awaitStrategy(contentCall, deadline);
+            List<UserRecommendDTO> popularResults = awaitStrategy(popularCall, deadline);
+            Set<Long> collaborativeIds = collaborativeResults.stream().map(UserRecommendDTO::getUserId).collect(Collectors.toSet());
+            Set<Long> contentIds = contentResults.stream().map(UserRecommendDTO::getUserId).collect(Collectors.toSet());
+            Set<Long> popularIds = popularResults.stream().map(UserRecommendDTO::getUserId).collect(Collectors.toSet());
 
             // 5. 合并结果并计算最终得分
             Map<Long, UserRecommendDTO> finalResults = new HashMap<>();
@@ -148,10 +348,19 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
             }
 
             // 7. 排序并返回结果
-            return finalResults.values().stream()
+            List<UserRecommendDTO> result = finalResults.values().stream()
                 .sorted(Comparator.comparing(UserRecommendDTO::getSimilarity).reversed())
                 .limit(limit)
                 .collect(Collectors.toList());
+
+            // 8. 统计各策略进入最终列表的数量
+            recommendMetricsService.recordSelected(STRATEGY_COLLABORATIVE,
+                (int) result.stream().filter(dto -> collaborativeIds.contains(dto.getUserId())).count());
+            recommendMetricsService.recordSelected(STRATEGY_CONTENT,
+                (int) result.stream().filter(dto -> contentIds.contains(dto.getUserId())).count());
+            recommendMetricsService.recordSelected(STRATEGY_POPULAR,
+                (int) result.stream().filter(dto -> popularIds.contains(dto.getUserId())).count());
+            return result;
         
         } catch (Exception e) {
             log.error("获取推荐用户失败: userId={}", userId, e);
@@ -159,16 +368,96 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         }
     }
 
+    /**
+     * 提交推荐策略到推荐线程池，并记录耗时与命中数
+     * 线程池已满时返回空结果，不阻塞请求线程
+     */
+    private StrategyCall submitStrategy(String strategy, Supplier<List<UserRecommendDTO>> supplier) {
+        StrategyCall call = new StrategyCall(strategy);
+        try {
+            call.future = recommendExecutor.submit(() -> {
+                long start = System.currentTimeMillis();
+                List<UserRecommendDTO> results = supplier.get();
+                results = results != null ? results : Collections.<UserRecommendDTO>emptyList();
+                // 已按超时处理的策略不再记为成功
+                if (call.settle()) {
+                    recommendMetricsService.recordSuccess(strategy, System.currentTimeMillis() - start, results.size());
+                }
+                return results;
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("推荐线程池已满，跳过策略: strategy={}", strategy);
+            call.settle();
+            recommendMetricsService.recordFailure(strategy);
+        }
+        return call;
+    }
+
+    /**
+     * 在截止时间前等待策略结果，超时或失败时返回空结果
+     * 超时后取消任务：尚未开始的不再执行，执行中的被中断
+     */
+    private List<UserRecommendDTO> awaitStrategy(StrategyCall call, long deadline) {
+        if (call.future == null) {
+            return Collections.emptyList();
+        }
+        long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+        try {
+            return call.future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 与任务完成竞争，只有先到的一方记录结果
+            if (call.settle()) {
+                call.future.cancel(true);
+                log.warn("推荐策略超时: strategy={}, timeout={}ms", call.strategy, strategyTimeoutMillis);
+                recommendMetricsService.recordTimeout(call.strategy);
+            } else {
+                // 任务恰好在超时时完成，结果已记为成功，等待其返回后直接使用
+                return getCompleted(call.future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.future.cancel(true);
+            call.settle();
+        } catch (ExecutionException e) {
+            log.error("推荐策略执行失败: strategy={}", call.strategy, e.getCause());
+            if (call.settle()) {
+                recommendMetricsService.recordFailure(call.strategy);
+            }
+        } catch (CancellationException e) {
+            call.settle();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 读取已完成任务的结果，失败时返回空结果
+     */
+    private List<UserRecommendDTO> getCompleted(Future<List<UserRecommendDTO>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            log.debug("读取推荐策略结果失败", e);
+        }
+        return Collections.emptyList();
+    }
+
     /**
      * 计算最终推荐得分
      */
     private void calculateFinalScores(List<UserRecommendDTO> recommendations) {
+        // 批量读取活跃度
+        Map<Long, Integer> activityScores = userActivityService.getActivityScores(recommendations.stream()
+                .map(UserRecommendDTO::getUserId)
+                .collect(Collectors.toList()));
+        
         for (UserRecommendDTO dto : recommendations) {
             // 基础相似度得分 (60%)
             int similarity = dto.getSimilarity() != null ? dto.getSimilarity() : 50;
             
             // 活跃度得分 (20%)
-            int activityScore = getUserActivityScore(dto.getUserId());
+            int activityScore = activityScores.getOrDefault(dto.getUserId(), 0);
             
             // 时间衰减因子
             double timeDecay = calculateTimeDecay(dto.getUserId());
@@ -187,14 +476,14 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
      */
     private double calculateTimeDecay(Long userId) {
         try {
-            User user = userService.getById(userId);
-            if (user == null || user.getUpdateTime() == null) {
+            Date lastActiveTime = userActivityService.getLastActiveTime(userId);
+            if (lastActiveTime == null) {
                 return 0.7; // 默认衰减
             }
             
             // 计算最后活跃距今天数
             long daysSinceLastActive = Duration.between(
-                user.getUpdateTime().toInstant(),
+                lastActiveTime.toInstant(),
                 new Date().toInstant()
             ).toDays();
             
@@ -261,183 +550,55 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         Set<Long> interactedUserIds = getUserInteractedIds(userId);
         interactedUserIds.add(userId); // 排除自己
         
-        // 获取未交互的用户，使用基础过滤条件
-        LambdaQueryWrapper<User> queryWrapper = Wrappers.lambdaQuery();
-        queryWrapper.notIn(interactedUserIds.isEmpty() ? false : true, User::getUserId, interactedUserIds);
-        queryWrapper.eq(User::getStatus, 1); // 只推荐正常状态的用户
-        
+        // 确定性别过滤条件
+        Integer targetGender = null;
         if (gender != null && gender > 0) {
             // 如果指定了性别偏好，则按偏好过滤
-            queryWrapper.eq(User::getGender, gender);
+            targetGender = gender;
         } else {
             // 否则基于用户自身性别智能推荐（异性优先）
-            User currentUser = userService.getById(userId);
-            if (currentUser != null && currentUser.getGender() != null && currentUser.getGender() > 0) {
-                if (currentUser.getGender() == 1) {
-                    queryWrapper.eq(User::getGender, 2); // 男性用户推荐女性
-                } else if (currentUser.getGender() == 2) {
-                    queryWrapper.eq(User::getGender, 1); // 女性用户推荐男性
-                }
+            UserCandidateIndexService.Candidate self = candidateIndexService.getCandidate(userId);
+            Integer selfGender = self != null ? self.getGender() : null;
+            if (selfGender != null && selfGender == 1) {
+                targetGender = 2; // 男性用户推荐女性
+            } else if (selfGender != null && selfGender == 2) {
+                targetGender = 1; // 女性用户推荐男性
             }
         }
         
-        // 随机获取用户
-        List<User> randomUsers = userService.list(queryWrapper);
+        // 从候选索引的ID快照中随机抽样，避免全表查询后洗牌
+        List<Long> randomUserIds = candidateIndexService.sampleCandidateIds(targetGender, interactedUserIds, limit);
         
-        // 如果没有符合条件的用户，放宽条件再查询
-        if (randomUsers.isEmpty()) {
+        // 如果没有符合条件的用户，放宽条件再抽样
+        if (randomUserIds.isEmpty() && targetGender != null) {
             log.info("使用宽松条件查询推荐用户: userId={}", userId);
-            queryWrapper = Wrappers.lambdaQuery();
-            queryWrapper.notIn(interactedUserIds.isEmpty() ? false : true, User::getUserId, interactedUserIds);
-            queryWrapper.eq(User::getStatus, 1);
-            randomUsers = userService.list(queryWrapper);
+            randomUserIds = candidateIndexService.sampleCandidateIds(null, interactedUserIds, limit);
         }
         
-        if (randomUsers.isEmpty()) {
+        if (randomUserIds.isEmpty()) {
             log.warn("系统中没有其他可推荐用户: userId={}", userId);
             return new ArrayList<>();
         }
         
-        // 随机打乱顺序
-        Collections.shuffle(randomUsers);
-        
-        // 返回截取的用户列表
-        List<UserRecommendDTO> result = randomUsers.stream()
-                .limit(limit)
-                .map(this::convertToRecommendDTO)
-                .collect(Collectors.toList());
+        // 批量组装DTO
+        List<UserRecommendDTO> result = recommendationService.assembleRecommendDTOsByIds(randomUserIds);
         
         log.info("生成基础推荐用户列表: userId={}, count={}", userId, result.size());
         return result;
     }
 
-    /**
-     * 检查当前用户是否已经喜欢过目标用户
-     */
-    private boolean checkIfUserLiked(Long currentUserId, Long targetUserId) {
-        LambdaQueryWrapper<UserMatch> queryWrapper = Wrappers.lambdaQuery();
-        queryWrapper.eq(UserMatch::getUserAId, currentUserId);
-        queryWrapper.eq(UserMatch::getUserBId, targetUserId);
-        return baseMapper.selectCount(queryWrapper) > 0;
-    }
-
-    /**
-     * 将User实体转换为推荐DTO
-     */
-    private UserRecommendDTO convertToRecommendDTO(User user) {
-        UserRecommendDTO dto = new UserRecommendDTO();
-        dto.setUserId(user.getUserId());
-        dto.setUsername(user.getUsername());
-        dto.setGender(user.getGender());
-        dto.setAvatar(user.getAvatar());
-        
-        // 计算年龄
-        if (user.getBirthday() != null) {
-            int age = calculateAge(user.getBirthday());
-            dto.setAge(age);
-        }
-        
-        // 获取其他资料信息
-        UserProfile profile = userProfileService.getProfileByUserId(user.getUserId());
-        if (profile != null) {
-            dto.setNickname(profile.getNickname());
-            dto.setLocation(profile.getLocation());
-            dto.setOccupation(profile.getOccupation());
-            dto.setSelfIntro(profile.getSelfIntro());
-            dto.setHobbies(profile.getHobbies());
-            
-            // 如果有相册，解析JSON为List<String>
-            if (profile.getPhotos() != null) {
-                try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    List<String> photoList = objectMapper.readValue(profile.getPhotos().toString(), new TypeReference<List<String>>() {});
-                    dto.setPhotos(photoList);
-                } catch (JsonProcessingException e) {
-                    log.error("解析相册JSON失败", e);
-                }
-            }
-        }
-        
-        // 相似度初始设置为50%
-        dto.setSimilarity(50);
-        dto.setIsLiked(false);
-        
-        return dto;
-    }
-
-    /**
-     * 将User和UserProfile转换为推荐DTO
-     */
-    private UserRecommendDTO convertToUserRecommendDTO(User user, UserProfile profile) {
-        UserRecommendDTO dto = new UserRecommendDTO();
-        dto.setUserId(user.getUserId());
-        dto.setUsername(user.getUsername());
-        dto.setGender(user.getGender());
-        dto.setAvatar(user.getAvatar());
-        
-        // 计算年龄
-        if (user.getBirthday() != null) {
-            int age = calculateAge(user.getBirthday());
-            dto.setAge(age);
-        }
-        
-        // 设置资料信息
-        if (profile != null) {
-            dto.setNickname(profile.getNickname());
-            dto.setLocation(profile.getLocation());
-            dto.setOccupation(profile.getOccupation());
-            dto.setSelfIntro(profile.getSelfIntro());
-            dto.setHobbies(profile.getHobbies());
-            
-            // 如果有相册，解析JSON为List<String>
-            if (profile.getPhotos() != null) {
-                try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    List<String> photoList = objectMapper.readValue(profile.getPhotos().toString(), new TypeReference<List<String>>() {});
-                    dto.setPhotos(photoList);
-                } catch (JsonProcessingException e) {
-                    log.error("解析相册JSON失败", e);
-                }
-            }
-        }
-        
-        // 相似度初始设置为50%
-        dto.setSimilarity(50);
-        dto.setIsLiked(false);
-        
-        return dto;
-    }
-
-    /**
-     * 计算年龄
-     */
-    private int calculateAge(Date birthday) {
-        if (birthday == null) {
-            return 0;
-        }
-        
-        Calendar birth = Calendar.getInstance();
-        birth.setTime(birthday);
-        Calendar today = Calendar.getInstance();
-        
-        int age = today.get(Calendar.YEAR) - birth.get(Calendar.YEAR);
-        
-        // 如果今年的生日还没到，年龄减1
-        if (today.get(Calendar.MONTH) < birth.get(Calendar.MONTH) ||
-            (today.get(Calendar.MONTH) == birth.get(Calendar.MONTH) &&
-             today.get(Calendar.DAY_OF_MONTH) < birth.get(Calendar.DAY_OF_MONTH))) {
-            age--;
-        }
-        
-        return Math.max(0, age);
-    }
-
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean likeUser(Long userId, Long targetUserId) {
         if (userId == null || targetUserId == null || userId.equals(targetUserId)) {
             return false;
         }
+        
+        // 提交后从推荐卡组中移除并记录行为，回滚时对方仍留在卡组中
+        TransactionUtils.afterCommit(() -> {
+            consumeRecommendDeck(userId, targetUserId);
+            userActivityService.record(userId, UserActivityService.ActivityType.LIKE);
+        });
 
         // 检查是否已存在匹配关系
         UserMatch existingMatch = getMatchBetweenUsers(userId, targetUserId);
@@ -460,6 +621,9 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
                 // 双方互相喜欢，更新为已匹配状态
                 existingMatch.setStatus(1); // 已匹配
                 updateById(existingMatch);
+                
+                // 增量刷新双方的协同过滤候选列表
+                userSimilarityService.refreshUsers(existingMatch.getUserAId(), existingMatch.getUserBId());
                 return true; // 匹配成功
                 
             } else if (existingMatch.getUserAId().equals(userId)) {
@@ -483,6 +647,9 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         if (userId == null || targetUserId == null || userId.equals(targetUserId)) {
             return false;
         }
+        
+        // 提交后从推荐卡组中移除，回滚时对方仍留在卡组中
+        TransactionUtils.afterCommit(() -> consumeRecommendDeck(userId, targetUserId));
 
         // 检查是否已存在匹配关系
         UserMatch existingMatch = getMatchBetweenUsers(userId, targetUserId);
@@ -556,100 +723,75 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
             return 0;
         }
 
-        // 获取两个用户的资料
-        UserProfile profileA = userProfileService.getProfileByUserId(userAId);
-        UserProfile profileB = userProfileService.getProfileByUserId(userBId);
-        
-        // 获取用户基本信息
-        User userA = userService.getById(userAId);
-        User userB = userService.getById(userBId);
+        // 获取两个用户的特征向量
+        ProfileFeatureVector featuresA = getFeatureVector(userAId);
+        ProfileFeatureVector featuresB = getFeatureVector(userBId);
 
-        if (profileA == null || profileB == null || userA == null || userB == null) {
+        if (featuresA == null || featuresB == null) {
             return 0;
         }
 
+        return calculateSimilarity(featuresA, featuresB,
+                getUserActivityScore(userAId), getUserActivityScore(userBId));
+    }
+
+    /**
+     * 根据特征向量和活跃度计算相似度，不访问数据库
+     */
+    private int calculateSimilarity(ProfileFeatureVector featuresA, ProfileFeatureVector featuresB,
+                                    int userAActivityScore, int userBActivityScore) {
         int matchScore = 0;
         int totalFactors = 0;
 
         // 1. 位置匹配 (25分)
-        if (StringUtils.hasText(profileA.getLocation()) && StringUtils.hasText(profileB.getLocation())) {
+        if (featuresA.hasLocation() && featuresB.hasLocation()) {
             totalFactors += 25;
-            if (profileA.getLocation().equals(profileB.getLocation())) {
+            if (featuresA.sameLocation(featuresB)) {
                 matchScore += 25;
-            } else if (profileA.getLocation().contains(profileB.getLocation()) || 
-                     profileB.getLocation().contains(profileA.getLocation())) {
+            } else if (featuresA.locationContains(featuresB)) {
                 matchScore += 15;
             }
             // 只匹配到省份也给分
-            else if (extractProvince(profileA.getLocation()).equals(extractProvince(profileB.getLocation()))) {
+            else if (featuresA.sameProvince(featuresB)) {
                 matchScore += 8;
             }
         }
 
         // 2. 兴趣爱好匹配 (50分)
-        if (StringUtils.hasText(profileA.getHobbies()) && StringUtils.hasText(profileB.getHobbies())) {
+        if (featuresA.getHobbyCount() > 0 && featuresB.getHobbyCount() > 0) {
             totalFactors += 50;
             
-            // 解析兴趣爱好
-            List<String> hobbiesA = Arrays.stream(profileA.getHobbies().split(",|、|;"))
-                    .map(String::trim)
-                    .filter(StringUtils::hasText)
-                    .collect(Collectors.toList());
-            
-            List<String> hobbiesB = Arrays.stream(profileB.getHobbies().split(",|、|;"))
-                    .map(String::trim)
-                    .filter(StringUtils::hasText)
-                    .collect(Collectors.toList());
-            
-            // 计算共同兴趣数量
-            int commonHobbies = 0;
-            for (String hobbyA : hobbiesA) {
-                for (String hobbyB : hobbiesB) {
-                    if (hobbyA.equals(hobbyB) || hobbyA.contains(hobbyB) || hobbyB.contains(hobbyA)) {
-                        commonHobbies++;
-                        break;
-                    }
-                }
-            }
-            
-            // 计算兴趣匹配得分
-            if (!hobbiesA.isEmpty() && !hobbiesB.isEmpty()) {
-                int maxHobbies = Math.max(hobbiesA.size(), hobbiesB.size());
-                matchScore += (int) (((double) commonHobbies / maxHobbies) * 50);
-            }
+            // 位图求交得到共同兴趣数量
+            int commonHobbies = featuresA.commonHobbies(featuresB);
+            int maxHobbies = Math.max(featuresA.getHobbyCount(), featuresB.getHobbyCount());
+            matchScore += (commonHobbies * 50) / maxHobbies;
         }
 
         // 3. 职业匹配 (15分)
-        if (StringUtils.hasText(profileA.getOccupation()) && StringUtils.hasText(profileB.getOccupation())) {
+        if (featuresA.hasOccupation() && featuresB.hasOccupation()) {
             totalFactors += 15;
-            if (profileA.getOccupation().equals(profileB.getOccupation())) {
+            if (featuresA.sameOccupation(featuresB)) {
                 matchScore += 15;
-            } else if (profileA.getOccupation().contains(profileB.getOccupation()) || 
-                     profileB.getOccupation().contains(profileA.getOccupation())) {
+            } else if (featuresA.occupationContains(featuresB)) {
                 matchScore += 8;
             }
         }
 
         // 4. 教育程度匹配 (10分)
-        if (profileA.getEducation() != null && profileB.getEducation() != null) {
+        if (featuresA.hasEducation() && featuresB.hasEducation()) {
             totalFactors += 10;
-            if (profileA.getEducation().equals(profileB.getEducation())) {
+            int educationDiff = Math.abs(featuresA.getEducation() - featuresB.getEducation());
+            if (educationDiff == 0) {
                 matchScore += 10;
-            } else if (Math.abs(profileA.getEducation() - profileB.getEducation()) == 1) {
+            } else if (educationDiff == 1) {
                 matchScore += 5;
             }
         }
         
         // 5. 年龄匹配 (15分)
-        if (userA.getBirthday() != null && userB.getBirthday() != null) {
+        if (featuresA.hasBirthYear() && featuresB.hasBirthYear()) {
             totalFactors += 15;
-            Calendar calA = Calendar.getInstance();
-            Calendar calB = Calendar.getInstance();
-            calA.setTime(userA.getBirthday());
-            calB.setTime(userB.getBirthday());
-            int yearA = calA.get(Calendar.YEAR);
-            int yearB = calB.get(Calendar.YEAR);
-            int ageDiff = Math.abs(yearA - yearB);
+            int ageDiff = Math.abs(featuresA.getBirthYear() - featuresB.getBirthYear());
             
             if (ageDiff <= 1) {
                 matchScore += 15; // 同龄或相差一岁
@@ -663,22 +805,14 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         // 6. 综合因素 - 活跃度匹配 (10分)
         // 这里可以根据用户的活跃程度（登录频率、发帖数等）来计算匹配度
         // 活跃的用户和活跃的用户更匹配，不活跃的和不活跃的更匹配
-        try {
-            int userAActivityScore = getUserActivityScore(userAId);
-            int userBActivityScore = getUserActivityScore(userBId);
-            int activityDiff = Math.abs(userAActivityScore - userBActivityScore);
-            
-            totalFactors += 10;
-            if (activityDiff <= 2) {
-                matchScore += 10;
-            } else if (activityDiff <= 4) {
-                matchScore += 5;
-            } else if (activityDiff <= 6) {
-                matchScore += 2;
-            }
-        } catch (Exception e) {
-            log.warn("计算活跃度匹配失败", e);
-            // 出错不影响其他匹配计算
+        int activityDiff = Math.abs(userAActivityScore - userBActivityScore);
+        totalFactors += 10;
+        if (activityDiff <= 2) {
+            matchScore += 10;
+        } else if (activityDiff <= 4) {
+            matchScore += 5;
+        } else if (activityDiff <= 6) {
+            matchScore += 2;
         }
 
         // 计算最终相似度百分比
@@ -690,67 +824,125 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         }
     }
 
+    @Override
+    public Page<UserMatchDTO> getFrequencyMatches(Long userId, Integer page, Integer pageSize) {
+        int current = page != null && page > 0 ? page : 1;
+        int size = pageSize != null && pageSize > 0 ? pageSize : 10;
+        Page<UserMatchDTO> resultPage = new Page<>(current, size);
+        if (userId == null) {
+            return resultPage;
+        }
+
+        // 1. 在SQL中分页
+        Integer total = baseMapper.countUserMatches(userId, null);
+        resultPage.setTotal(total != null ? total : 0);
+        long offset = (long) (current - 1) * size;
+        if (resultPage.getTotal() <= offset) {
+            return resultPage;
+        }
+        List<UserMatch> matches = baseMapper.selectUserMatchesPage(userId, null, offset, size);
+        if (matches.isEmpty()) {
+            return resultPage;
+        }
+
+        // 2. 批量加载本页对方用户及资料
+        List<Long> matchedUserIds = matches.stream()
+                .map(match -> match.getUserAId().equals(userId) ? match.getUserBId() : match.getUserAId())
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, User> userMap = userService.listByIds(matchedUserIds).stream()
+                .collect(Collectors.toMap(User::getUserId, user -> user, (a, b) -> a));
+        Map<Long, UserProfile> profileMap = userProfileService.getUserProfiles(matchedUserIds);
+
+        // 3. 一次性准备特征向量和活跃度，在内存中计算本页相似度
+        ProfileFeatureVector selfFeatures = getFeatureVector(userId);
+        List<Long> activityUserIds = new ArrayList<>(matchedUserIds);
+        activityUserIds.add(userId);
+        Map<Long, Integer> activityScores = userActivityService.getActivityScores(activityUserIds);
+        int selfActivityScore = activityScores.getOrDefault(userId, 0);
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+
+        List<UserMatchDTO> records = new ArrayList<>(matches.size());
+        for (UserMatch match : matches) {
+            Long matchedUserId = match.getUserAId().equals(userId) ? match.getUserBId() : match.getUserAId();
+            User matchedUser = userMap.get(matchedUserId);
+            if (matchedUser == null) {
+                log.warn("匹配用户不存在: {}", matchedUserId);
+                continue;
+            }
+            UserProfile profile = profileMap.get(matchedUserId);
+
+            UserMatchDTO dto = new UserMatchDTO();
+            dto.setMatchId(match.getMatchId());
+            dto.setUserId(matchedUserId);
+            dto.setUsername(matchedUser.getUsername());
+            // 从用户资料中获取昵称，如果没有则使用用户名
+            dto.setNickname(profile != null && profile.getNickname() != null ?
+                    profile.getNickname() : matchedUser.getUsername());
+            dto.setAvatar(matchedUser.getAvatar());
+            dto.setGender(matchedUser.getGender());
+
+            // 计算年龄
+            if (matchedUser.getBirthday() != null) {
+                Calendar birthDay = Calendar.getInstance();
+                birthDay.setTime(matchedUser.getBirthday());
+                dto.setAge(currentYear - birthDay.get(Calendar.YEAR));
+            }
+
+            // 设置资料信息
+            if (profile != null) {
+                dto.setOccupation(profile.getOccupation());
+                dto.setLocation(profile.getLocation());
+                dto.setSelfIntro(profile.getSelfIntro());
+            }
+
+            // 设置匹配状态
+            dto.setStatus(match.getStatus());
+            dto.setCreateTime(match.getCreateTime());
+
+            // 计算相似度，对方不在候选索引中时用已加载的数据编码
+            int similarity = 0;
+            if (selfFeatures != null && profile != null) {
+                UserCandidateIndexService.Candidate candidate = candidateIndexService.getCandidate(matchedUserId);
+                ProfileFeatureVector features = candidate != null
+                        ? candidate.getFeatures() : ProfileFeatureVector.of(matchedUser, profile);
+                similarity = calculateSimilarity(selfFeatures, features,
+                        selfActivityScore, activityScores.getOrDefault(matchedUserId, 0));
+            }
+            dto.setSimilarity(similarity);
+
+            // 判断是否有未读消息 (假设目前没有)
+            dto.setHasUnreadMessage(false);
+
+            records.add(dto);
+        }
+
+        resultPage.setRecords(records);
+        return resultPage;
+    }
+
     /**
-     * 从地址中提取省份
+     * 获取用户特征向量，优先使用候选索引中缓存的向量，不在索引中（如已禁用）时从数据库编码
      */
-    private String extractProvince(String location) {
-        if (!StringUtils.hasText(location)) {
-            return "";
+    private ProfileFeatureVector getFeatureVector(Long userId) {
+        UserCandidateIndexService.Candidate candidate = candidateIndexService.getCandidate(userId);
+        if (candidate != null) {
+            return candidate.getFeatures();
         }
-        
-        // 简单处理，取第一个省/市/自治区
-        String[] provinces = {"北京", "天津", "上海", "重庆", "河北", "山西", "辽宁", "吉林", "黑龙江", 
-                             "江苏", "浙江", "安徽", "福建", "江西", "山东", "河南", "湖北", "湖南", 
-                             "广东", "海南", "四川", "贵州", "云南", "陕西", "甘肃", "青海", "台湾", 
-                             "内蒙古", "广西", "西藏", "宁夏", "新疆", "香港", "澳门"};
-        
-        for (String province : provinces) {
-            if (location.contains(province)) {
-                return province;
-            }
+
+        UserProfile profile = userProfileService.getProfileByUserId(userId);
+        User user = userService.getById(userId);
+        if (profile == null || user == null) {
+            return null;
         }
-        
-        return location.length() > 2 ? location.substring(0, 2) : location;
+        return ProfileFeatureVector.of(user, profile);
     }
 
     /**
      * 计算用户活跃度分数 (0-10)
      */
     private int getUserActivityScore(Long userId) {
-        // 可以根据用户的登录频率、发帖数、评论数等计算活跃度
-        // 这里简单实现，实际项目中可以更复杂
-        int score = 0;
-        
-        // 检查最近登录时间
-        User user = userService.getById(userId);
-        if (user != null && user.getUpdateTime() != null) {
-            // 一周内活跃
-            long daysDiff = (System.currentTimeMillis() - user.getUpdateTime().getTime()) / (1000 * 60 * 60 * 24);
-            if (daysDiff <= 1) {
-                score += 4; // 今天活跃
-            } else if (daysDiff <= 3) {
-                score += 3; // 近3天活跃
-            } else if (daysDiff <= 7) {
-                score += 2; // 近一周活跃
-            } else if (daysDiff <= 30) {
-                score += 1; // 近一月活跃
-            }
-        }
-        
-        // 尝试查询发帖数和评论数（假设有相关服务）
-        try {
-            // 这里应该是调用实际存在的服务，例如：
-            // int postCount = postService.countByUserId(userId);
-            // int commentCount = commentService.countByUserId(userId);
-            
-            // 临时模拟，随机生成1-5分
-            int contentScore = new Random().nextInt(5) + 1;
-            score += contentScore;
-        } catch (Exception e) {
-            log.warn("计算内容活跃度失败", e);
-        }
-        
-        return Math.min(10, score); // 最高10分
+        return userActivityService.getActivityScore(userId);
     }
 
     @Override
@@ -771,33 +963,18 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         }
         
         // 提取被喜欢的用户ID列表
-        List<Long> likedUserIds = matches.stream()
-                .map(UserMatch::getUserBId)
-                .collect(Collectors.toList());
+        Map<Long, UserMatch> matchByUserId = new LinkedHashMap<>();
+        for (UserMatch match : matches) {
+            matchByUserId.putIfAbsent(match.getUserBId(), match);
+        }
         
-        // 获取用户信息
-        List<UserRecommendDTO> result = new ArrayList<>();
-        for (Long likedUserId : likedUserIds) {
-            User user = userService.getById(likedUserId);
-            if (user == null) {
-                continue;
-            }
-            
-            UserProfile profile = userProfileService.getProfileByUserId(likedUserId);
-            UserRecommendDTO dto = convertToUserRecommendDTO(user, profile);
-            
-            // 设置匹配状态
-            UserMatch match = matches.stream()
-                    .filter(m -> m.getUserBId().equals(likedUserId))
-                    .findFirst().orElse(null);
-            
-            if (match != null) {
-                dto.setMatchStatus(match.getStatus());
-                dto.setMatchId(match.getMatchId());
-                dto.setIsLiked(true);
-            }
-            
-            result.add(dto);
+        // 批量获取用户信息并设置匹配状态
+        List<UserRecommendDTO> result = recommendationService.assembleRecommendDTOsByIds(matchByUserId.keySet());
+        for (UserRecommendDTO dto : result) {
+            UserMatch match = matchByUserId.get(dto.getUserId());
+            dto.setMatchStatus(match.getStatus());
+            dto.setMatchId(match.getMatchId());
+            dto.setIsLiked(true);
         }
         
         return result;
@@ -821,36 +998,26 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
         }
         
         // 提取喜欢当前用户的用户ID列表
-        List<Long> likedByUserIds = matches.stream()
-                .map(UserMatch::getUserAId)
-                .collect(Collectors.toList());
+        Map<Long, UserMatch> matchByUserId = new LinkedHashMap<>();
+        for (UserMatch match : matches) {
+            matchByUserId.putIfAbsent(match.getUserAId(), match);
+        }
         
-        // 获取用户信息
-        List<UserRecommendDTO> result = new ArrayList<>();
-        for (Long likedByUserId : likedByUserIds) {
-            User user = userService.getById(likedByUserId);
-            if (user == null) {
-                continue;
-            }
-            
-            UserProfile profile = userProfileService.getProfileByUserId(likedByUserId);
-            UserRecommendDTO dto = convertToUserRecommendDTO(user, profile);
-            
-            // 设置匹配状态
-            UserMatch match = matches.stream()
-                    .filter(m -> m.getUserAId().equals(likedByUserId))
-                    .findFirst().orElse(null);
-            
-            if (match != null) {
-                dto.setMatchStatus(match.getStatus());
-                dto.setMatchId(match.getMatchId());
-                
-                // 检查当前用户是否也喜欢了这个用户
-                boolean userLikedBack = checkIfUserLiked(userId, likedByUserId);
-                dto.setIsLiked(userLikedBack);
-            }
-            
-            result.add(dto);
+        // 一次查询当前用户回喜欢过的用户
+        Set<Long> likedBackUserIds = baseMapper.selectList(Wrappers.lambdaQuery(UserMatch.class)
+                        .eq(UserMatch::getUserAId, userId)
+                        .in(UserMatch::getUserBId, matchByUserId.keySet()))
+                .stream()
+                .map(UserMatch::getUserBId)
+                .collect(Collectors.toSet());
+        
+        // 批量获取用户信息并设置匹配状态
+        List<UserRecommendDTO> result = recommendationService.assembleRecommendDTOsByIds(matchByUserId.keySet());
+        for (UserRecommendDTO dto : result) {
+            UserMatch match = matchByUserId.get(dto.getUserId());
+            dto.setMatchStatus(match.getStatus());
+            dto.setMatchId(match.getMatchId());
+            dto.setIsLiked(likedBackUserIds.contains(dto.getUserId()));
         }
         
         return result;
@@ -924,15 +1091,11 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
             // 4. 获取推荐过给用户的用户ID集合
             // 这里需要根据实际情况获取，可能需要从推荐历史表或缓存中查询
             // 简化处理，这里假设只从Redis中获取当天推荐的用户
-            String recommendCacheKey = "user:recommend:" + userId + ":" + LocalDate.now();
             try {
-                @SuppressWarnings("unchecked")
-                List<UserRecommendDTO> cachedRecommends = (List<UserRecommendDTO>) redisTemplate.opsForValue().get(recommendCacheKey);
-                if (cachedRecommends != null && !cachedRecommends.isEmpty()) {
-                    Set<Long> recommendedUserIds = cachedRecommends.stream()
-                        .map(UserRecommendDTO::getUserId)
-                        .collect(Collectors.toSet());
-                    allInteractedUserIds.addAll(recommendedUserIds);
+                Set<String> recommendedUserIds = stringRedisTemplate.opsForZSet()
+                    .range(getRecommendDeckKey(userId), 0, -1);
+                if (recommendedUserIds != null) {
+                    recommendedUserIds.forEach(id -> allInteractedUserIds.add(Long.valueOf(id)));
                 }
             } catch (Exception e) {
                 log.warn("获取推荐用户缓存失败", e);
@@ -946,4 +1109,24 @@ public class UserMatchServiceImpl extends ServiceImpl<UserMatchMapper, UserMatch
             return 0;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 一次推荐策略调用，结果（成功、超时、失败）只记录一次
+     */
+    private static final class StrategyCall {
+        private final String strategy;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private Future<List<UserRecommendDTO>> future;
+
+        private StrategyCall(String strategy) {
+            this.strategy = strategy;
+        }
+
+        /**
+         * 标记结果已记录，返回是否由本次调用完成标记
+         */
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
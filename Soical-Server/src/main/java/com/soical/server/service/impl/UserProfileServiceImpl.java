@@ -12,9 +12,11 @@ import com.soical.server.entity.User;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.UserMapper;
 import com.soical.server.mapper.UserProfileMapper;
+import com.soical.server.service.ImageDerivativeService;
+import com.soical.server.service.ImageUploadService;
+import com.soical.server.service.UserCandidateIndexService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
-import com.soical.server.util.FileUtil;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -50,6 +52,15 @@ public class UserProfileServiceImpl extends ServiceImpl<UserProfileMapper, UserP
     private final JdbcTemplate jdbcTemplate;
     private final ApplicationContext applicationContext;
     
+    @Autowired
+    private UserCandidateIndexService candidateIndexService;
+    
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+    
+    @Autowired
+    private ImageUploadService imageUploadService;
+    
     // 使用懒加载方式获取UserService，避免循环依赖
     private UserService getUserService() {
         return applicationContext.getBean(UserService.class);
@@ -113,6 +124,11 @@ public class UserProfileServiceImpl extends ServiceImpl<UserProfileMapper, UserP
             // 保存更新
             boolean result = saveOrUpdateUserProfile(userProfile);
             log.info("用户资料保存结果: {}", result);
+            
+            // 同步推荐候选索引
+            if (result) {
+                candidateIndexService.refresh(userId);
+            }
             return result;
         } catch (Exception e) {
             log.error("更新用户资料失败: {}", e.getMessage(), e);
@@ -129,7 +145,7 @@ public class UserProfileServiceImpl extends ServiceImpl<UserProfileMapper, UserP
         UserProfile userProfile = getProfileByUserId(userId);
         
         // 上传照片
-        String photoUrl = FileUtil.uploadImage(file);
+        String photoUrl = imageUploadService.uploadImage(file);
         
         // 更新相册
         try {
@@ -137,6 +153,7 @@ public class UserProfileServiceImpl extends ServiceImpl<UserProfileMapper, UserP
             photos.add(photoUrl);
             userProfile.setPhotos(objectMapper.writeValueAsString(photos));
             updateById(userProfile);
+            imageDerivativeService.generateForProfilePhoto(userId, photoUrl);
             return photoUrl;
         } catch (JsonProcessingException e) {
             throw new BusinessException(ResultCode.FAILED.getCode(), "照片添加失败");
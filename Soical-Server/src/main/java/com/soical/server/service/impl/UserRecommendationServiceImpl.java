@@ -1,20 +1,27 @@
 package com.soical.server.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.soical.server.dto.UserRecommendDTO;
 import com.soical.server.entity.User;
-import com.soical.server.entity.UserMatch;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.UserMatchMapper;
+import com.soical.server.service.ImageDerivativeService;
+import com.soical.server.service.UserCandidateIndexService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
+import com.soical.server.service.UserSimilarityService;
 import com.soical.server.service.UserRecommendationService;
+import com.soical.server.util.ProfileFeatureVector;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -26,6 +33,12 @@ import java.util.stream.Collectors;
 @Service
 public class UserRecommendationServiceImpl implements UserRecommendationService {
 
+    /**
+     * 相册JSON读取器，线程安全，全局共享
+     */
+    private static final ObjectReader PHOTO_LIST_READER = new ObjectMapper()
+            .readerFor(new TypeReference<List<String>>() {});
+
     @Autowired
     private UserService userService;
 
@@ -35,68 +48,58 @@ public class UserRecommendationServiceImpl implements UserRecommendationService
     @Autowired
     private UserMatchMapper userMatchMapper;
 
+    @Autowired
+    private UserCandidateIndexService candidateIndexService;
+
+    @Autowired
+    private UserSimilarityService userSimilarityService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
     @Override
     public List<UserRecommendDTO> getCollaborativeFilteringRecommendations(
             Long userId, Integer gender, Set<Long> excludeUserIds, Integer limit) {
         try {
-            // 1. 获取用户的喜欢记录
-            List<UserMatch> userLikes = userMatchMapper.selectUserMatches(userId, 1); // 状态1表示已匹配
-            
-            if (userLikes.isEmpty()) {
-                return Collections.emptyList();
-            }
-            
-            // 2. 获取与当前用户有相似喜好的用户
-            Set<Long> similarUserIds = new HashSet<>();
-            for (UserMatch like : userLikes) {
-                // 找到也喜欢这些用户的其他用户
-                LambdaQueryWrapper<UserMatch> queryWrapper = Wrappers.lambdaQuery();
-                queryWrapper.eq(UserMatch::getUserBId, like.getUserBId())
-                          .eq(UserMatch::getStatus, 1)
-                          .ne(UserMatch::getUserAId, userId);
-                
-                List<UserMatch> similarMatches = userMatchMapper.selectList(queryWrapper);
-                similarUserIds.addAll(similarMatches.stream()
-                        .map(UserMatch::getUserAId)
-                        .collect(Collectors.toSet()));
+            // 1. 优先读取离线物化的候选列表，尚未物化时实时查询共现次数
+            Map<Long, Integer> coCounts = userSimilarityService.getTopCandidates(userId);
+            if (coCounts == null) {
+                coCounts = new LinkedHashMap<>();
+                List<Map<String, Object>> coMatchedUsers = userMatchMapper.selectCoMatchedUsers(
+                        userId, gender, excludeUserIds, limit);
+                for (Map<String, Object> coMatchedUser : coMatchedUsers) {
+                    coCounts.put(Long.valueOf(coMatchedUser.get("user_id").toString()),
+                            Integer.parseInt(coMatchedUser.get("co_count").toString()));
+                }
             }
             
-            if (similarUserIds.isEmpty()) {
+            // 2. 过滤已排除的用户
+            List<Long> candidateIds = coCounts.keySet().stream()
+                    .filter(candidateId -> !excludeUserIds.contains(candidateId))
+                    .collect(Collectors.toList());
+            if (candidateIds.isEmpty()) {
                 return Collections.emptyList();
             }
             
-            // 3. 获取相似用户喜欢的用户
-            Set<Long> recommendedUserIds = new HashSet<>();
-            for (Long similarUserId : similarUserIds) {
-                LambdaQueryWrapper<UserMatch> queryWrapper = Wrappers.lambdaQuery();
-                queryWrapper.eq(UserMatch::getUserAId, similarUserId)
-                          .eq(UserMatch::getStatus, 1)
-                          .notIn(UserMatch::getUserBId, excludeUserIds);
-                
-                List<UserMatch> recommendations = userMatchMapper.selectList(queryWrapper);
-                recommendedUserIds.addAll(recommendations.stream()
-                        .map(UserMatch::getUserBId)
-                        .collect(Collectors.toSet()));
+            // 3. 批量加载用户，按状态和性别过滤，保持共现次数顺序
+            Map<Long, User> userMap = loadUsers(candidateIds);
+            List<User> users = candidateIds.stream()
+                    .map(userMap::get)
+                    .filter(user -> user != null && Integer.valueOf(1).equals(user.getStatus())
+                            && matchesGender(user, gender))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+            if (users.isEmpty()) {
+                return Collections.emptyList();
             }
             
-            // 4. 转换为推荐DTO
-            List<UserRecommendDTO> result = new ArrayList<>();
-            for (Long recommendedUserId : recommendedUserIds) {
-                if (result.size() >= limit) {
-                    break;
-                }
-                
-                User user = userService.getById(recommendedUserId);
-                if (user == null || (gender != null && gender > 0 && !user.getGender().equals(gender))) {
-                    continue;
-                }
-                
-                UserProfile profile = userProfileService.getProfileByUserId(recommendedUserId);
-                UserRecommendDTO dto = convertToUserRecommendDTO(user, profile);
+            // 4. 批量组装推荐DTO，按共现强度换算为0-100的相似度（最高者为100）
+            int maxCount = coCounts.get(users.get(0).getUserId());
+            List<UserRecommendDTO> result = assembleRecommendDTOs(users);
+            for (UserRecommendDTO dto : result) {
                 dto.setRecommendType("collaborative");
-                result.add(dto);
+                dto.setSimilarity(coCounts.get(dto.getUserId()) * 100 / maxCount);
             }
-            
             return result;
         } catch (Exception e) {
             log.error("协同过滤推荐失败: userId={}", userId, e);
@@ -109,49 +112,36 @@ public class UserRecommendationServiceImpl implements UserRecommendationService
             Long userId, Integer gender, Integer ageMin, Integer ageMax,
             String location, String interests, Set<Long> excludeUserIds, Integer limit) {
         try {
-            // 1. 获取当前用户的资料
-            UserProfile userProfile = userProfileService.getProfileByUserId(userId);
-            if (userProfile == null) {
+            // 1. 获取当前用户的索引项
+            UserCandidateIndexService.Candidate self = candidateIndexService.getCandidate(userId);
+            if (self == null) {
                 return Collections.emptyList();
             }
             
-            // 2. 构建查询条件
-            LambdaQueryWrapper<User> queryWrapper = Wrappers.lambdaQuery();
-            queryWrapper.eq(User::getStatus, 1)
-                       .notIn(User::getUserId, excludeUserIds);
-            
-            if (gender != null && gender > 0) {
-                queryWrapper.eq(User::getGender, gender);
-            }
-            
-            // 3. 获取候选用户列表
-            List<User> candidates = userService.list(queryWrapper);
+            // 2. 从常驻索引中按性别、年龄段预筛选候选用户
+            List<UserCandidateIndexService.Candidate> candidates = candidateIndexService
+                    .findCandidates(gender, ageMin, ageMax, excludeUserIds);
             if (candidates.isEmpty()) {
                 return Collections.emptyList();
             }
             
-            // 4. 计算内容相似度并排序
-            List<UserRecommendDTO> result = new ArrayList<>();
-            for (User candidate : candidates) {
-                UserProfile candidateProfile = userProfileService.getProfileByUserId(candidate.getUserId());
-                if (candidateProfile == null) {
-                    continue;
-                }
-                
-                // 计算内容相似度
-                int similarity = calculateContentSimilarity(userProfile, candidateProfile);
-                
-                // 转换为DTO
-                UserRecommendDTO dto = convertToUserRecommendDTO(candidate, candidateProfile);
-                dto.setSimilarity(similarity);
-                dto.setRecommendType("content");
-                result.add(dto);
+            // 3. 在内存中计算内容相似度
+            List<ScoredCandidate> scored = new ArrayList<>(candidates.size());
+            for (UserCandidateIndexService.Candidate candidate : candidates) {
+                scored.add(new ScoredCandidate(candidate, calculateContentSimilarity(self, candidate)));
             }
             
-            // 5. 按相似度排序并返回指定数量
-            return result.stream()
-                    .sorted(Comparator.comparing(UserRecommendDTO::getSimilarity).reversed())
+            // 4. 按相似度排序并转换为DTO
+            return scored.stream()
+                    .sorted(Comparator.comparingInt(ScoredCandidate::getSimilarity).reversed())
                     .limit(limit)
+                    .map(item -> {
+                        UserRecommendDTO dto = convertToUserRecommendDTO(
+                                item.getCandidate().getUser(), item.getCandidate().getProfile());
+                        dto.setSimilarity(item.getSimilarity());
+                        dto.setRecommendType("content");
+                        return dto;
+                    })
                     .collect(Collectors.toList());
             
         } catch (Exception e) {
@@ -172,32 +162,31 @@ public class UserRecommendationServiceImpl implements UserRecommendationService
             // 2. 统计被喜欢次数
             List<Map<String, Object>> popularUsers = userMatchMapper.selectPopularUsers(oneWeekAgo);
             
-            // 3. 过滤并转换为推荐DTO
-            List<UserRecommendDTO> result = new ArrayList<>();
+            // 3. 过滤已排除的用户，记录被喜欢次数
+            Map<Long, Integer> likeCounts = new LinkedHashMap<>();
             for (Map<String, Object> popularUser : popularUsers) {
-                if (result.size() >= limit) {
-                    break;
-                }
-                
                 Long popularUserId = Long.valueOf(popularUser.get("user_id").toString());
-                if (excludeUserIds.contains(popularUserId)) {
-                    continue;
-                }
-                
-                User user = userService.getById(popularUserId);
-                if (user == null || (gender != null && gender > 0 && !user.getGender().equals(gender))) {
-                    continue;
+                if (!excludeUserIds.contains(popularUserId)) {
+                    likeCounts.put(popularUserId, Integer.parseInt(popularUser.get("like_count").toString()));
                 }
-                
-                UserProfile profile = userProfileService.getProfileByUserId(popularUserId);
-                UserRecommendDTO dto = convertToUserRecommendDTO(user, profile);
+            }
+            
+            // 4. 批量加载用户并按性别过滤，保持热度顺序
+            Map<Long, User> userMap = loadUsers(likeCounts.keySet());
+            List<User> users = likeCounts.keySet().stream()
+                    .map(userMap::get)
+                    .filter(user -> user != null && matchesGender(user, gender))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+            
+            // 5. 批量组装推荐DTO
+            List<UserRecommendDTO> result = assembleRecommendDTOs(users);
+            for (UserRecommendDTO dto : result) {
                 dto.setRecommendType("popular");
                 
-                // 设置热度分数
-                int likeCount = Integer.parseInt(popularUser.get("like_count").toString());
-                dto.setSimilarity((int)(Math.min(likeCount * 10, 100))); // 将喜欢数转换为0-100的分数
-                
-                result.add(dto);
+                // 设置热度分数，将喜欢数转换为0-100的分数
+                int likeCount = likeCounts.get(dto.getUserId());
+                dto.setSimilarity(Math.min(likeCount * 10, 100));
             }
             
             return result;
@@ -209,57 +198,49 @@ public class UserRecommendationServiceImpl implements UserRecommendationService
     }
 
     /**
-     * 计算内容相似度
+     * 计算内容相似度（基于索引中预先编码的特征向量，不产生对象分配）
      */
-    private int calculateContentSimilarity(UserProfile profileA, UserProfile profileB) {
+    private int calculateContentSimilarity(UserCandidateIndexService.Candidate candidateA,
+                                           UserCandidateIndexService.Candidate candidateB) {
+        ProfileFeatureVector featuresA = candidateA.getFeatures();
+        ProfileFeatureVector featuresB = candidateB.getFeatures();
         int similarity = 0;
         int totalWeight = 0;
         
         // 1. 兴趣爱好匹配 (权重 40)
-        if (StringUtils.hasText(profileA.getHobbies()) && StringUtils.hasText(profileB.getHobbies())) {
+        if (featuresA.getHobbyCount() > 0 && featuresB.getHobbyCount() > 0) {
             totalWeight += 40;
-            List<String> hobbiesA = Arrays.asList(profileA.getHobbies().split(",|、|;"));
-            List<String> hobbiesB = Arrays.asList(profileB.getHobbies().split(",|、|;"));
-            
-            int commonHobbies = 0;
-            for (String hobbyA : hobbiesA) {
-                for (String hobbyB : hobbiesB) {
-                    if (hobbyA.trim().equals(hobbyB.trim())) {
-                        commonHobbies++;
-                    }
-                }
-            }
-            
-            similarity += (commonHobbies * 40) / Math.max(hobbiesA.size(), hobbiesB.size());
+            int commonHobbies = featuresA.commonHobbies(featuresB);
+            similarity += (commonHobbies * 40) / Math.max(featuresA.getHobbyCount(), featuresB.getHobbyCount());
         }
         
         // 2. 地理位置匹配 (权重 30)
-        if (StringUtils.hasText(profileA.getLocation()) && StringUtils.hasText(profileB.getLocation())) {
+        if (featuresA.hasLocation() && featuresB.hasLocation()) {
             totalWeight += 30;
-            if (profileA.getLocation().equals(profileB.getLocation())) {
+            if (featuresA.sameLocation(featuresB)) {
                 similarity += 30;
-            } else if (extractProvince(profileA.getLocation()).equals(extractProvince(profileB.getLocation()))) {
+            } else if (featuresA.sameProvince(featuresB)) {
                 similarity += 15;
             }
         }
         
         // 3. 职业领域匹配 (权重 20)
-        if (StringUtils.hasText(profileA.getOccupation()) && StringUtils.hasText(profileB.getOccupation())) {
+        if (featuresA.hasOccupation() && featuresB.hasOccupation()) {
             totalWeight += 20;
-            if (profileA.getOccupation().equals(profileB.getOccupation())) {
+            if (featuresA.sameOccupation(featuresB)) {
                 similarity += 20;
-            } else if (profileA.getOccupation().contains(profileB.getOccupation()) || 
-                      profileB.getOccupation().contains(profileA.getOccupation())) {
+            } else if (featuresA.occupationContains(featuresB)) {
                 similarity += 10;
             }
         }
         
         // 4. 教育程度匹配 (权重 10)
-        if (profileA.getEducation() != null && profileB.getEducation() != null) {
+        if (featuresA.hasEducation() && featuresB.hasEducation()) {
             totalWeight += 10;
-            if (profileA.getEducation().equals(profileB.getEducation())) {
+            int educationDiff = Math.abs(featuresA.getEducation() - featuresB.getEducation());
+            if (educationDiff == 0) {
                 similarity += 10;
-            } else if (Math.abs(profileA.getEducation() - profileB.getEducation()) == 1) {
+            } else if (educationDiff == 1) {
                 similarity += 5;
             }
         }
@@ -267,27 +248,61 @@ public class UserRecommendationServiceImpl implements UserRecommendationService
         return totalWeight > 0 ? (similarity * 100) / totalWeight : 50;
     }
 
-    /**
-     * 从地址中提取省份
-     */
-    private String extractProvince(String location) {
-        if (!StringUtils.hasText(location)) {
-            return "";
+    @Override
+    public List<UserRecommendDTO> assembleRecommendDTOsByIds(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyList();
         }
         
-        // 简单处理，取第一个省/市/自治区
-        String[] provinces = {"北京", "天津", "上海", "重庆", "河北", "山西", "辽宁", "吉林", "黑龙江", 
-                             "江苏", "浙江", "安徽", "福建", "江西", "山东", "河南", "湖北", "湖南", 
-                             "广东", "海南", "四川", "贵州", "云南", "陕西", "甘肃", "青海", "台湾", 
-                             "内蒙古", "广西", "西藏", "宁夏", "新疆", "香港", "澳门"};
-        
-        for (String province : provinces) {
-            if (location.contains(province)) {
-                return province;
+        Map<Long, User> userMap = loadUsers(userIds);
+        List<User> users = new ArrayList<>(userMap.size());
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            User user = userMap.get(userId);
+            if (user != null) {
+                users.add(user);
             }
         }
+        return assembleRecommendDTOs(users);
+    }
+
+    @Override
+    public List<UserRecommendDTO> assembleRecommendDTOs(List<User> users) {
+        if (users == null || users.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        List<Long> userIds = users.stream().map(User::getUserId).collect(Collectors.toList());
+        Map<Long, UserProfile> profileMap = userProfileService.getUserProfiles(userIds);
+        
+        List<UserRecommendDTO> result = new ArrayList<>(users.size());
+        for (User user : users) {
+            result.add(convertToUserRecommendDTO(user, profileMap.get(user.getUserId())));
+        }
+        return result;
+    }
+
+    /**
+     * 批量加载用户，一次IN查询
+     *
+     * @return 用户ID到用户的映射
+     */
+    private Map<Long, User> loadUsers(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
         
-        return location.length() > 2 ? location.substring(0, 2) : location;
+        Map<Long, User> userMap = new LinkedHashMap<>();
+        for (User user : userService.listByIds(userIds)) {
+            userMap.put(user.getUserId(), user);
+        }
+        return userMap;
+    }
+
+    /**
+     * 判断用户是否符合性别偏好
+     */
+    private boolean matchesGender(User user, Integer gender) {
+        return gender == null || gender <= 0 || gender.equals(user.getGender());
     }
 
     /**
@@ -322,8 +337,33 @@ public class UserRecommendationServiceImpl implements UserRecommendationService
             dto.setOccupation(profile.getOccupation());
             dto.setSelfIntro(profile.getSelfIntro());
             dto.setHobbies(profile.getHobbies());
+            
+            // 如果有相册，解析JSON为List<String>
+            if (StringUtils.hasText(profile.getPhotos())) {
+                try {
+                    dto.setPhotos(PHOTO_LIST_READER.readValue(profile.getPhotos()));
+                    dto.setPhotoThumbnails(imageDerivativeService.resolve(
+                            dto.getPhotos(), profile.getPhotoVariants(), ImageDerivativeService.THUMBNAIL));
+                } catch (IOException e) {
+                    log.error("解析相册JSON失败: userId={}", user.getUserId(), e);
+                }
+            }
         }
         
+        // 相似度初始设置为50%
+        dto.setSimilarity(50);
+        dto.setIsLiked(false);
+        
         return dto;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 带相似度得分的候选用户
+     */
+    @Data
+    @AllArgsConstructor
+    private static class ScoredCandidate {
+        private UserCandidateIndexService.Candidate candidate;
+        private int similarity;
+    }
+}
@@ -11,9 +11,11 @@ import com.soical.server.dto.UserLoginResponseDTO;
 import com.soical.server.entity.User;
 import com.soical.server.entity.UserProfile;
 import com.soical.server.mapper.UserMapper;
+import com.soical.server.service.ImageUploadService;
+import com.soical.server.service.UserActivityService;
+import com.soical.server.service.UserCandidateIndexService;
 import com.soical.server.service.UserProfileService;
 import com.soical.server.service.UserService;
-import com.soical.server.util.FileUtil;
 import com.soical.server.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -44,6 +46,15 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     
     @Autowired
     private SecuritySettingsManager securitySettingsManager;
+    
+    @Autowired
+    private UserCandidateIndexService candidateIndexService;
+    
+    @Autowired
+    private UserActivityService userActivityService;
+    
+    @Autowired
+    private ImageUploadService imageUploadService;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -76,6 +87,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         userProfile.setUserId(user.getUserId());
         userProfile.setNickname(registerDTO.getNickname());
         userProfileService.save(userProfile);
+        
+        // 加入推荐候选索引
+        candidateIndexService.refresh(user.getUserId());
 
         return user.getUserId();
     }
@@ -169,6 +183,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
         // 生成token
         String token = jwtUtil.generateToken(user.getUserId());
+        userActivityService.record(user.getUserId(), UserActivityService.ActivityType.LOGIN);
         
         // 获取或创建用户资料
         String nickname = getOrCreateUserProfile(user);
@@ -246,7 +261,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             throw new BusinessException(ResultCode.USER_NOT_EXIST);
         }
         user.setStatus(status);
-        return updateById(user);
+        boolean updated = updateById(user);
+        
+        // 禁用的用户会从推荐候选索引中移除
+        candidateIndexService.refresh(userId);
+        return updated;
     }
     
     @Override
@@ -258,7 +277,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         }
         
         // 上传头像
-        String avatarUrl = FileUtil.uploadImage(file);
+        String avatarUrl = imageUploadService.uploadImage(file);
         
         // 更新用户头像
         user.setAvatar(avatarUrl);
@@ -336,6 +355,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
                 userProfileService.updateById(userProfile);
             }
             
+            // 同步推荐候选索引
+            candidateIndexService.refresh(userId);
             return true;
         } catch (BusinessException e) {
             // 如果找不到用户资料，可能是新用户，尝试创建
@@ -356,6 +377,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
                 }
                 
                 userProfileService.save(newProfile);
+                candidateIndexService.refresh(userId);
                 return true;
             }
             throw e;
@@ -0,0 +1,230 @@
+package com.soical.server.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.soical.server.entity.UserMatch;
+import com.soical.server.mapper.UserMatchMapper;
+import com.soical.server.service.UserSimilarityService;
+import com.soical.server.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 用户协同过滤相似度服务实现类
+ * 候选列表以Redis有序集合存储：user:similar:{userId}，成员为候选用户ID，分数为共现次数
+ */
+@Slf4j
+@Service
+public class UserSimilarityServiceImpl implements UserSimilarityService {
+
+    private static final String SIMILAR_KEY_PREFIX = "user:similar:";
+
+    /**
+     * 全量重建的分布式锁，多实例部署时同一次定时任务只在一个实例上执行
+     */
+    private static final String REBUILD_LOCK_KEY = "user:similar:rebuild:lock";
+
+    /**
+     * 空列表标记成员，表示该用户已计算过但没有候选，避免读取时回退到实时查询
+     */
+    private static final String EMPTY_MARKER = "-";
+
+    /**
+     * 候选列表过期时间（天），全量重建每天执行，过期可清理已失效用户的数据
+     */
+    private static final long SIMILAR_KEY_EXPIRE_DAYS = 2;
+
+    /**
+     * 全量重建时每批读取的匹配记录数
+     */
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    @Value("${recommend.similarity.top-k:200}")
+    private int topK;
+
+    @Value("${recommend.similarity.rebuild-lock-minutes:60}")
+    private long rebuildLockMinutes;
+
+    @Autowired
+    private UserMatchMapper userMatchMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    @Override
+    @Scheduled(cron = "${recommend.similarity.rebuild-cron:0 30 3 * * ?}")
+    public void rebuildAll() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.info("协同过滤候选列表正在重建，跳过本次执行");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            // 锁在过期前不释放，其他实例本次不再重复执行
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(REBUILD_LOCK_KEY, "1", rebuildLockMinutes, TimeUnit.MINUTES);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.info("协同过滤候选列表已由其他实例重建，跳过本次执行");
+                return;
+            }
+
+            log.info("开始重建协同过滤候选列表...");
+
+            // 1. 分批扫描已匹配记录，构建邻接表
+            Map<Long, List<Long>> outgoing = new HashMap<>();
+            Map<Long, List<Long>> incoming = new HashMap<>();
+            Long lastMatchId = 0L;
+            int edgeCount = 0;
+            while (true) {
+                List<UserMatch> matches = userMatchMapper.selectList(Wrappers.lambdaQuery(UserMatch.class)
+                        .select(UserMatch::getMatchId, UserMatch::getUserAId, UserMatch::getUserBId)
+                        .eq(UserMatch::getStatus, 1)
+                        .gt(UserMatch::getMatchId, lastMatchId)
+                        .orderByAsc(UserMatch::getMatchId)
+                        .last("LIMIT " + LOAD_BATCH_SIZE));
+                if (matches.isEmpty()) {
+                    break;
+                }
+                for (UserMatch match : matches) {
+                    outgoing.computeIfAbsent(match.getUserAId(), k -> new ArrayList<>()).add(match.getUserBId());
+                    incoming.computeIfAbsent(match.getUserBId(), k -> new ArrayList<>()).add(match.getUserAId());
+                }
+                edgeCount += matches.size();
+                lastMatchId = matches.get(matches.size() - 1).getMatchId();
+                if (matches.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+            }
+
+            // 2. 逐个用户计算共现次数并写入Top-K
+            Set<Long> userIds = new HashSet<>(outgoing.keySet());
+            userIds.addAll(incoming.keySet());
+            for (Long userId : userIds) {
+                writeCandidates(userId, computeCoCounts(userId, outgoing, incoming));
+            }
+
+            log.info("协同过滤候选列表重建完成: matches={}, users={}, cost={}ms",
+                    edgeCount, userIds.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("重建协同过滤候选列表失败", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @Override
+    public void refreshUsers(Long... userIds) {
+        // 在事务提交后刷新，查询能看到本次写入的匹配记录，也不延长调用方的事务
+        TransactionUtils.afterCommit(() -> doRefreshUsers(userIds));
+    }
+
+    private void doRefreshUsers(Long... userIds) {
+        for (Long userId : userIds) {
+            if (userId == null) {
+                continue;
+            }
+            try {
+                List<Map<String, Object>> rows = userMatchMapper.selectCoMatchedUsers(
+                        userId, null, Collections.emptyList(), topK);
+                Map<Long, Integer> coCounts = new LinkedHashMap<>();
+                for (Map<String, Object> row : rows) {
+                    coCounts.put(Long.valueOf(row.get("user_id").toString()),
+                            Integer.parseInt(row.get("co_count").toString()));
+                }
+                writeCandidates(userId, coCounts);
+            } catch (Exception e) {
+                // 刷新失败不影响主流程，等待下次全量重建
+                log.warn("刷新协同过滤候选列表失败: userId={}", userId, e);
+            }
+        }
+    }
+
+    @Override
+    public Map<Long, Integer> getTopCandidates(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                    .reverseRangeWithScores(SIMILAR_KEY_PREFIX + userId, 0, topK - 1);
+            if (tuples == null || tuples.isEmpty()) {
+                return null;
+            }
+
+            // 只有空列表标记时返回空结果
+            Map<Long, Integer> coCounts = new LinkedHashMap<>();
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null && !EMPTY_MARKER.equals(tuple.getValue())) {
+                    coCounts.put(Long.valueOf(tuple.getValue()), tuple.getScore().intValue());
+                }
+            }
+            return coCounts;
+        } catch (Exception e) {
+            log.warn("读取协同过滤候选列表失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 在内存中计算用户的共现次数，口径与UserMatchMapper.selectCoMatchedUsers一致：
+     * 当前用户的匹配记录 -> 同样匹配该对象的其他用户 -> 这些用户匹配的对象
+     */
+    private Map<Long, Integer> computeCoCounts(Long userId, Map<Long, List<Long>> outgoing,
+                                               Map<Long, List<Long>> incoming) {
+        List<Long> items = new ArrayList<>(outgoing.getOrDefault(userId, Collections.emptyList()));
+        // 当前用户作为被匹配方的记录，其匹配对象即当前用户本身
+        for (int i = 0; i < incoming.getOrDefault(userId, Collections.emptyList()).size(); i++) {
+            items.add(userId);
+        }
+
+        Map<Long, Integer> coCounts = new HashMap<>();
+        for (Long item : items) {
+            for (Long coMatcher : incoming.getOrDefault(item, Collections.emptyList())) {
+                if (coMatcher.equals(userId)) {
+                    continue;
+                }
+                for (Long candidate : outgoing.getOrDefault(coMatcher, Collections.emptyList())) {
+                    if (!candidate.equals(userId)) {
+                        coCounts.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return coCounts;
+    }
+
+    /**
+     * 写入Top-K候选列表，先写临时键再重命名，避免读到半成品
+     * 没有候选时写入空列表标记，而不是删除（删除后读取会回退到实时查询）
+     */
+    private void writeCandidates(Long userId, Map<Long, Integer> coCounts) {
+        String key = SIMILAR_KEY_PREFIX + userId;
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        coCounts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+                .limit(topK)
+                .forEach(entry -> tuples.add(new DefaultTypedTuple<>(
+                        entry.getKey().toString(), entry.getValue().doubleValue())));
+        if (tuples.isEmpty()) {
+            tuples.add(new DefaultTypedTuple<>(EMPTY_MARKER, 0D));
+        }
+
+        String tmpKey = key + ":tmp";
+        stringRedisTemplate.delete(tmpKey);
+        stringRedisTemplate.opsForZSet().add(tmpKey, tuples);
+        stringRedisTemplate.rename(tmpKey, key);
+        stringRedisTemplate.expire(key, SIMILAR_KEY_EXPIRE_DAYS, TimeUnit.DAYS);
+    }
+}
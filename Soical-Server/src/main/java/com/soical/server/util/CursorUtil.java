@@ -0,0 +1,79 @@
+package com.soical.server.util;
+
+import com.soical.server.common.BusinessException;
+import com.soical.server.common.ResultCode;
+import lombok.Data;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+/**
+ * 分页游标工具类
+ * 游标由排序时间和记录ID组成，编码为URL安全的Base64字符串，对前端不透明
+ */
+public class CursorUtil {
+
+    private CursorUtil() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param time 排序时间
+     * @param id 记录ID
+     * @return 游标字符串
+     */
+    public static String encode(LocalDateTime time, Long id) {
+        if (time == null || id == null) {
+            return null;
+        }
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String raw = millis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor 游标字符串
+     * @return 游标，为空时返回null（表示第一页）
+     */
+    public static Cursor decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long millis = Long.parseLong(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            Cursor result = new Cursor();
+            result.setTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+            result.setId(id);
+            return result;
+        } catch (RuntimeException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "分页游标无效");
+        }
+    }
+
+    /**
+     * 解码后的游标
+     */
+    @Data
+    public static class Cursor {
+
+        /**
+         * 上一页最后一条记录的排序时间
+         */
+        private LocalDateTime time;
+
+        /**
+         * 上一页最后一条记录的ID
+         */
+        private Long id;
+    }
+}
@@ -3,6 +3,8 @@ package com.soical.server.util;
 import com.soical.server.common.BusinessException;
 import com.soical.server.common.ResultCode;
 import com.soical.server.config.oss.OssService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
@@ -11,13 +13,22 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -78,28 +89,197 @@ public class FileUtil {
     }
 
     /**
-     * 上传图片
+     * 按内容哈希存储图片
+     * 对象名为images/{哈希前两位}/{SHA-256}.{扩展名}，相同内容只存一份。
+     * 业务代码应通过ImageUploadService上传，由其记录再次上传的内容，避免被当作无引用图片清理
      *
      * @param file 图片文件
-     * @return 图片URL
+     * @return 存储结果
      */
-    public static String uploadImage(MultipartFile file) {
+    public static StoredFile storeImage(MultipartFile file) {
         // 验证图片类型
-        if (!ALLOWED_IMAGE_TYPES.contains(file.getContentType())) {
-            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "不支持的图片类型");
+        validateImage(file);
+        if (file.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "文件不能为空");
         }
-        
+
+        String objectName;
+        try {
+            String hash = sha256Hex(file);
+            String extension = getFileExtension(file.getOriginalFilename()).toLowerCase(Locale.ROOT);
+            if (!StringUtils.hasText(extension)) {
+                extension = file.getContentType().substring("image/".length());
+            }
+            objectName = "images/" + hash.substring(0, 2) + "/" + hash + "." + extension;
+        } catch (IOException e) {
+            log.error("读取图片内容失败", e);
+            throw new BusinessException(ResultCode.FAILED.getCode(), "文件上传失败");
+        }
+
         // 如果启用了OSS且实例已初始化，则使用OSS上传
         if (instance != null && instance.useOss && instance.ossService != null) {
-            try {
-                return instance.ossService.uploadImage(file);
+            try (InputStream in = file.getInputStream()) {
+                boolean created = instance.ossService.uploadObjectIfAbsent(in, objectName, file.getContentType(), file.getSize());
+                return new StoredFile(instance.ossService.getUrl(objectName), created);
             } catch (Exception e) {
                 log.error("OSS上传图片失败，回退到本地上传", e);
             }
         }
-        
+
         // 回退到本地存储
-        return uploadFile(file, "images");
+        try (InputStream in = file.getInputStream()) {
+            return storeLocal(objectName, in);
+        } catch (IOException e) {
+            log.error("文件上传失败", e);
+            throw new BusinessException(ResultCode.FAILED.getCode(), "文件上传失败");
+        }
+    }
+
+    /**
+     * 按指定对象名存储文件（如图片衍生图），对象已存在时不覆盖
+     *
+     * @param objectName  对象名
+     * @param data        文件内容
+     * @param contentType 文件类型
+     * @return 存储结果
+     */
+    public static StoredFile storeObject(String objectName, byte[] data, String contentType) {
+        if (instance != null && instance.useOss && instance.ossService != null) {
+            try {
+                boolean created = instance.ossService.uploadObjectIfAbsent(
+                        new ByteArrayInputStream(data), objectName, contentType, data.length);
+                return new StoredFile(instance.ossService.getUrl(objectName), created);
+            } catch (Exception e) {
+                log.error("OSS上传文件失败，回退到本地上传: {}", objectName, e);
+            }
+        }
+
+        try {
+            return storeLocal(objectName, new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            log.error("文件存储失败: {}", objectName, e);
+            throw new BusinessException(ResultCode.FAILED.getCode(), "文件存储失败");
+        }
+    }
+
+    /**
+     * 打开已上传的文件
+     *
+     * @param fileUrl 上传时返回的文件URL
+     * @return 文件输入流，由调用方关闭
+     */
+    public static InputStream openFile(String fileUrl) throws IOException {
+        if (fileUrl.startsWith("/" + UPLOAD_DIR + "/")) {
+            return Files.newInputStream(Paths.get(fileUrl.substring(1)));
+        }
+        if (instance != null && instance.ossService != null) {
+            return instance.ossService.openFile(fileUrl);
+        }
+        throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "无法读取文件");
+    }
+
+    /**
+     * 从文件URL解析对象名（本地存储为uploads下的相对路径）
+     *
+     * @param fileUrl 上传时返回的文件URL
+     * @return 对象名，无法解析时返回null
+     */
+    public static String getObjectName(String fileUrl) {
+        if (!StringUtils.hasText(fileUrl)) {
+            return null;
+        }
+        if (fileUrl.startsWith("/" + UPLOAD_DIR + "/")) {
+            return fileUrl.substring(UPLOAD_DIR.length() + 2);
+        }
+        return instance != null && instance.ossService != null ? instance.ossService.getObjectName(fileUrl) : null;
+    }
+
+    /**
+     * 写入本地存储：先写临时文件，再以硬链接原子地创建目标文件，目标已存在时不覆盖
+     * （rename会直接替换已存在的目标，无法判断是否为本次新建）
+     */
+    private static StoredFile storeLocal(String objectName, InputStream in) throws IOException {
+        Path target = Paths.get(UPLOAD_DIR, objectName);
+        String url = "/" + UPLOAD_DIR + "/" + objectName;
+        if (Files.exists(target)) {
+            return new StoredFile(url, false);
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.createLink(target, temp);
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // 文件系统不支持硬链接时退化为不覆盖的移动
+                Files.move(temp, target);
+            }
+            return new StoredFile(url, true);
+        } catch (FileAlreadyExistsException e) {
+            // 并发上传了相同内容
+            return new StoredFile(url, false);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 计算文件内容的SHA-256
+     */
+    private static String sha256Hex(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            while (in.read(buffer) != -1) {
+                // 读取过程中更新摘要
+            }
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 验证图片类型
+     *
+     * @param file 图片文件
+     */
+    public static void validateImage(MultipartFile file) {
+        if (!ALLOWED_IMAGE_TYPES.contains(file.getContentType())) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "不支持的图片类型");
+        }
+    }
+
+    /**
+     * 删除已上传的文件，删除失败只记录日志
+     *
+     * @param fileUrl 上传时返回的文件URL
+     */
+    public static void deleteFile(String fileUrl) {
+        if (!StringUtils.hasText(fileUrl)) {
+            return;
+        }
+        try {
+            if (fileUrl.startsWith("/" + UPLOAD_DIR + "/")) {
+                Files.deleteIfExists(Paths.get(fileUrl.substring(1)));
+            } else if (instance != null && instance.ossService != null) {
+                instance.ossService.deleteFile(fileUrl);
+            }
+        } catch (Exception e) {
+            log.warn("删除文件失败: {}", fileUrl, e);
+        }
     }
 
     /**
@@ -160,4 +340,22 @@ public class FileUtil {
         }
         return filename.substring(lastIndexOf + 1);
     }
+
+    /**
+     * 文件存储结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class StoredFile {
+
+        /**
+         * 文件URL
+         */
+        private String url;
+
+        /**
+         * 是否本次新写入（内容已存在时为false，清理时不能删除）
+         */
+        private boolean created;
+    }
 } 
\ No newline at end of file
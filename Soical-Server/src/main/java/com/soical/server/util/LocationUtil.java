@@ -0,0 +1,41 @@
+package com.soical.server.util;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * 地址工具类
+ */
+public class LocationUtil {
+
+    /**
+     * 省级行政区名称
+     */
+    private static final String[] PROVINCES = {"北京", "天津", "上海", "重庆", "河北", "山西", "辽宁", "吉林", "黑龙江",
+            "江苏", "浙江", "安徽", "福建", "江西", "山东", "河南", "湖北", "湖南",
+            "广东", "海南", "四川", "贵州", "云南", "陕西", "甘肃", "青海", "台湾",
+            "内蒙古", "广西", "西藏", "宁夏", "新疆", "香港", "澳门"};
+
+    private LocationUtil() {
+    }
+
+    /**
+     * 从地址中提取省份
+     * 简单处理，取第一个匹配的省/市/自治区，匹配不到时取前两个字
+     *
+     * @param location 地址
+     * @return 省份名称，地址为空时返回空字符串
+     */
+    public static String extractProvince(String location) {
+        if (!StringUtils.hasText(location)) {
+            return "";
+        }
+
+        for (String province : PROVINCES) {
+            if (location.contains(province)) {
+                return province;
+            }
+        }
+
+        return location.length() > 2 ? location.substring(0, 2) : location;
+    }
+}
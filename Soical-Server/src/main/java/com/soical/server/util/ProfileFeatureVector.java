@@ -0,0 +1,217 @@
+package com.soical.server.util;
+
+import com.soical.server.entity.User;
+import com.soical.server.entity.UserProfile;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.regex.Pattern;
+
+/**
+ * 用户资料特征向量
+ * 在资料写入时编码一次：兴趣爱好去重后按哈希值排序，所在地、省份、职业保留原文，
+ * 相似度计算时只做有序数组归并和整数比较，不再拆分字符串。
+ * 不使用全局字典，向量只占用自身的内存，随用户缓存一起回收
+ */
+public final class ProfileFeatureVector {
+
+    /**
+     * 兴趣爱好分隔符
+     */
+    private static final Pattern HOBBY_SEPARATOR = Pattern.compile(",|、|;");
+
+    /**
+     * 兴趣爱好排序：先按哈希值，哈希相同再按原文，保证归并时相等的兴趣相邻
+     */
+    private static final Comparator<String> HOBBY_ORDER =
+            Comparator.comparingInt(String::hashCode).thenComparing(Comparator.naturalOrder());
+
+    private static final int[] EMPTY_HASHES = new int[0];
+
+    private static final String[] EMPTY_HOBBIES = new String[0];
+
+    /**
+     * 兴趣爱好哈希值，升序（与hobbies一一对应）
+     */
+    private final int[] hobbyHashes;
+
+    /**
+     * 兴趣爱好原文，仅在哈希值相同时用于确认
+     */
+    private final String[] hobbies;
+
+    /**
+     * 所在地，未知为null
+     */
+    private final String location;
+
+    /**
+     * 省份，未知为null
+     */
+    private final String province;
+
+    /**
+     * 职业，未知为null
+     */
+    private final String occupation;
+
+    /**
+     * 学历，未知为-1
+     */
+    private final byte education;
+
+    /**
+     * 出生年份，未知为0
+     */
+    private final short birthYear;
+
+    private ProfileFeatureVector(int[] hobbyHashes, String[] hobbies, String location, String province,
+                                 String occupation, byte education, short birthYear) {
+        this.hobbyHashes = hobbyHashes;
+        this.hobbies = hobbies;
+        this.location = location;
+        this.province = province;
+        this.occupation = occupation;
+        this.education = education;
+        this.birthYear = birthYear;
+    }
+
+    /**
+     * 根据用户和资料编码特征向量
+     *
+     * @param user 用户基本信息（可为空）
+     * @param profile 用户资料（可为空）
+     * @return 特征向量
+     */
+    public static ProfileFeatureVector of(User user, UserProfile profile) {
+        int[] hobbyHashes = EMPTY_HASHES;
+        String[] hobbies = EMPTY_HOBBIES;
+        String location = null;
+        String province = null;
+        String occupation = null;
+        byte education = -1;
+        short birthYear = 0;
+
+        if (profile != null) {
+            if (StringUtils.hasText(profile.getHobbies())) {
+                hobbies = Arrays.stream(HOBBY_SEPARATOR.split(profile.getHobbies()))
+                        .filter(StringUtils::hasText)
+                        .map(String::trim)
+                        .distinct()
+                        .sorted(HOBBY_ORDER)
+                        .toArray(String[]::new);
+                hobbyHashes = new int[hobbies.length];
+                for (int i = 0; i < hobbies.length; i++) {
+                    hobbyHashes[i] = hobbies[i].hashCode();
+                }
+            }
+            if (StringUtils.hasText(profile.getLocation())) {
+                location = profile.getLocation();
+                province = LocationUtil.extractProvince(location);
+            }
+            if (StringUtils.hasText(profile.getOccupation())) {
+                occupation = profile.getOccupation();
+            }
+            if (profile.getEducation() != null) {
+                education = profile.getEducation().byteValue();
+            }
+        }
+
+        if (user != null && user.getBirthday() != null) {
+            Calendar birth = Calendar.getInstance();
+            birth.setTime(user.getBirthday());
+            birthYear = (short) birth.get(Calendar.YEAR);
+        }
+
+        return new ProfileFeatureVector(hobbyHashes, hobbies, location, province,
+                occupation, education, birthYear);
+    }
+
+    /**
+     * 计算共同兴趣数量（有序数组归并求交集）
+     */
+    public int commonHobbies(ProfileFeatureVector other) {
+        int[] a = hobbyHashes;
+        int[] b = other.hobbyHashes;
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                int order = hobbies[i].compareTo(other.hobbies[j]);
+                if (order == 0) {
+                    common++;
+                    i++;
+                    j++;
+                } else if (order < 0) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+        return common;
+    }
+
+    public int getHobbyCount() {
+        return hobbies.length;
+    }
+
+    public boolean hasLocation() {
+        return location != null;
+    }
+
+    public boolean sameLocation(ProfileFeatureVector other) {
+        return location != null && location.equals(other.location);
+    }
+
+    /**
+     * 判断所在地是否存在包含关系（如“广东深圳”与“深圳”）
+     */
+    public boolean locationContains(ProfileFeatureVector other) {
+        return location != null && other.location != null
+                && (location.contains(other.location) || other.location.contains(location));
+    }
+
+    public boolean sameProvince(ProfileFeatureVector other) {
+        return province != null && province.equals(other.province);
+    }
+
+    public boolean hasOccupation() {
+        return occupation != null;
+    }
+
+    public boolean sameOccupation(ProfileFeatureVector other) {
+        return occupation != null && occupation.equals(other.occupation);
+    }
+
+    /**
+     * 判断职业是否存在包含关系
+     */
+    public boolean occupationContains(ProfileFeatureVector other) {
+        return occupation != null && other.occupation != null
+                && (occupation.contains(other.occupation) || other.occupation.contains(occupation));
+    }
+
+    public boolean hasEducation() {
+        return education >= 0;
+    }
+
+    public int getEducation() {
+        return education;
+    }
+
+    public boolean hasBirthYear() {
+        return birthYear != 0;
+    }
+
+    public int getBirthYear() {
+        return birthYear;
+    }
+}
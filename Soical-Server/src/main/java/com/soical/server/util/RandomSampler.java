@@ -0,0 +1,73 @@
+package com.soical.server.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+
+/**
+ * 随机抽样工具类
+ * 在ID数组上随机抽取不重复元素，避免ORDER BY RAND()或整表洗牌
+ */
+public class RandomSampler {
+
+    /**
+     * 随机探测次数相对抽样数量的倍数，超过后退化为蓄水池抽样
+     */
+    private static final int MAX_PROBE_FACTOR = 8;
+
+    private RandomSampler() {
+    }
+
+    /**
+     * 从ID数组中随机抽取不重复且满足条件的元素
+     * 先随机下标探测，期望O(count)；可选元素过少导致探测失败过多时，对数组做一次蓄水池抽样补足
+     *
+     * @param ids ID数组
+     * @param count 抽样数量
+     * @param accept 元素过滤条件
+     * @return 抽样结果，数量不超过count
+     */
+    public static List<Long> sample(long[] ids, int count, LongPredicate accept) {
+        List<Long> result = new ArrayList<>(Math.max(0, count));
+        if (ids == null || ids.length == 0 || count <= 0) {
+            return result;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Long> picked = new HashSet<>();
+        int maxProbes = count * MAX_PROBE_FACTOR;
+        for (int probe = 0; probe < maxProbes && result.size() < count; probe++) {
+            long id = ids[random.nextInt(ids.length)];
+            if (accept.test(id) && picked.add(id)) {
+                result.add(id);
+            }
+        }
+        if (result.size() >= count) {
+            return result;
+        }
+
+        // 蓄水池抽样补足剩余数量
+        int remaining = count - result.size();
+        List<Long> reservoir = new ArrayList<>(remaining);
+        int seen = 0;
+        for (long id : ids) {
+            if (picked.contains(id) || !accept.test(id)) {
+                continue;
+            }
+            seen++;
+            if (reservoir.size() < remaining) {
+                reservoir.add(id);
+            } else {
+                int slot = random.nextInt(seen);
+                if (slot < remaining) {
+                    reservoir.set(slot, id);
+                }
+            }
+        }
+        result.addAll(reservoir);
+        return result;
+    }
+}
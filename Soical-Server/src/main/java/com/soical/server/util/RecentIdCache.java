@@ -0,0 +1,42 @@
+package com.soical.server.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 最近ID缓存
+ * 按插入顺序保留最近的若干个ID，超出容量时淘汰最早的，用于消息投递的幂等判断
+ */
+public class RecentIdCache {
+
+    private final Map<Long, Boolean> ids;
+
+    public RecentIdCache(int capacity) {
+        this.ids = new LinkedHashMap<Long, Boolean>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * 记录ID
+     *
+     * @param id ID
+     * @return 是否为新ID（之前未记录过）
+     */
+    public synchronized boolean add(Long id) {
+        return id != null && ids.put(id, Boolean.TRUE) == null;
+    }
+
+    /**
+     * 判断ID是否已记录
+     *
+     * @param id ID
+     * @return 是否已记录
+     */
+    public synchronized boolean contains(Long id) {
+        return id != null && ids.containsKey(id);
+    }
+}
@@ -0,0 +1,201 @@
+package com.soical.server.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 雪花ID生成器
+ * ID由毫秒时间戳(41位) + 节点号(5位) + 序号(7位)组成，共53位，
+ * 不超过JavaScript的安全整数范围，前端按数字解析不会丢失精度；按生成时间递增。
+ * 节点号通过Redis租约独占（id:snowflake:worker:{节点号}），定时续期；
+ * 没有空闲节点号时拒绝启动，租约失效后拒绝生成ID，避免两个节点生成相同的ID
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始时间：2024-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int WORKER_BITS = 5;
+
+    private static final int SEQUENCE_BITS = 7;
+
+    private static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 时钟回拨在该范围内时等待追上，超过则拒绝生成
+     */
+    private static final long MAX_CLOCK_BACKWARD_MS = 5;
+
+    private static final String WORKER_LEASE_KEY_PREFIX = "id:snowflake:worker:";
+
+    /**
+     * 指定的节点号，小于0时启动时从空闲节点号中租用
+     */
+    @Value("${id.worker-id:-1}")
+    private long configuredWorkerId;
+
+    /**
+     * 节点号租约时长（毫秒）
+     */
+    @Value("${id.worker-lease.ttl-ms:30000}")
+    private long leaseTtlMillis;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本实例的租约标识
+     */
+    private final String leaseToken = UUID.randomUUID().toString();
+
+    private long workerId = -1;
+
+    /**
+     * 最近一次确认持有租约的时间，超过租约时长未确认时拒绝生成ID
+     */
+    private volatile long leaseConfirmedAt;
+
+    private long lastTimestamp = -1L;
+
+    private long sequence;
+
+    @PostConstruct
+    public void init() {
+        if (configuredWorkerId > MAX_WORKER_ID) {
+            throw new IllegalStateException("雪花ID节点号超出范围(0-" + MAX_WORKER_ID + "): " + configuredWorkerId);
+        }
+        long first = configuredWorkerId >= 0 ? configuredWorkerId : 0;
+        long last = configuredWorkerId >= 0 ? configuredWorkerId : MAX_WORKER_ID;
+        for (long candidate = first; candidate <= last; candidate++) {
+            if (tryAcquire(candidate)) {
+                workerId = candidate;
+                leaseConfirmedAt = System.currentTimeMillis();
+                log.info("雪花ID生成器初始化完成: workerId={}", workerId);
+                return;
+            }
+        }
+        throw new IllegalStateException(configuredWorkerId >= 0
+                ? "雪花ID节点号" + configuredWorkerId + "已被其他实例占用"
+                : "没有空闲的雪花ID节点号，当前最多支持" + (MAX_WORKER_ID + 1) + "个实例");
+    }
+
+    /**
+     * 续期节点号租约
+     * 租约已丢失（如Redis数据被清除）时尝试重新获取原节点号，失败则保持拒绝生成ID
+     */
+    @Scheduled(fixedDelayString = "${id.worker-lease.renew-interval-ms:10000}")
+    public void renewLease() {
+        if (workerId < 0) {
+            return;
+        }
+        String key = WORKER_LEASE_KEY_PREFIX + workerId;
+        try {
+            String holder = stringRedisTemplate.opsForValue().get(key);
+            boolean held;
+            if (leaseToken.equals(holder)) {
+                held = Boolean.TRUE.equals(stringRedisTemplate.expire(key, leaseTtlMillis, TimeUnit.MILLISECONDS));
+            } else {
+                held = holder == null && tryAcquire(workerId);
+                if (!held) {
+                    log.error("雪花ID节点号租约已被其他实例占用，停止生成ID: workerId={}, holder={}", workerId, holder);
+                }
+            }
+            if (held) {
+                leaseConfirmedAt = System.currentTimeMillis();
+            }
+        } catch (Exception e) {
+            log.warn("续期雪花ID节点号租约失败: workerId={}", workerId, e);
+        }
+    }
+
+    /**
+     * 停止时释放节点号
+     */
+    @PreDestroy
+    public void release() {
+        if (workerId < 0) {
+            return;
+        }
+        String key = WORKER_LEASE_KEY_PREFIX + workerId;
+        try {
+            if (leaseToken.equals(stringRedisTemplate.opsForValue().get(key))) {
+                stringRedisTemplate.delete(key);
+            }
+        } catch (Exception e) {
+            log.warn("释放雪花ID节点号租约失败: workerId={}", workerId, e);
+        }
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return ID
+     */
+    public synchronized long nextId() {
+        long timestamp = System.currentTimeMillis();
+        if (timestamp - leaseConfirmedAt > leaseTtlMillis) {
+            throw new IllegalStateException("雪花ID节点号租约未能续期，拒绝生成ID: workerId=" + workerId);
+        }
+        if (timestamp < lastTimestamp) {
+            long offset = lastTimestamp - timestamp;
+            if (offset > MAX_CLOCK_BACKWARD_MS) {
+                throw new IllegalStateException("时钟回拨" + offset + "ms，拒绝生成ID");
+            }
+            timestamp = waitUntil(lastTimestamp);
+        }
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 当前毫秒序号用完，等待下一毫秒
+                timestamp = waitUntil(lastTimestamp + 1);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+
+        return ((timestamp - EPOCH) << (WORKER_BITS + SEQUENCE_BITS))
+                | (workerId << SEQUENCE_BITS)
+                | sequence;
+    }
+
+    /**
+     * 解析ID的生成时间
+     *
+     * @param id ID
+     * @return 生成时间（毫秒时间戳）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    private boolean tryAcquire(long candidate) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(
+                WORKER_LEASE_KEY_PREFIX + candidate, leaseToken, leaseTtlMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private long waitUntil(long target) {
+        long timestamp = System.currentTimeMillis();
+        while (timestamp < target) {
+            Thread.yield();
+            timestamp = System.currentTimeMillis();
+        }
+        return timestamp;
+    }
+}
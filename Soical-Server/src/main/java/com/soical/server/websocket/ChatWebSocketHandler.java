@@ -1,37 +1,67 @@
 package com.soical.server.websocket;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.List;
 import java.util.HashMap;
 
 /**
  * WebSocket聊天消息处理器
+ * 所有发往客户端的消息都进入会话各自的出站队列，由发送线程池按顺序写出
  */
 @Component
 @Slf4j
 public class ChatWebSocketHandler extends TextWebSocketHandler {
     
-    // 用户ID到会话的映射
-    private final Map<Long, WebSocketSession> userSessions = new ConcurrentHashMap<>();
+    // Tomcat阻塞发送超时的会话属性名
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    
+    // 用户ID到出站队列的映射
+    private final Map<Long, SessionOutboundQueue> userSessions = new ConcurrentHashMap<>();
     
     // 会话ID到用户ID的映射
     private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
     
+    // 会话ID到出站队列的映射（包括尚未关联用户的会话）
+    private final Map<String, SessionOutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+    
     // 添加applicationContext
     private final org.springframework.context.ApplicationContext applicationContext;
     
-    // 构造函数注入applicationContext
+    // 出站消息发送线程池
+    private final Executor websocketExecutor;
+    
+    // 每个会话出站队列的容量
+    @Value("${chat.websocket.outbound.queue-capacity:256}")
+    private int outboundQueueCapacity;
+    
+    // 消息在队列中等待及单次写出的时间上限（毫秒），超过后关闭会话
+    @Value("${chat.websocket.outbound.send-time-limit-ms:10000}")
+    private long sendTimeLimitMillis;
+    
+    // 出站队列满时的处理策略
+    @Value("${chat.websocket.outbound.overflow-policy:CLOSE}")
+    private SessionOutboundQueue.OverflowPolicy overflowPolicy;
+    
+    // 构造函数注入applicationContext和发送线程池
     @org.springframework.beans.factory.annotation.Autowired
-    public ChatWebSocketHandler(org.springframework.context.ApplicationContext applicationContext) {
+    public ChatWebSocketHandler(org.springframework.context.ApplicationContext applicationContext,
+                                @Qualifier("websocketExecutor") Executor websocketExecutor) {
         this.applicationContext = applicationContext;
+        this.websocketExecutor = websocketExecutor;
     }
     
     /**
@@ -40,8 +70,13 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
      * @return 是否连接
      */
     public boolean isUserConnected(Long userId) {
-        WebSocketSession session = userSessions.get(userId);
-        return session != null && session.isOpen();
+        SessionOutboundQueue outbound = userSessions.get(userId);
+        return outbound != null && outbound.isOpen();
+    }
+    
+    // 使用懒加载方式获取ChatMessageQueueService，避免循环依赖
+    private com.soical.server.service.ChatMessageQueueService getChatMessageQueueService() {
+        return applicationContext.getBean(com.soical.server.service.ChatMessageQueueService.class);
     }
     
     /**
@@ -50,6 +85,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         log.info("WebSocket连接已建立: {}, 查询参数: {}", session.getId(), session.getUri().getQuery());
+        getOutboundQueue(session);
         
         // 打印会话中的所有属性
         session.getAttributes().forEach((key, value) -> {
@@ -104,7 +140,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     private void handleHeartbeat(WebSocketSession session) {
         try {
             // 返回pong响应
-            session.sendMessage(new TextMessage("{\"type\":\"PONG\"}"));
+            sendMessageToClient(session, "{\"type\":\"PONG\"}");
             
             // 更新用户状态
             updateUserStatus(session);
@@ -150,7 +186,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 response.put("statusMap", statusMap);
                 
                 // 发送响应
-                session.sendMessage(new TextMessage(new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(response)));
+                sendMessageToClient(session, new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(response));
             }
         } catch (Exception e) {
             log.error("处理状态请求失败", e);
@@ -181,9 +217,17 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
      */
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        SessionOutboundQueue outbound = outboundQueues.remove(session.getId());
+        if (outbound != null) {
+            outbound.discard();
+        }
+        
         Long userId = sessionUsers.remove(session.getId());
         if (userId != null) {
-            userSessions.remove(userId);
+            // 只移除当前会话，用户可能已经用新会话重新连接
+            if (outbound != null && userSessions.remove(userId, outbound)) {
+                getChatMessageQueueService().unsubscribeUser(userId);
+            }
             log.info("用户 {} 的WebSocket连接已关闭: {}", userId, status);
         } else {
             log.info("未知用户的WebSocket连接已关闭: {}, {}", session.getId(), status);
@@ -200,39 +244,44 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             return;
         }
         
-        // 关闭已有会话
-        WebSocketSession existingSession = userSessions.get(userId);
-        if (existingSession != null && existingSession.isOpen()) {
-            try {
-                existingSession.close();
-            } catch (Exception e) {
-                log.error("关闭旧会话失败", e);
-            }
+        // 注册新会话，写完旧会话已入队的消息后将其关闭
+        SessionOutboundQueue existing = userSessions.put(userId, getOutboundQueue(session));
+        if (existing != null && existing.getSession() != session) {
+            existing.closeAfterFlush(CloseStatus.NORMAL);
         }
-        
-        // 注册新会话
-        userSessions.put(userId, session);
         sessionUsers.put(session.getId(), userId);
+        getChatMessageQueueService().subscribeUser(userId);
         log.info("用户 {} 已注册WebSocket会话: {}", userId, session.getId());
     }
     
     /**
-     * 发送消息给指定用户
+     * 发送消息给指定用户（进入出站队列后立即返回）
      * @param userId 用户ID
      * @param message 消息内容
-     * @return 是否发送成功
+     * @return 是否已进入发送队列
      */
     public boolean sendMessageToUser(Long userId, String message) {
-        WebSocketSession session = userSessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(message));
-                return true;
-            } catch (Exception e) {
-                log.error("发送WebSocket消息失败", e);
-            }
-        }
-        return false;
+        return sendMessageToUser(userId, message, null);
+    }
+    
+    /**
+     * 发送消息给指定用户，写出到客户端后执行回调
+     * @param userId 用户ID
+     * @param message 消息内容
+     * @param onSent 写出成功后的回调，会话关闭导致未写出时不执行
+     * @return 是否已进入发送队列
+     */
+    public boolean sendMessageToUser(Long userId, String message, Runnable onSent) {
+        SessionOutboundQueue outbound = userSessions.get(userId);
+        return outbound != null && outbound.isOpen() && outbound.offer(message, onSent);
+    }
+    
+    /**
+     * 获取本节点已连接的用户ID
+     * @return 用户ID集合
+     */
+    public Set<Long> getConnectedUserIds() {
+        return new HashSet<>(userSessions.keySet());
     }
     
     /**
@@ -244,24 +293,44 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     }
     
     /**
-     * 发送消息给客户端
+     * 发送消息给客户端（进入出站队列后立即返回）
      * @param session WebSocket会话
      * @param message 消息内容
-     * @return 是否发送成功
+     * @return 是否已进入发送队列
      */
     public boolean sendMessageToClient(WebSocketSession session, String message) {
         if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(message));
-                return true;
-            } catch (Exception e) {
-                log.error("发送WebSocket消息到客户端失败", e);
-                return false;
-            }
+            return getOutboundQueue(session).offer(message);
         }
         return false;
     }
     
+    /**
+     * 获取会话的出站队列，不存在时创建
+     * @param session WebSocket会话
+     * @return 出站队列
+     */
+    private SessionOutboundQueue getOutboundQueue(WebSocketSession session) {
+        return outboundQueues.computeIfAbsent(session.getId(), id -> {
+            applyBlockingSendTimeout(session);
+            return new SessionOutboundQueue(session, websocketExecutor, outboundQueueCapacity,
+                    sendTimeLimitMillis, overflowPolicy);
+        });
+    }
+    
+    /**
+     * 限制单次阻塞写出的时间，避免慢客户端长期占用发送线程（Tomcat容器）
+     */
+    private void applyBlockingSendTimeout(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession) {
+            javax.websocket.Session nativeSession =
+                    ((NativeWebSocketSession) session).getNativeSession(javax.websocket.Session.class);
+            if (nativeSession != null) {
+                nativeSession.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+            }
+        }
+    }
+    
     /**
      * 关闭指定用户的WebSocket会话
      * @param userId 用户ID
@@ -271,26 +340,14 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             return;
         }
         
-        WebSocketSession session = userSessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                // 发送关闭消息通知客户端
-                try {
-                    session.sendMessage(new TextMessage("{\"type\":\"SESSION_CLOSED\",\"reason\":\"User logged out\"}"));
-                } catch (Exception e) {
-                    log.warn("发送会话关闭消息失败: {}", e.getMessage());
-                }
-                
-                // 关闭会话
-                session.close(CloseStatus.NORMAL);
-                log.info("已关闭用户 {} 的WebSocket会话", userId);
-                
-                // 从映射中移除
-                userSessions.remove(userId);
-                sessionUsers.remove(session.getId());
-            } catch (Exception e) {
-                log.error("关闭用户会话失败", e);
-            }
+        SessionOutboundQueue outbound = userSessions.remove(userId);
+        if (outbound != null && outbound.isOpen()) {
+            // 发送关闭消息通知客户端，写完后关闭会话
+            outbound.offer("{\"type\":\"SESSION_CLOSED\",\"reason\":\"User logged out\"}");
+            outbound.closeAfterFlush(CloseStatus.NORMAL);
+            sessionUsers.remove(outbound.getSession().getId());
+            getChatMessageQueueService().unsubscribeUser(userId);
+            log.info("已关闭用户 {} 的WebSocket会话", userId);
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.soical.server.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * WebSocket会话的出站消息队列
+ * 每个会话一个有界队列，由发送线程池中的至多一个任务按顺序写出，
+ * 调用方只负责入队，单个客户端写入缓慢不会阻塞其他会话；
+ * 发送线程池已满时关闭会话，不在调用方线程上写出消息
+ */
+@Slf4j
+public class SessionOutboundQueue {
+
+    /**
+     * 队列已满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃最早的消息
+         */
+        DROP_OLDEST,
+        /**
+         * 丢弃新消息
+         */
+        DROP_NEWEST,
+        /**
+         * 关闭会话，由客户端重连后拉取历史消息
+         */
+        CLOSE
+    }
+
+    /**
+     * 单次写出的最大消息数，超过后重新提交任务，让出线程给其他会话
+     */
+    private static final int MAX_BATCH = 64;
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final int capacity;
+    private final long sendTimeLimitMillis;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Deque<Outgoing> queue = new ArrayDeque<>();
+
+    /**
+     * 是否已有写出任务在执行或排队（由this保护）
+     */
+    private boolean draining;
+
+    /**
+     * 写完队列后要关闭会话时的状态（由this保护）
+     */
+    private CloseStatus pendingClose;
+
+    private volatile boolean closed;
+
+    public SessionOutboundQueue(WebSocketSession session, Executor executor, int capacity,
+                                long sendTimeLimitMillis, OverflowPolicy overflowPolicy) {
+        this.session = session;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public boolean isOpen() {
+        return !closed && session.isOpen();
+    }
+
+    /**
+     * 消息入队
+     *
+     * @param payload 消息内容
+     * @return 是否入队成功
+     */
+    public boolean offer(String payload) {
+        return offer(payload, null);
+    }
+
+    /**
+     * 消息入队，写出成功后执行回调（如确认消息已送达）
+     *
+     * @param payload 消息内容
+     * @param onSent  写出成功后的回调，可为空
+     * @return 是否入队成功
+     */
+    public boolean offer(String payload, Runnable onSent) {
+        boolean accepted = true;
+        boolean schedule;
+        synchronized (this) {
+            if (closed || pendingClose != null) {
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DROP_OLDEST:
+                        queue.pollFirst();
+                        log.warn("WebSocket出站队列已满，丢弃最早的消息: sessionId={}", session.getId());
+                        break;
+                    case DROP_NEWEST:
+                        log.warn("WebSocket出站队列已满，丢弃新消息: sessionId={}", session.getId());
+                        return false;
+                    default:
+                        log.warn("WebSocket出站队列已满，关闭会话: sessionId={}", session.getId());
+                        queue.clear();
+                        pendingClose = CloseStatus.SESSION_NOT_RELIABLE;
+                        accepted = false;
+                        break;
+                }
+            }
+            if (accepted) {
+                queue.offerLast(new Outgoing(payload, System.currentTimeMillis(), onSent));
+            }
+            schedule = !draining;
+            draining = true;
+        }
+        if (schedule && !scheduleDrain()) {
+            return false;
+        }
+        return accepted;
+    }
+
+    /**
+     * 写完已入队的消息后关闭会话
+     *
+     * @param status 关闭状态
+     */
+    public void closeAfterFlush(CloseStatus status) {
+        boolean schedule;
+        synchronized (this) {
+            if (closed || pendingClose != null) {
+                return;
+            }
+            pendingClose = status;
+            schedule = !draining;
+            draining = true;
+        }
+        if (schedule) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * 会话已关闭，丢弃剩余消息
+     */
+    public void discard() {
+        closed = true;
+        synchronized (this) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * 按顺序写出队列中的消息，同一时刻每个会话只有一个线程执行
+     */
+    private void drain() {
+        for (int sent = 0; ; sent++) {
+            Outgoing next;
+            CloseStatus closeStatus = null;
+            synchronized (this) {
+                if (closed) {
+                    queue.clear();
+                    draining = false;
+                    return;
+                }
+                if (sent >= MAX_BATCH && !queue.isEmpty()) {
+                    // 保持draining，由新任务继续写出
+                    break;
+                }
+                next = queue.pollFirst();
+                if (next == null) {
+                    closeStatus = pendingClose;
+                    draining = false;
+                    if (closeStatus == null) {
+                        return;
+                    }
+                }
+            }
+
+            if (next == null) {
+                close(closeStatus);
+                return;
+            }
+
+            long waited = System.currentTimeMillis() - next.enqueueTime;
+            if (waited > sendTimeLimitMillis) {
+                log.warn("WebSocket消息等待发送超时，关闭会话: sessionId={}, waited={}ms", session.getId(), waited);
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+
+            try {
+                session.sendMessage(new TextMessage(next.payload));
+            } catch (Exception e) {
+                log.warn("发送WebSocket消息失败，关闭会话: sessionId={}, error={}", session.getId(), e.getMessage());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            if (next.onSent != null) {
+                try {
+                    next.onSent.run();
+                } catch (Exception e) {
+                    log.warn("WebSocket消息发送回调执行失败: sessionId={}", session.getId(), e);
+                }
+            }
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * 提交写出任务，线程池已满时关闭会话（未写出的消息未确认，由客户端重连后拉取）
+     *
+     * @return 是否提交成功
+     */
+    private boolean scheduleDrain() {
+        try {
+            executor.execute(this::drain);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("WebSocket发送线程池已满，关闭会话: sessionId={}", session.getId());
+            close(CloseStatus.SERVICE_OVERLOAD);
+            return false;
+        }
+    }
+
+    private void close(CloseStatus status) {
+        discard();
+        synchronized (this) {
+            draining = false;
+        }
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (Exception e) {
+            log.warn("关闭WebSocket会话失败: sessionId={}", session.getId(), e);
+        }
+    }
+
+    private static final class Outgoing {
+        private final String payload;
+        private final long enqueueTime;
+        private final Runnable onSent;
+
+        private Outgoing(String payload, long enqueueTime, Runnable onSent) {
+            this.payload = payload;
+            this.enqueueTime = enqueueTime;
+            this.onSent = onSent;
+        }
+    }
+}
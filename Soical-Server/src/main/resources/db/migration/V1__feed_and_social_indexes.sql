@@ -0,0 +1,23 @@
+-- 动态列表：按状态筛选、按创建时间/热度排序，以及按作者、城市筛选
+CREATE INDEX `idx_status_create_time` ON `t_post` (`status`, `create_time`, `post_id`);
+CREATE INDEX `idx_user_status_create_time` ON `t_post` (`user_id`, `status`, `create_time`);
+CREATE INDEX `idx_city_status_create_time` ON `t_post` (`city`, `status`, `create_time`);
+CREATE INDEX `idx_status_hot_score` ON `t_post` (`status`, `hot_score`);
+
+-- 动态评论列表
+CREATE INDEX `idx_post_status_create_time` ON `t_comment` (`post_id`, `status`, `create_time`);
+
+-- 用户点赞过的动态
+CREATE INDEX `idx_user_post` ON `t_post_like` (`user_id`, `post_id`);
+
+-- 粉丝分批读取
+CREATE INDEX `idx_followed_status_follower` ON `t_user_follow` (`followed_id`, `status`, `follower_id`);
+
+-- 收到的喜欢、匹配列表
+CREATE INDEX `idx_user_b_status_create_time` ON `t_user_match` (`user_b_id`, `status`, `create_time`);
+CREATE INDEX `idx_user_a_status_create_time` ON `t_user_match` (`user_a_id`, `status`, `create_time`);
+
+-- 会话消息历史、两个用户之间的消息、未读消息
+CREATE INDEX `idx_conversation_create_time` ON `t_chat_message` (`conversation_id`, `create_time`);
+CREATE INDEX `idx_sender_receiver_create_time` ON `t_chat_message` (`sender_id`, `receiver_id`, `create_time`);
+CREATE INDEX `idx_receiver_read` ON `t_chat_message` (`receiver_id`, `is_read`)
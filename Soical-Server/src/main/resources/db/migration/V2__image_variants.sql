@@ -0,0 +1,3 @@
+-- 图片衍生图（缩略图、中图）URL，格式：{"原图URL": {"thumb": "...", "medium": "..."}}
+ALTER TABLE `t_post` ADD COLUMN `image_variants` json DEFAULT NULL COMMENT '图片衍生图' AFTER `images`;
+ALTER TABLE `t_user_profile` ADD COLUMN `photo_variants` json DEFAULT NULL COMMENT '相册衍生图' AFTER `photos`;